@@ -6,12 +6,19 @@ import com.vrctool.bot.listener.MessageModerationListener;
 import com.vrctool.bot.listener.SlashCommandListener;
 import com.vrctool.bot.service.ActivePlayersServer;
 import com.vrctool.bot.service.FaqService;
+import com.vrctool.bot.service.MessageAnalysisCache;
+import com.vrctool.bot.service.ModerationRuleWatcher;
+import com.vrctool.bot.service.ModerationRules;
 import com.vrctool.bot.service.ModerationScanService;
+import com.vrctool.bot.service.RuleSet;
 import com.vrctool.bot.service.TemplateService;
 import com.vrctool.bot.service.WordMemoryStore;
 import com.vrctool.bot.util.TextNormalizer;
+import java.io.IOException;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.JDABuilder;
 import net.dv8tion.jda.api.requests.GatewayIntent;
@@ -29,13 +36,60 @@ public final class BotLauncher {
         }
         FaqService faqService = new FaqService("/faq.json");
         TemplateService templateService = new TemplateService(config);
-        WordMemoryStore wordMemoryStore = new WordMemoryStore(Paths.get(config.wordMemoryPath()));
+        WordMemoryStore wordMemoryStore = new WordMemoryStore(
+                Paths.get(config.wordMemoryPath()),
+                config.wordMemoryWriteBehind()
+                        ? new WordMemoryStore.WriteBehind(
+                                config.wordMemoryQueueCapacity(),
+                                config.wordMemoryFlushBatchSize(),
+                                Duration.ofMillis(config.wordMemoryFlushMillis()),
+                                config.wordMemoryFsync()
+                        )
+                        : null,
+                new WordMemoryStore.MessageHistory(
+                        config.wordMemoryRecentMessages(),
+                        config.wordMemoryCompressMessages()
+                )
+        );
         wordMemoryStore.load();
+        if (config.wordMemorySnapshotMinutes() > 0) {
+            wordMemoryStore.scheduleSnapshots(Duration.ofMinutes(config.wordMemorySnapshotMinutes()));
+        }
         TextNormalizer textNormalizer = TextNormalizer.fromResource(
                 "moderation-synonyms.json",
                 TextNormalizer.MorphologyMode.STEM
         );
-        ModerationScanService scanService = new ModerationScanService(config, wordMemoryStore, textNormalizer);
+        MessageAnalysisCache analysisCache = new MessageAnalysisCache(textNormalizer, config.modAnalysisCacheSize());
+        // Compiled once and shared; the engine and the scanner both read the current version.
+        ModerationRules moderationRules = ModerationRules.fromConfig(config);
+        ModerationRuleWatcher ruleWatcher = startRuleWatcher(config, moderationRules);
+        ModerationScanService scanService = new ModerationScanService(
+                config,
+                wordMemoryStore,
+                moderationRules,
+                analysisCache
+        );
+        MessageModerationListener moderationListener = new MessageModerationListener(
+                config,
+                wordMemoryStore,
+                moderationRules,
+                analysisCache
+        );
+        Runtime.getRuntime().addShutdownHook(new Thread(
+                () -> {
+                    if (ruleWatcher != null) {
+                        ruleWatcher.close();
+                    }
+                    moderationListener.pipeline().shutdown(10, TimeUnit.SECONDS);
+                    MessageAnalysisCache.CacheStats analysis = analysisCache.stats();
+                    System.out.println("[MODERATION] Analysis cache hits=" + analysis.hits()
+                            + ", misses=" + analysis.misses()
+                            + ", evictions=" + analysis.evictions()
+                            + ", size=" + analysis.size() + ".");
+                    wordMemoryStore.close(Duration.ofSeconds(5));
+                },
+                "moderation-shutdown"
+        ));
 
         JDA jda = JDABuilder.createDefault(config.discordToken())
                 .enableIntents(List.of(
@@ -46,7 +100,7 @@ public final class BotLauncher {
                 .setMemberCachePolicy(MemberCachePolicy.ONLINE)
                 .addEventListeners(
                         new MemberJoinListener(config, templateService),
-                        new MessageModerationListener(config, wordMemoryStore, textNormalizer),
+                        moderationListener,
                         new SlashCommandListener(config, faqService, templateService)
                 )
                 .build();
@@ -55,4 +109,22 @@ public final class BotLauncher {
         scanService.start(jda);
         new ActivePlayersServer(config).start(jda);
     }
+
+    private static ModerationRuleWatcher startRuleWatcher(BotConfig config, ModerationRules rules) {
+        if (config.modRulesFile() == null || config.modRulesFile().isBlank()) {
+            return null;
+        }
+        ModerationRuleWatcher watcher = new ModerationRuleWatcher(
+                Paths.get(config.modRulesFile().trim()),
+                rules,
+                RuleSet.Definition.fromConfig(config)
+        );
+        try {
+            watcher.start();
+            return watcher;
+        } catch (IOException error) {
+            System.err.println("[MODERATION] Rule hot reload disabled: " + error.getMessage());
+            return null;
+        }
+    }
 }
@@ -5,6 +5,7 @@ import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 import java.util.stream.Collectors;
@@ -27,14 +28,47 @@ public record BotConfig(
         int activePlayersWebPort,
         String activePlayersWebToken,
         String wordMemoryPath,
+        boolean wordMemoryWriteBehind,
+        int wordMemoryQueueCapacity,
+        int wordMemoryFlushBatchSize,
+        int wordMemoryFlushMillis,
+        boolean wordMemoryFsync,
+        int wordMemorySnapshotMinutes,
+        int wordMemoryRecentMessages,
+        boolean wordMemoryCompressMessages,
         int modWarnThreshold,
         int modDeleteThreshold,
         int modEscalateThreshold,
         String modEscalationChannelId,
         java.util.Map<String, Integer> channelRiskProfiles,
+        int modKeywordBurstThreshold,
+        int modKeywordBurstMinutes,
+        int modTokenFloodThreshold,
+        int modTokenFloodMinutes,
         boolean llmClassificationEnabled,
         boolean llmDebugEnabled,
-        String llmEndpointUrl
+        String llmEndpointUrl,
+        boolean llmShortCircuitEnabled,
+        int llmShortMessageLength,
+        int llmCacheSize,
+        Duration llmCacheTtl,
+        boolean llmBatchEnabled,
+        int llmBatchMaxSize,
+        int llmBatchMaxDelayMillis,
+        int llmBreakerFailureThreshold,
+        Duration llmBreakerOpenDuration,
+        int llmSlowCallMillis,
+        int llmTimeoutMinMillis,
+        int llmTimeoutMaxMillis,
+        int modPipelineWorkers,
+        int modPipelineQueueCapacity,
+        boolean modPipelineDropWhenFull,
+        int modPipelineAdmitTimeoutMillis,
+        boolean modPipelineVirtualThreads,
+        int modAnalysisCacheSize,
+        String modRulesFile,
+        int modParallelMatchLength,
+        int modParallelMatchThreads
 ) {
     private static final Pattern ENV_KEY_PATTERN = Pattern.compile("[A-Z0-9_]+");
     private static final Dotenv DOTENV = Dotenv.configure().ignoreIfMissing().load();
@@ -42,55 +76,102 @@ public record BotConfig(
     private static final String DEFAULT_ACTIVE_PLAYERS_CHANNEL_ID = "1459232504711217213";
 
     public static BotConfig fromEnvironment() {
-        String token = getRequiredEnv("DISCORD_TOKEN");
+        return fromEnvironment(BotConfig::getEnv);
+    }
+
+    // Reads every setting through env, so tests can build a config without the process environment.
+    public static BotConfig fromEnvironment(Function<String, String> env) {
+        String token = getRequiredEnv(env, "DISCORD_TOKEN");
 
         return new BotConfig(
                 token,
-                getOptionalEnv("GUILD_ID"),
-                getOptionalEnv("WELCOME_CHANNEL_ID"),
-                getOptionalEnv("MOD_LOG_CHANNEL_ID"),
+                getOptionalEnv(env, "GUILD_ID"),
+                getOptionalEnv(env, "WELCOME_CHANNEL_ID"),
+                getOptionalEnv(env, "MOD_LOG_CHANNEL_ID"),
                 resolveChannelId(
-                        getOptionalEnv("ACTIVE_PLAYERS_CHANNEL_ID"),
-                        getOptionalEnv("MOD_LOG_CHANNEL_ID"),
+                        getOptionalEnv(env, "ACTIVE_PLAYERS_CHANNEL_ID"),
+                        getOptionalEnv(env, "MOD_LOG_CHANNEL_ID"),
                         DEFAULT_ACTIVE_PLAYERS_CHANNEL_ID
                 ),
-                getOptionalEnv("STAFF_ROLE_ID"),
-                getOptionalEnv("EVENT_PING_ROLE_ID"),
-                getOptionalEnv("RULES_LINK"),
-                getOptionalEnv("GROUP_LINK"),
-                getOptionalEnv("SUPPORT_LINK"),
-                parseScanChannelIds(getOptionalEnv("MOD_SCAN_CHANNEL_IDS")),
+                getOptionalEnv(env, "STAFF_ROLE_ID"),
+                getOptionalEnv(env, "EVENT_PING_ROLE_ID"),
+                getOptionalEnv(env, "RULES_LINK"),
+                getOptionalEnv(env, "GROUP_LINK"),
+                getOptionalEnv(env, "SUPPORT_LINK"),
+                parseScanChannelIds(getOptionalEnv(env, "MOD_SCAN_CHANNEL_IDS")),
 
                 // Keywords (String-based)
                 parseListOrDefault(
-                        getOptionalEnv("MOD_SCAN_KEYWORDS"),
+                        getOptionalEnv(env, "MOD_SCAN_KEYWORDS"),
                         defaultKeywords()
                 ),
 
                 // Regex patterns (Pattern-based)
                 parsePatternsOrDefault(
-                        getOptionalEnv("MOD_BLOCKED_PATTERNS"),
+                        getOptionalEnv(env, "MOD_BLOCKED_PATTERNS"),
                         defaultBlockedPatterns()
                 ),
 
                 parseDurationSeconds(
-                        getOptionalEnv("MOD_SCAN_INTERVAL_SECONDS"),
+                        getOptionalEnv(env, "MOD_SCAN_INTERVAL_SECONDS"),
                         5
                 ),
                 parsePort(
-                        getOptionalEnv("ACTIVE_PLAYERS_WEB_PORT"),
+                        getOptionalEnv(env, "ACTIVE_PLAYERS_WEB_PORT"),
                         8123
                 ),
-                getOptionalEnv("ACTIVE_PLAYERS_WEB_TOKEN"),
-                resolveWordMemoryPath(getOptionalEnv("WORD_MEMORY_PATH")),
-                parseIntOrDefault(getOptionalEnv("MOD_WARN_THRESHOLD"), 35),
-                parseIntOrDefault(getOptionalEnv("MOD_DELETE_THRESHOLD"), 60),
-                parseIntOrDefault(getOptionalEnv("MOD_ESCALATE_THRESHOLD"), 80),
-                getOptionalEnv("MOD_ESCALATION_CHANNEL_ID"),
-                parseChannelRiskProfiles(getOptionalEnv("MOD_CHANNEL_RISK_SCORES")),
-                parseBooleanOrDefault(getOptionalEnv("LLM_CLASSIFICATION_ENABLED"), false),
-                parseBooleanOrDefault(getOptionalEnv("LLM_DEBUG_ENABLED"), false),
-                getOptionalEnv("LLM_ENDPOINT_URL")
+                getOptionalEnv(env, "ACTIVE_PLAYERS_WEB_TOKEN"),
+                resolveWordMemoryPath(getOptionalEnv(env, "WORD_MEMORY_PATH")),
+                // Opt-in: queued events are lost if the process dies before they are flushed.
+                parseBooleanOrDefault(getOptionalEnv(env, "WORD_MEMORY_WRITE_BEHIND"), false),
+                Math.max(1, parseIntOrDefault(getOptionalEnv(env, "WORD_MEMORY_QUEUE_CAPACITY"), 10000)),
+                Math.max(1, parseIntOrDefault(getOptionalEnv(env, "WORD_MEMORY_FLUSH_BATCH_SIZE"), 256)),
+                Math.max(0, parseIntOrDefault(getOptionalEnv(env, "WORD_MEMORY_FLUSH_MS"), 50)),
+                parseBooleanOrDefault(getOptionalEnv(env, "WORD_MEMORY_FSYNC"), false),
+                Math.max(0, parseIntOrDefault(getOptionalEnv(env, "WORD_MEMORY_SNAPSHOT_MINUTES"), 10)),
+                Math.max(1, parseIntOrDefault(getOptionalEnv(env, "WORD_MEMORY_RECENT_MESSAGES"), 20)),
+                parseBooleanOrDefault(getOptionalEnv(env, "WORD_MEMORY_COMPRESS_MESSAGES"), false),
+                parseIntOrDefault(getOptionalEnv(env, "MOD_WARN_THRESHOLD"), 35),
+                parseIntOrDefault(getOptionalEnv(env, "MOD_DELETE_THRESHOLD"), 60),
+                parseIntOrDefault(getOptionalEnv(env, "MOD_ESCALATE_THRESHOLD"), 80),
+                getOptionalEnv(env, "MOD_ESCALATION_CHANNEL_ID"),
+                parseChannelRiskProfiles(getOptionalEnv(env, "MOD_CHANNEL_RISK_SCORES")),
+                // Both history terms are off (0) unless configured; flood counts include bigrams,
+                // so a threshold of N is roughly N/2 words in the window.
+                Math.max(0, parseIntOrDefault(getOptionalEnv(env, "MOD_KEYWORD_BURST_THRESHOLD"), 0)),
+                Math.max(1, parseIntOrDefault(getOptionalEnv(env, "MOD_KEYWORD_BURST_MINUTES"), 10)),
+                Math.max(0, parseIntOrDefault(getOptionalEnv(env, "MOD_TOKEN_FLOOD_THRESHOLD"), 0)),
+                Math.max(1, parseIntOrDefault(getOptionalEnv(env, "MOD_TOKEN_FLOOD_MINUTES"), 60)),
+                parseBooleanOrDefault(getOptionalEnv(env, "LLM_CLASSIFICATION_ENABLED"), false),
+                parseBooleanOrDefault(getOptionalEnv(env, "LLM_DEBUG_ENABLED"), false),
+                getOptionalEnv(env, "LLM_ENDPOINT_URL"),
+                parseBooleanOrDefault(getOptionalEnv(env, "LLM_SHORT_CIRCUIT_ENABLED"), true),
+                Math.max(0, parseIntOrDefault(getOptionalEnv(env, "LLM_SHORT_MESSAGE_LENGTH"), 12)),
+                Math.max(0, parseIntOrDefault(getOptionalEnv(env, "LLM_CACHE_SIZE"), 2000)),
+                parseDurationSeconds(getOptionalEnv(env, "LLM_CACHE_TTL_SECONDS"), 300),
+                parseBooleanOrDefault(getOptionalEnv(env, "LLM_BATCH_ENABLED"), false),
+                Math.max(1, parseIntOrDefault(getOptionalEnv(env, "LLM_BATCH_MAX_SIZE"), 16)),
+                Math.max(0, parseIntOrDefault(getOptionalEnv(env, "LLM_BATCH_MAX_DELAY_MS"), 5)),
+                Math.max(1, parseIntOrDefault(getOptionalEnv(env, "LLM_BREAKER_FAILURE_THRESHOLD"), 5)),
+                parseDurationSeconds(getOptionalEnv(env, "LLM_BREAKER_OPEN_SECONDS"), 30),
+                Math.max(1, parseIntOrDefault(getOptionalEnv(env, "LLM_SLOW_CALL_MS"), 2000)),
+                Math.max(1, parseIntOrDefault(getOptionalEnv(env, "LLM_TIMEOUT_MIN_MS"), 500)),
+                Math.max(1, parseIntOrDefault(getOptionalEnv(env, "LLM_TIMEOUT_MAX_MS"), 5000)),
+                Math.max(1, parseIntOrDefault(
+                        getOptionalEnv(env, "MOD_PIPELINE_WORKERS"),
+                        Math.max(2, Runtime.getRuntime().availableProcessors())
+                )),
+                Math.max(1, parseIntOrDefault(getOptionalEnv(env, "MOD_PIPELINE_QUEUE_CAPACITY"), 500)),
+                parseBooleanOrDefault(getOptionalEnv(env, "MOD_PIPELINE_DROP_WHEN_FULL"), false),
+                Math.max(0, parseIntOrDefault(getOptionalEnv(env, "MOD_PIPELINE_ADMIT_TIMEOUT_MS"), 100)),
+                parseBooleanOrDefault(getOptionalEnv(env, "MOD_PIPELINE_VIRTUAL_THREADS"), false),
+                Math.max(0, parseIntOrDefault(getOptionalEnv(env, "MOD_ANALYSIS_CACHE_SIZE"), 1024)),
+                getOptionalEnv(env, "MOD_RULES_FILE"),
+                Math.max(0, parseIntOrDefault(getOptionalEnv(env, "MOD_PARALLEL_MATCH_LENGTH"), 1500)),
+                Math.max(1, parseIntOrDefault(
+                        getOptionalEnv(env, "MOD_PARALLEL_MATCH_THREADS"),
+                        Runtime.getRuntime().availableProcessors()
+                ))
         );
     }
 
@@ -161,8 +242,8 @@ public record BotConfig(
     }
 
 
-    private static String getRequiredEnv(String key) {
-        String value = getEnv(key);
+    private static String getRequiredEnv(Function<String, String> env, String key) {
+        String value = env.apply(key);
         if (value == null || value.isBlank()) {
             String safeKey = ENV_KEY_PATTERN.matcher(key).matches()
                     ? key
@@ -172,8 +253,8 @@ public record BotConfig(
         return value;
     }
 
-    private static String getOptionalEnv(String key) {
-        return getEnv(key);
+    private static String getOptionalEnv(Function<String, String> env, String key) {
+        return env.apply(key);
     }
 
     private static String getEnv(String key) {
@@ -404,7 +485,7 @@ public record BotConfig(
         );
     }
 
-    private static List<Pattern> defaultBlockedPatterns() {
+    static List<Pattern> defaultBlockedPatterns() {
         return List.of(
 
                 // =====================================
@@ -2,10 +2,15 @@ package com.vrctool.bot.listener;
 
 import com.vrctool.bot.config.BotConfig;
 import com.vrctool.bot.service.LlmHttpClient;
+import com.vrctool.bot.service.MessageAnalysisCache;
 import com.vrctool.bot.service.ModerationDecisionEngine;
+import com.vrctool.bot.service.ModerationPipeline;
+import com.vrctool.bot.service.ModerationRules;
 import com.vrctool.bot.service.WordMemoryStore;
-import com.vrctool.bot.util.TextNormalizer;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.Message;
@@ -15,20 +20,38 @@ import net.dv8tion.jda.api.hooks.ListenerAdapter;
 
 public class MessageModerationListener extends ListenerAdapter {
     private final BotConfig config;
-    private final ModerationDecisionEngine decisionEngine;
-    private final WordMemoryStore wordMemoryStore;
-    private final TextNormalizer textNormalizer;
+    private final ModerationPipeline pipeline;
+    private static final Duration OVER_BUDGET_ALERT_INTERVAL = Duration.ofHours(1);
 
-    public MessageModerationListener(BotConfig config, WordMemoryStore wordMemoryStore, TextNormalizer textNormalizer) {
+    private record OverBudgetAlert(long ruleSetVersion, Instant sentAt) {}
+
+    // Last budget alert per pattern: repeated once per interval, and again after a rule reload.
+    private final Map<String, OverBudgetAlert> overBudgetAlerts = new ConcurrentHashMap<>();
+
+    public MessageModerationListener(
+            BotConfig config,
+            WordMemoryStore wordMemoryStore,
+            ModerationRules rules,
+            MessageAnalysisCache analysisCache
+    ) {
         this.config = config;
-        this.wordMemoryStore = wordMemoryStore;
-        this.textNormalizer = textNormalizer;
-        this.decisionEngine = new ModerationDecisionEngine(
+        ModerationDecisionEngine decisionEngine = new ModerationDecisionEngine(
                 config,
                 wordMemoryStore,
-                textNormalizer,
+                rules,
+                analysisCache,
                 new LlmHttpClient(config)
         );
+        this.pipeline = new ModerationPipeline(
+                config,
+                decisionEngine,
+                wordMemoryStore,
+                this::applyDecision
+        );
+    }
+
+    public ModerationPipeline pipeline() {
+        return pipeline;
     }
 
     @Override
@@ -43,33 +66,52 @@ public class MessageModerationListener extends ListenerAdapter {
             return;
         }
 
-        String content = textNormalizer.normalize(message.getContentDisplay());
-        wordMemoryStore.recordMessage(
-                event.getGuild().getId(),
-                event.getChannel().getId(),
-                member.getId(),
-                content,
-                message.getTimeCreated().toInstant()
-        );
-        ModerationDecisionEngine.Decision decision = decisionEngine.evaluate(message, member, event.getChannel());
+        pipeline.submit(message, member, event.getChannel());
+    }
+
+    private void applyDecision(
+            Message message,
+            Member member,
+            MessageChannel channel,
+            ModerationDecisionEngine.Decision decision
+    ) {
+        if (shouldAlertOverBudget(decision.context())) {
+            logOverBudgetPattern(channel, member, decision.context());
+        }
         switch (decision.action()) {
             case DELETE -> {
                 message.delete().queue();
-                sendDeleteNotice(event.getChannel(), member, decision.context());
-                logModerationAction(event.getChannel(), member, decision);
+                sendDeleteNotice(channel, member, decision.context());
+                logModerationAction(channel, member, decision);
             }
             case WARN -> {
-                sendWarning(event.getChannel(), member, decision.context());
-                logModerationAction(event.getChannel(), member, decision);
+                sendWarning(channel, member, decision.context());
+                logModerationAction(channel, member, decision);
             }
             case ESCALATE_TO_MODS -> {
-                logEscalation(event.getChannel(), member, decision);
+                logEscalation(channel, member, decision);
             }
             case ALLOW -> {
             }
         }
     }
 
+    private boolean shouldAlertOverBudget(ModerationDecisionEngine.DecisionContext context) {
+        String pattern = context.overBudgetPattern();
+        if (pattern == null) {
+            return false;
+        }
+        Instant now = Instant.now();
+        OverBudgetAlert next = new OverBudgetAlert(context.ruleSetVersion(), now);
+        OverBudgetAlert previous = overBudgetAlerts.get(pattern);
+        if (previous == null) {
+            return overBudgetAlerts.putIfAbsent(pattern, next) == null;
+        }
+        boolean due = previous.ruleSetVersion() != context.ruleSetVersion()
+                || previous.sentAt().plus(OVER_BUDGET_ALERT_INTERVAL).isBefore(now);
+        return due && overBudgetAlerts.replace(pattern, previous, next);
+    }
+
     private boolean isStaff(Member member) {
         if (config.staffRoleId() == null) {
             return member.hasPermission(net.dv8tion.jda.api.Permission.MESSAGE_MANAGE);
@@ -118,13 +160,16 @@ public class MessageModerationListener extends ListenerAdapter {
                         context.linkCount(),
                         context.uppercaseRatio() * 100
                 ), true)
-                .addField("History (recent matches/total tokens)", String.format(
-                        "%d / %d",
+                .addField("History (matches recent/burst, tokens total/flood window)", String.format(
+                        "%d / %d, %d / %d",
                         context.recentKeywordMatches(),
-                        context.totalRecentTokens()
+                        context.burstKeywordMatches(),
+                        context.totalRecentTokens(),
+                        context.floodWindowTokens()
                 ), true)
                 .setTimestamp(Instant.now())
                 .setColor(0xEF4444);
+        addOverBudgetField(builder, context);
         modChannel.sendMessageEmbeds(builder.build()).queue();
     }
 
@@ -171,13 +216,16 @@ public class MessageModerationListener extends ListenerAdapter {
                         context.linkCount(),
                         context.uppercaseRatio() * 100
                 ), true)
-                .addField("History (recent matches/total tokens)", String.format(
-                        "%d / %d",
+                .addField("History (matches recent/burst, tokens total/flood window)", String.format(
+                        "%d / %d, %d / %d",
                         context.recentKeywordMatches(),
-                        context.totalRecentTokens()
+                        context.burstKeywordMatches(),
+                        context.totalRecentTokens(),
+                        context.floodWindowTokens()
                 ), true)
                 .setTimestamp(Instant.now())
                 .setColor(0xE11D48);
+        addOverBudgetField(builder, context);
         if (modChannel != null) {
             modChannel.sendMessageEmbeds(builder.build()).queue();
         }
@@ -186,6 +234,34 @@ public class MessageModerationListener extends ListenerAdapter {
         }
     }
 
+    private void logOverBudgetPattern(
+            MessageChannel origin,
+            Member member,
+            ModerationDecisionEngine.DecisionContext context
+    ) {
+        MessageChannel modChannel = resolveModLogChannel(origin);
+        if (modChannel == null) {
+            return;
+        }
+        EmbedBuilder builder = new EmbedBuilder()
+                .setTitle("Blocked pattern exceeded its match budget")
+                .setDescription("The pattern could not finish on this message, which was sent for manual "
+                        + "review. It may be backtracking catastrophically. Review MOD_BLOCKED_PATTERNS.")
+                .addField("Pattern", context.overBudgetPattern(), false)
+                .addField("Member", member.getUser().getAsTag(), true)
+                .addField("Channel", origin.getAsMention(), true)
+                .addField("Message length", String.valueOf(context.messageLength()), true)
+                .setTimestamp(Instant.now())
+                .setColor(0xF59E0B);
+        modChannel.sendMessageEmbeds(builder.build()).queue();
+    }
+
+    private void addOverBudgetField(EmbedBuilder builder, ModerationDecisionEngine.DecisionContext context) {
+        if (context.overBudgetPattern() != null) {
+            builder.addField("Pattern over match budget (skipped)", context.overBudgetPattern(), false);
+        }
+    }
+
     private void sendWarning(
             MessageChannel origin,
             Member member,
@@ -2,20 +2,26 @@ package com.vrctool.bot.service;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vrctool.bot.util.NormalizedTokens;
+import com.vrctool.bot.util.TextNormalizer;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.TreeSet;
-import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class FaqService {
+    private static final TextNormalizer TOKENIZER = new TextNormalizer(Map.of(), TextNormalizer.MorphologyMode.NONE);
+
     private final List<FaqEntry> entries;
+    // Entry tokens are fixed, so they are computed once instead of on every query.
+    private final List<Set<String>> entryTokens;
 
     public FaqService(String resourcePath) {
         ObjectMapper mapper = new ObjectMapper();
@@ -27,6 +33,9 @@ public class FaqService {
         } catch (IOException ex) {
             throw new IllegalStateException("Failed to load FAQ entries", ex);
         }
+        entryTokens = entries.stream()
+                .map(entry -> tokenize(entry.topic() + " " + entry.title() + " " + entry.description()))
+                .toList();
     }
 
     public List<FaqEntry> entries() {
@@ -47,9 +56,7 @@ public class FaqService {
         if (query == null || query.isBlank()) {
             return Optional.empty();
         }
-        return entries.stream()
-                .map(entry -> new ScoredEntry(entry, scoreEntry(entry, query)))
-                .filter(scored -> scored.score() > 0)
+        return score(query).stream()
                 .max(Comparator.comparingDouble(ScoredEntry::score))
                 .map(ScoredEntry::entry);
     }
@@ -58,34 +65,51 @@ public class FaqService {
         if (query == null || query.isBlank()) {
             return List.of();
         }
-        return entries.stream()
-                .map(entry -> new ScoredEntry(entry, scoreEntry(entry, query)))
-                .filter(scored -> scored.score() > 0)
+        return score(query).stream()
                 .sorted(Comparator.comparingDouble(ScoredEntry::score).reversed())
                 .limit(limit)
                 .map(scored -> scored.entry().topic())
                 .toList();
     }
 
-    private double scoreEntry(FaqEntry entry, String query) {
+    // The query is tokenized once and scored against every entry's precomputed tokens.
+    private List<ScoredEntry> score(String query) {
         String normalizedQuery = query.toLowerCase(Locale.ROOT);
+        Set<String> queryTokens = tokenize(query);
+        return IntStream.range(0, entries.size())
+                .mapToObj(index -> new ScoredEntry(
+                        entries.get(index),
+                        scoreEntry(entries.get(index), entryTokens.get(index), normalizedQuery, queryTokens)
+                ))
+                .filter(scored -> scored.score() > 0)
+                .toList();
+    }
+
+    private static double scoreEntry(
+            FaqEntry entry,
+            Set<String> entryTokens,
+            String normalizedQuery,
+            Set<String> queryTokens
+    ) {
         if (entry.topic().equalsIgnoreCase(normalizedQuery)) {
             return 1.5d;
         }
-        Set<String> queryTokens = tokenize(normalizedQuery);
         if (queryTokens.isEmpty()) {
             return 0d;
         }
-        Set<String> entryTokens = tokenize(entry.topic() + " " + entry.title() + " " + entry.description());
         long matches = queryTokens.stream().filter(entryTokens::contains).count();
         return (double) matches / queryTokens.size();
     }
 
-    private Set<String> tokenize(String input) {
-        return Arrays.stream(input.split("[^a-z0-9]+"))
-                .map(String::trim)
-                .filter(token -> token.length() > 2)
-                .collect(Collectors.toCollection(TreeSet::new));
+    private static Set<String> tokenize(String input) {
+        NormalizedTokens tokens = TOKENIZER.normalizeInto(input, new NormalizedTokens());
+        Set<String> results = new HashSet<>();
+        for (int index = 0; index < tokens.size(); index++) {
+            if (tokens.tokenLength(index) > 2) {
+                results.add(tokens.token(index));
+            }
+        }
+        return results;
     }
 
     private record ScoredEntry(FaqEntry entry, double score) {}
@@ -0,0 +1,141 @@
+package com.vrctool.bot.service;
+
+import java.util.Arrays;
+
+// Open-addressing int -> int counter with linear probing. Keys and counts are
+// interleaved in a single array ([id + 1, count] per slot, 0 = empty) so a
+// reader that grabs the array reference always sees a matching pair layout,
+// even while a writer resizes; callers validate such racy reads with the
+// owning stripe's stamp. Removal uses backward-shift deletion, so there are no
+// tombstones to clean up. Not thread-safe for writers.
+final class IntCountTable {
+    private static final int MIN_CAPACITY = 8;
+
+    private int[] slots;
+    private int size;
+
+    IntCountTable() {
+        this.slots = new int[MIN_CAPACITY * 2];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int get(int key) {
+        int[] table = slots;
+        int capacity = table.length >>> 1;
+        int stored = key + 1;
+        int slot = mix(key) & (capacity - 1);
+        for (int probe = 0; probe < capacity; probe++) {
+            int current = table[slot << 1];
+            if (current == stored) {
+                return table[(slot << 1) + 1];
+            }
+            if (current == 0) {
+                return 0;
+            }
+            slot = (slot + 1) & (capacity - 1);
+        }
+        return 0;
+    }
+
+    // Adds delta to the key's count and removes the key once it drops to zero or below.
+    int add(int key, int delta) {
+        int capacity = slots.length >>> 1;
+        int stored = key + 1;
+        int slot = mix(key) & (capacity - 1);
+        while (true) {
+            int current = slots[slot << 1];
+            if (current == stored) {
+                int updated = slots[(slot << 1) + 1] + delta;
+                if (updated <= 0) {
+                    removeAt(slot);
+                    return 0;
+                }
+                slots[(slot << 1) + 1] = updated;
+                return updated;
+            }
+            if (current == 0) {
+                if (delta <= 0) {
+                    return 0;
+                }
+                if ((size + 1) * 4 > capacity * 3) {
+                    resize(capacity * 2);
+                    return add(key, delta);
+                }
+                slots[(slot << 1) + 1] = delta;
+                slots[slot << 1] = stored;
+                size++;
+                return delta;
+            }
+            slot = (slot + 1) & (capacity - 1);
+        }
+    }
+
+    void clear() {
+        if (size > 0) {
+            Arrays.fill(slots, 0);
+            size = 0;
+        }
+    }
+
+    // Returns [key, count] pairs.
+    int[] entries() {
+        int[] result = new int[size * 2];
+        int index = 0;
+        for (int slot = 0; slot < slots.length; slot += 2) {
+            if (slots[slot] != 0 && index < result.length) {
+                result[index++] = slots[slot] - 1;
+                result[index++] = slots[slot + 1];
+            }
+        }
+        return index == result.length ? result : Arrays.copyOf(result, index);
+    }
+
+    private void removeAt(int removed) {
+        int capacity = slots.length >>> 1;
+        int gap = removed;
+        int slot = (gap + 1) & (capacity - 1);
+        while (slots[slot << 1] != 0) {
+            int home = mix(slots[slot << 1] - 1) & (capacity - 1);
+            // Shift the entry back into the gap unless its home lies cyclically in (gap, slot].
+            if (((slot - home) & (capacity - 1)) >= ((slot - gap) & (capacity - 1))) {
+                slots[gap << 1] = slots[slot << 1];
+                slots[(gap << 1) + 1] = slots[(slot << 1) + 1];
+                gap = slot;
+            }
+            slot = (slot + 1) & (capacity - 1);
+        }
+        slots[gap << 1] = 0;
+        slots[(gap << 1) + 1] = 0;
+        size--;
+    }
+
+    private void resize(int capacity) {
+        int[] previous = slots;
+        int[] table = new int[capacity * 2];
+        for (int index = 0; index < previous.length; index += 2) {
+            int stored = previous[index];
+            if (stored == 0) {
+                continue;
+            }
+            int slot = mix(stored - 1) & (capacity - 1);
+            while (table[slot << 1] != 0) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            table[slot << 1] = stored;
+            table[(slot << 1) + 1] = previous[index + 1];
+        }
+        slots = table;
+    }
+
+    private static int mix(int key) {
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,187 @@
+package com.vrctool.bot.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+public class LlmBatchClassifier {
+    private record PendingRequest(String content, CompletableFuture<LlmClient.LlmClassification> result) {}
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final URI endpoint;
+    private final LlmCircuitBreaker circuitBreaker;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final ScheduledExecutorService scheduler;
+    private List<PendingRequest> pending;
+    private ScheduledFuture<?> scheduledFlush;
+    private boolean closed;
+
+    public LlmBatchClassifier(
+            HttpClient httpClient,
+            ObjectMapper objectMapper,
+            URI endpoint,
+            LlmCircuitBreaker circuitBreaker,
+            int maxBatchSize,
+            Duration maxDelay
+    ) {
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.endpoint = endpoint;
+        this.circuitBreaker = circuitBreaker;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxDelayNanos = Math.max(0, maxDelay.toNanos());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "llm-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.pending = new ArrayList<>();
+    }
+
+    public CompletableFuture<LlmClient.LlmClassification> classify(String content) {
+        PendingRequest request = new PendingRequest(content, new CompletableFuture<>());
+        List<PendingRequest> ready = null;
+        synchronized (this) {
+            pending.add(request);
+            // Once shut down nothing would flush a partial batch, so send right away.
+            if (pending.size() >= maxBatchSize || closed) {
+                ready = takePending();
+            } else if (pending.size() == 1) {
+                scheduledFlush = scheduler.schedule(this::flush, maxDelayNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (ready != null) {
+            send(ready);
+        }
+        return request.result();
+    }
+
+    public void shutdown() {
+        synchronized (this) {
+            closed = true;
+        }
+        flush();
+        scheduler.shutdown();
+    }
+
+    private void flush() {
+        List<PendingRequest> ready;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            ready = takePending();
+        }
+        send(ready);
+    }
+
+    private List<PendingRequest> takePending() {
+        List<PendingRequest> ready = pending;
+        pending = new ArrayList<>();
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        return ready;
+    }
+
+    // One breaker admission and one outcome per POST, however many messages it carries.
+    private void send(List<PendingRequest> batch) {
+        LlmCircuitBreaker.Permit permit = circuitBreaker.tryAcquire();
+        if (permit == null) {
+            failAll(batch, new LlmHttpClient.LlmUnavailableException(LlmHttpClient.CIRCUIT_OPEN_NOTE));
+            return;
+        }
+        Duration timeout = circuitBreaker.currentTimeout();
+        HttpRequest request;
+        try {
+            ArrayNode payload = objectMapper.createArrayNode();
+            for (PendingRequest pendingRequest : batch) {
+                payload.add(LlmHttpClient.buildRequestNode(objectMapper, pendingRequest.content()));
+            }
+            request = HttpRequest.newBuilder()
+                    .uri(endpoint)
+                    .timeout(timeout)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(payload)))
+                    .build();
+        } catch (IOException | IllegalArgumentException error) {
+            circuitBreaker.recordFailure(permit);
+            failAll(batch, new LlmHttpClient.LlmUnavailableException("LLM request failed; using rules."));
+            return;
+        }
+        long startedAt = System.nanoTime();
+        // The breaker hears the outcome before any caller sees its result.
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, error) -> {
+                    if (error != null) {
+                        LlmHttpClient.recordOutcome(circuitBreaker, permit, startedAt, timeout, error);
+                        failAll(batch, error);
+                        return;
+                    }
+                    JsonNode results;
+                    try {
+                        results = readResults(response);
+                    } catch (LlmHttpClient.LlmUnavailableException failure) {
+                        circuitBreaker.recordFailure(permit);
+                        failAll(batch, failure);
+                        return;
+                    }
+                    circuitBreaker.recordSuccess(permit, System.nanoTime() - startedAt);
+                    demultiplex(batch, results);
+                });
+    }
+
+    private JsonNode readResults(HttpResponse<String> response) {
+        if (response.statusCode() < 200 || response.statusCode() >= 300) {
+            throw new LlmHttpClient.LlmUnavailableException(
+                    "LLM HTTP status " + response.statusCode() + "; using rules."
+            );
+        }
+        try {
+            JsonNode root = objectMapper.readTree(response.body());
+            return root.isArray() ? root : root.path("results");
+        } catch (IOException error) {
+            throw new LlmHttpClient.LlmUnavailableException("LLM response unreadable; using rules.");
+        }
+    }
+
+    private static void demultiplex(List<PendingRequest> batch, JsonNode results) {
+        // Entries are matched by position; anything missing or malformed falls back to rules on its own.
+        for (int index = 0; index < batch.size(); index++) {
+            CompletableFuture<LlmClient.LlmClassification> result = batch.get(index).result();
+            if (!results.has(index)) {
+                result.completeExceptionally(new LlmHttpClient.LlmUnavailableException(
+                        "LLM batch response missing entry; using rules."
+                ));
+                continue;
+            }
+            try {
+                result.complete(LlmHttpClient.parseClassification(results.get(index)));
+            } catch (RuntimeException error) {
+                result.completeExceptionally(error);
+            }
+        }
+    }
+
+    private static void failAll(List<PendingRequest> batch, Throwable error) {
+        for (PendingRequest pendingRequest : batch) {
+            pendingRequest.result().completeExceptionally(error);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.vrctool.bot.service;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+public class LlmCircuitBreaker {
+    private static final int LATENCY_SAMPLES = 128;
+    private static final int MIN_SAMPLES_FOR_TIMEOUT = 20;
+    private static final int TIMEOUT_REFRESH_INTERVAL = 16;
+    private static final double TIMEOUT_PERCENTILE = 0.99;
+    private static final int TIMEOUT_HEADROOM = 2;
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    // Admission from tryAcquire. Only a permit from the breaker's current generation (no transition
+    // since it was issued) may change state, so a late reply to a request sent before the breaker
+    // opened cannot close it, and only the half-open probe can end the half-open period.
+    public record Permit(long generation, boolean probe) {}
+
+    public record BreakerStats(
+            State state,
+            long opened,
+            long halfOpened,
+            long closed,
+            long rejected,
+            int consecutiveFailures,
+            Duration currentTimeout
+    ) {}
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final long slowCallNanos;
+    private final long minTimeoutNanos;
+    private final long maxTimeoutNanos;
+    private final LongSupplier clock;
+    private final long[] latencies;
+    private final AtomicLong opened;
+    private final AtomicLong halfOpened;
+    private final AtomicLong closed;
+    private final AtomicLong rejected;
+    private State state;
+    private long generation;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    private boolean probeInFlight;
+    private int latencyCount;
+    private int latencyCursor;
+    private volatile long timeoutNanos;
+
+    public LlmCircuitBreaker(
+            int failureThreshold,
+            Duration openDuration,
+            Duration slowCallThreshold,
+            Duration minTimeout,
+            Duration maxTimeout
+    ) {
+        this(failureThreshold, openDuration, slowCallThreshold, minTimeout, maxTimeout, System::nanoTime);
+    }
+
+    LlmCircuitBreaker(
+            int failureThreshold,
+            Duration openDuration,
+            Duration slowCallThreshold,
+            Duration minTimeout,
+            Duration maxTimeout,
+            LongSupplier clock
+    ) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = openDuration.toNanos();
+        this.slowCallNanos = slowCallThreshold.toNanos();
+        this.minTimeoutNanos = minTimeout.toNanos();
+        this.maxTimeoutNanos = Math.max(minTimeoutNanos, maxTimeout.toNanos());
+        this.clock = clock;
+        this.latencies = new long[LATENCY_SAMPLES];
+        this.opened = new AtomicLong();
+        this.halfOpened = new AtomicLong();
+        this.closed = new AtomicLong();
+        this.rejected = new AtomicLong();
+        this.state = State.CLOSED;
+        this.timeoutNanos = maxTimeoutNanos;
+    }
+
+    // Returns null when the request must not be sent.
+    public synchronized Permit tryAcquire() {
+        if (state == State.OPEN && clock.getAsLong() - openedAtNanos >= openNanos) {
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.CLOSED) {
+            return new Permit(generation, false);
+        }
+        if (state == State.HALF_OPEN && !probeInFlight) {
+            probeInFlight = true;
+            return new Permit(generation, true);
+        }
+        rejected.incrementAndGet();
+        return null;
+    }
+
+    public synchronized void recordSuccess(Permit permit, long latencyNanos) {
+        recordLatency(latencyNanos);
+        if (latencyNanos > slowCallNanos) {
+            recordFailure(permit);
+            return;
+        }
+        if (permit.generation() != generation) {
+            return;
+        }
+        consecutiveFailures = 0;
+        if (permit.probe()) {
+            probeInFlight = false;
+            transition(State.CLOSED);
+        }
+    }
+
+    public synchronized void recordFailure(Permit permit) {
+        if (permit.generation() != generation) {
+            return;
+        }
+        consecutiveFailures++;
+        if (permit.probe()) {
+            probeInFlight = false;
+            transition(State.OPEN);
+        } else if (consecutiveFailures >= failureThreshold) {
+            transition(State.OPEN);
+        }
+    }
+
+    // A timed-out call still counts as a latency sample at the timeout it was given, so the
+    // percentile is not computed from successful calls alone.
+    public synchronized void recordTimeout(Permit permit, Duration timeout) {
+        recordLatency(timeout.toNanos());
+        recordFailure(permit);
+    }
+
+    public Duration currentTimeout() {
+        return Duration.ofNanos(timeoutNanos);
+    }
+
+    public synchronized BreakerStats stats() {
+        return new BreakerStats(
+                state,
+                opened.get(),
+                halfOpened.get(),
+                closed.get(),
+                rejected.get(),
+                consecutiveFailures,
+                currentTimeout()
+        );
+    }
+
+    private void transition(State next) {
+        State previous = state;
+        state = next;
+        generation++;
+        switch (next) {
+            case OPEN -> {
+                openedAtNanos = clock.getAsLong();
+                opened.incrementAndGet();
+            }
+            case HALF_OPEN -> halfOpened.incrementAndGet();
+            case CLOSED -> closed.incrementAndGet();
+        }
+        System.out.println("[LLM] Circuit breaker " + previous + " -> " + next
+                + " (consecutiveFailures=" + consecutiveFailures
+                + ", timeout=" + currentTimeout().toMillis() + "ms).");
+    }
+
+    private void recordLatency(long latencyNanos) {
+        latencies[latencyCursor] = latencyNanos;
+        latencyCursor = (latencyCursor + 1) % latencies.length;
+        latencyCount = Math.min(latencyCount + 1, latencies.length);
+        if (latencyCount >= MIN_SAMPLES_FOR_TIMEOUT && latencyCursor % TIMEOUT_REFRESH_INTERVAL == 0) {
+            long[] sorted = Arrays.copyOf(latencies, latencyCount);
+            Arrays.sort(sorted);
+            long percentile = sorted[(int) Math.ceil(TIMEOUT_PERCENTILE * sorted.length) - 1];
+            // Leave headroom over the observed tail so ordinary variance does not time out.
+            long target = percentile * TIMEOUT_HEADROOM;
+            timeoutNanos = Math.max(minTimeoutNanos, Math.min(maxTimeoutNanos, target));
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.vrctool.bot.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+public class LlmClassificationCache {
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    public record CacheStats(long hits, long misses, long evictions, int size) {}
+
+    private record Key(long high, long low) {}
+
+    private record Entry(CompletableFuture<LlmClient.LlmClassification> result, long expiresAtNanos) {}
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final Map<Key, Entry> entries;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong evictions;
+
+    public LlmClassificationCache(int maxEntries, Duration ttl) {
+        this(maxEntries, ttl, System::nanoTime);
+    }
+
+    LlmClassificationCache(int maxEntries, Duration ttl, LongSupplier clock) {
+        this.maxEntries = Math.max(0, maxEntries);
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.evictions = new AtomicLong();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > LlmClassificationCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public CompletableFuture<LlmClient.LlmClassification> get(
+            String content,
+            LlmClient.LlmRuleContext ruleContext,
+            Supplier<CompletableFuture<LlmClient.LlmClassification>> loader
+    ) {
+        if (maxEntries == 0 || ttlNanos <= 0) {
+            misses.incrementAndGet();
+            return loader.get();
+        }
+        Key key = keyOf(content, ruleContext);
+        Entry created;
+        synchronized (entries) {
+            long now = clock.getAsLong();
+            Entry existing = entries.get(key);
+            if (existing != null && existing.expiresAtNanos() - now > 0) {
+                hits.incrementAndGet();
+                return existing.result();
+            }
+            if (existing != null) {
+                entries.remove(key);
+                evictions.incrementAndGet();
+            }
+            misses.incrementAndGet();
+            // Later identical requests wait on this entry instead of starting their own call.
+            created = new Entry(new CompletableFuture<>(), now + ttlNanos);
+            entries.put(key, created);
+        }
+
+        CompletableFuture<LlmClient.LlmClassification> loaded;
+        try {
+            loaded = loader.get();
+        } catch (RuntimeException error) {
+            loaded = CompletableFuture.failedFuture(error);
+        }
+        loaded.whenComplete((classification, error) -> {
+            if (error != null) {
+                synchronized (entries) {
+                    entries.remove(key, created);
+                }
+                created.result().completeExceptionally(error);
+            } else {
+                created.result().complete(classification);
+            }
+        });
+        return created.result();
+    }
+
+    public CacheStats stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new CacheStats(hits.get(), misses.get(), evictions.get(), size);
+    }
+
+    private static Key keyOf(String content, LlmClient.LlmRuleContext ruleContext) {
+        String normalized = content == null
+                ? ""
+                : WHITESPACE.matcher(content.strip()).replaceAll(" ").toLowerCase(Locale.ROOT);
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException error) {
+            throw new IllegalStateException("SHA-256 unavailable", error);
+        }
+        digest.update(normalized.getBytes(StandardCharsets.UTF_8));
+        digest.update(contextBytes(ruleContext.matchedKeyword()));
+        digest.update(contextBytes(ruleContext.blockedPattern()));
+        ByteBuffer hash = ByteBuffer.wrap(digest.digest());
+        return new Key(hash.getLong(), hash.getLong());
+    }
+
+    private static byte[] contextBytes(String value) {
+        return value == null
+                ? new byte[] {0}
+                : ("\u0001" + value).getBytes(StandardCharsets.UTF_8);
+    }
+}
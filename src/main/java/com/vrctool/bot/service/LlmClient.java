@@ -1,5 +1,7 @@
 package com.vrctool.bot.service;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface LlmClient {
     enum RiskLevel {
         LOW,
@@ -12,4 +14,21 @@ public interface LlmClient {
     record LlmRuleContext(String matchedKeyword, String blockedPattern) {}
 
     LlmClassification classifyMessage(String content, LlmRuleContext ruleContext);
+
+    static LlmClassification classifyByRules(LlmRuleContext ruleContext) {
+        if (ruleContext.blockedPattern() != null) {
+            return new LlmClassification(RiskLevel.HIGH, "Blocked pattern matched.");
+        }
+        if (ruleContext.matchedKeyword() != null) {
+            return new LlmClassification(RiskLevel.MEDIUM, "Keyword match detected.");
+        }
+        return new LlmClassification(RiskLevel.LOW, "No rules matched.");
+    }
+
+    default CompletableFuture<LlmClassification> classifyMessageAsync(String content, LlmRuleContext ruleContext) {
+        return CompletableFuture.completedFuture(classifyMessage(content, ruleContext));
+    }
+
+    // Releases background resources; requests already handed out still complete.
+    default void close() {}
 }
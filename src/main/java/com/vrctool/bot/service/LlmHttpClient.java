@@ -9,15 +9,22 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
 import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class LlmHttpClient implements LlmClient {
     private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(2);
-    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(5);
+    static final String CIRCUIT_OPEN_NOTE = "LLM circuit open; using rules.";
 
     private final BotConfig config;
     private final HttpClient httpClient;
     private final ObjectMapper objectMapper;
+    private final LlmClassificationCache cache;
+    private final LlmBatchClassifier batchClassifier;
+    private final LlmCircuitBreaker circuitBreaker;
 
     public LlmHttpClient(BotConfig config) {
         this.config = config;
@@ -25,94 +32,215 @@ public class LlmHttpClient implements LlmClient {
                 .connectTimeout(CONNECT_TIMEOUT)
                 .build();
         this.objectMapper = new ObjectMapper();
+        this.cache = new LlmClassificationCache(config.llmCacheSize(), config.llmCacheTtl());
+        this.circuitBreaker = new LlmCircuitBreaker(
+                config.llmBreakerFailureThreshold(),
+                config.llmBreakerOpenDuration(),
+                Duration.ofMillis(config.llmSlowCallMillis()),
+                Duration.ofMillis(config.llmTimeoutMinMillis()),
+                Duration.ofMillis(config.llmTimeoutMaxMillis())
+        );
+        this.batchClassifier = createBatchClassifier(config, httpClient, objectMapper, circuitBreaker);
+    }
+
+    public LlmClassificationCache.CacheStats cacheStats() {
+        return cache.stats();
+    }
+
+    public LlmCircuitBreaker.BreakerStats breakerStats() {
+        return circuitBreaker.stats();
+    }
+
+    @Override
+    public void close() {
+        if (batchClassifier != null) {
+            batchClassifier.shutdown();
+        }
     }
 
     @Override
     public LlmClassification classifyMessage(String content, LlmRuleContext ruleContext) {
+        return classifyMessageAsync(content, ruleContext).join();
+    }
+
+    @Override
+    public CompletableFuture<LlmClassification> classifyMessageAsync(String content, LlmRuleContext ruleContext) {
         if (!config.llmClassificationEnabled()) {
             LlmClassification classification = new LlmClassification(RiskLevel.LOW, "LLM classification disabled.");
             logDecision("disabled", content, ruleContext, classification, "LLM classification disabled in config.");
-            return classification;
+            return CompletableFuture.completedFuture(classification);
         }
         String endpoint = config.llmEndpointUrl();
         if (endpoint == null || endpoint.isBlank()) {
-            LlmClassification classification = classifyByRules(ruleContext);
-            logDecision("rules", content, ruleContext, classification, "LLM endpoint not configured.");
-            return classification;
+            return CompletableFuture.completedFuture(
+                    fallbackToRules(content, ruleContext, "LLM endpoint not configured.")
+            );
+        }
+        // The cache runs the loader on this thread only when no identical entry exists.
+        AtomicBoolean requested = new AtomicBoolean();
+        CompletableFuture<LlmClassification> result = cache.get(content, ruleContext, () -> {
+            requested.set(true);
+            return guardedRequest(endpoint, content);
+        });
+        String source = requested.get() ? "llm" : "cache";
+        String note = requested.get()
+                ? "LLM response parsed."
+                : result.isDone()
+                        ? "Cached classification for an identical message."
+                        : "Waited on an in-flight request for an identical message.";
+        return result
+                .thenApply(classification -> {
+                    logDecision(source, content, ruleContext, classification, note);
+                    return classification;
+                })
+                .exceptionally(error -> fallbackToRules(content, ruleContext, describeFailure(error)));
+    }
+
+    private CompletableFuture<LlmClassification> guardedRequest(String endpoint, String content) {
+        if (batchClassifier != null) {
+            // The batcher guards each POST, so one failed batch counts as one breaker failure.
+            return batchClassifier.classify(content);
+        }
+        LlmCircuitBreaker.Permit permit = circuitBreaker.tryAcquire();
+        if (permit == null) {
+            return CompletableFuture.failedFuture(new LlmUnavailableException(CIRCUIT_OPEN_NOTE));
         }
+        Duration timeout = circuitBreaker.currentTimeout();
+        long startedAt = System.nanoTime();
+        return requestClassification(endpoint, content, timeout).whenComplete((classification, error) ->
+                recordOutcome(circuitBreaker, permit, startedAt, timeout, error)
+        );
+    }
+
+    private CompletableFuture<LlmClassification> requestClassification(String endpoint, String content, Duration timeout) {
+        HttpRequest request;
         try {
-            HttpRequest request = HttpRequest.newBuilder()
+            request = HttpRequest.newBuilder()
                     .uri(URI.create(endpoint))
-                    .timeout(REQUEST_TIMEOUT)
+                    .timeout(timeout)
                     .header("Content-Type", "application/json")
                     .POST(HttpRequest.BodyPublishers.ofString(buildRequestPayload(content)))
                     .build();
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            if (response.statusCode() < 200 || response.statusCode() >= 300) {
-                LlmClassification classification = classifyByRules(ruleContext);
-                logDecision(
-                        "rules",
-                        content,
-                        ruleContext,
-                        classification,
-                        "LLM HTTP status " + response.statusCode() + "; using rules."
-                );
-                return classification;
-            }
-            LlmDecision decision = parseResponse(response.body(), ruleContext);
-            logDecision(decision.source(), content, ruleContext, decision.classification(), decision.note());
-            return decision.classification();
-        } catch (InterruptedException error) {
-            Thread.currentThread().interrupt();
-            LlmClassification classification = classifyByRules(ruleContext);
-            logDecision("rules", content, ruleContext, classification, "LLM request interrupted; using rules.");
-            return classification;
         } catch (IOException | IllegalArgumentException error) {
-            LlmClassification classification = classifyByRules(ruleContext);
-            logDecision("rules", content, ruleContext, classification, "LLM request failed; using rules.");
-            return classification;
+            return CompletableFuture.failedFuture(new LlmUnavailableException("LLM request failed; using rules."));
+        }
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(this::handleResponse);
+    }
+
+    static void recordOutcome(
+            LlmCircuitBreaker circuitBreaker,
+            LlmCircuitBreaker.Permit permit,
+            long startedAt,
+            Duration timeout,
+            Throwable error
+    ) {
+        if (error == null) {
+            circuitBreaker.recordSuccess(permit, System.nanoTime() - startedAt);
+        } else if (unwrap(error) instanceof HttpTimeoutException) {
+            circuitBreaker.recordTimeout(permit, timeout);
+        } else {
+            circuitBreaker.recordFailure(permit);
         }
     }
 
+    private static LlmBatchClassifier createBatchClassifier(
+            BotConfig config,
+            HttpClient httpClient,
+            ObjectMapper objectMapper,
+            LlmCircuitBreaker circuitBreaker
+    ) {
+        String endpoint = config.llmEndpointUrl();
+        if (!config.llmBatchEnabled() || endpoint == null || endpoint.isBlank()) {
+            return null;
+        }
+        try {
+            return new LlmBatchClassifier(
+                    httpClient,
+                    objectMapper,
+                    URI.create(endpoint),
+                    circuitBreaker,
+                    config.llmBatchMaxSize(),
+                    Duration.ofMillis(config.llmBatchMaxDelayMillis())
+            );
+        } catch (IllegalArgumentException error) {
+            System.err.println("[LLM] Invalid LLM endpoint for batch mode; sending single requests.");
+            return null;
+        }
+    }
+
+    private LlmClassification handleResponse(HttpResponse<String> response) {
+        if (response.statusCode() < 200 || response.statusCode() >= 300) {
+            throw new LlmUnavailableException("LLM HTTP status " + response.statusCode() + "; using rules.");
+        }
+        try {
+            return parseResponse(response.body());
+        } catch (IOException error) {
+            throw new LlmUnavailableException("LLM response unreadable; using rules.");
+        }
+    }
+
+    private LlmClassification fallbackToRules(String content, LlmRuleContext ruleContext, String note) {
+        LlmClassification classification = LlmClient.classifyByRules(ruleContext);
+        if (CIRCUIT_OPEN_NOTE.equals(note)) {
+            classification = new LlmClassification(
+                    classification.riskLevel(),
+                    classification.rationale() + " LLM circuit open."
+            );
+        }
+        logDecision("rules", content, ruleContext, classification, note);
+        return classification;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private static String describeFailure(Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof LlmUnavailableException) {
+            return cause.getMessage();
+        }
+        if (cause instanceof HttpTimeoutException) {
+            return "LLM request timed out; using rules.";
+        }
+        return "LLM request failed; using rules.";
+    }
+
     private String buildRequestPayload(String content) throws IOException {
+        return objectMapper.writeValueAsString(buildRequestNode(objectMapper, content));
+    }
+
+    private LlmClassification parseResponse(String body) throws IOException {
+        return parseClassification(objectMapper.readTree(body));
+    }
+
+    static ObjectNode buildRequestNode(ObjectMapper objectMapper, String content) {
         ObjectNode payload = objectMapper.createObjectNode();
         payload.put("message", content);
         payload.put("format", "risk");
         payload.put("response_format", "json");
-        return objectMapper.writeValueAsString(payload);
+        return payload;
     }
 
-    private LlmDecision parseResponse(String body, LlmRuleContext ruleContext) throws IOException {
-        JsonNode root = objectMapper.readTree(body);
+    static LlmClassification parseClassification(JsonNode root) {
         JsonNode classificationNode = root.has("classification") ? root.get("classification") : root;
         String level = classificationNode.path("riskLevel").asText(classificationNode.path("risk_level").asText());
         String rationale = classificationNode.path("rationale").asText();
         if (level == null || level.isBlank()) {
-            LlmClassification classification = classifyByRules(ruleContext);
-            return new LlmDecision(classification, "rules", "LLM response missing risk level; using rules.");
+            throw new LlmUnavailableException("LLM response missing risk level; using rules.");
         }
         try {
             RiskLevel riskLevel = RiskLevel.valueOf(level.trim().toUpperCase());
             String resolvedRationale = rationale == null || rationale.isBlank()
                     ? "LLM classification applied."
                     : rationale.trim();
-            return new LlmDecision(new LlmClassification(riskLevel, resolvedRationale), "llm", "LLM response parsed.");
+            return new LlmClassification(riskLevel, resolvedRationale);
         } catch (IllegalArgumentException error) {
-            LlmClassification classification = classifyByRules(ruleContext);
-            return new LlmDecision(classification, "rules", "LLM response had invalid risk level; using rules.");
+            throw new LlmUnavailableException("LLM response had invalid risk level; using rules.");
         }
     }
 
-    private LlmClassification classifyByRules(LlmRuleContext ruleContext) {
-        if (ruleContext.blockedPattern() != null) {
-            return new LlmClassification(RiskLevel.HIGH, "Blocked pattern matched.");
-        }
-        if (ruleContext.matchedKeyword() != null) {
-            return new LlmClassification(RiskLevel.MEDIUM, "Keyword match detected.");
-        }
-        return new LlmClassification(RiskLevel.LOW, "No rules matched.");
-    }
-
     private void logDecision(
             String source,
             String content,
@@ -157,5 +285,10 @@ public class LlmHttpClient implements LlmClient {
         return value.trim();
     }
 
-    private record LlmDecision(LlmClassification classification, String source, String note) {}
+    // Failures are never cached, so the next identical message retries the endpoint.
+    static final class LlmUnavailableException extends RuntimeException {
+        LlmUnavailableException(String note) {
+            super(note, null, false, false);
+        }
+    }
 }
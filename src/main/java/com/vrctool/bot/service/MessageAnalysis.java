@@ -0,0 +1,78 @@
+package com.vrctool.bot.service;
+
+import com.vrctool.bot.util.TextNormalizer;
+import com.vrctool.bot.util.TokenSequence;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Everything the rule checks derive from a message's text alone: the token
+// views of the raw content and of the content with allowed GIF links removed,
+// plus the formatting signals. It depends only on the content, so the word
+// memory, the decision engine and the channel scanner can share one instance.
+public record MessageAnalysis(
+        String content,
+        TokenSequence text,
+        String sanitizedContent,
+        TokenSequence sanitizedText,
+        int messageLength,
+        int linkCount,
+        double uppercaseRatio
+) {
+    private static final Pattern LINK_PATTERN = Pattern.compile("https?://\\S+", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ALLOWED_GIF_LINK_PATTERN = Pattern.compile(
+            "https?://(?:www\\.)?tenor\\.com/view/\\S*gif\\S*",
+            Pattern.CASE_INSENSITIVE
+    );
+
+    public static MessageAnalysis of(String content, TextNormalizer textNormalizer) {
+        String safeContent = content == null ? "" : content;
+        TokenSequence text = textNormalizer.analyze(safeContent);
+        String sanitizedContent = stripAllowedGifLinks(safeContent);
+        // Most messages carry no allowed GIF link, so the sanitized view is the same analysis.
+        TokenSequence sanitizedText = sanitizedContent.equals(safeContent)
+                ? text
+                : textNormalizer.analyze(sanitizedContent);
+        return new MessageAnalysis(
+                safeContent,
+                text,
+                sanitizedContent,
+                sanitizedText,
+                safeContent.length(),
+                countLinks(sanitizedContent),
+                calculateUppercaseRatio(safeContent)
+        );
+    }
+
+    private static String stripAllowedGifLinks(String content) {
+        if (content.isBlank()) {
+            return "";
+        }
+        return ALLOWED_GIF_LINK_PATTERN.matcher(content).replaceAll(" ");
+    }
+
+    private static int countLinks(String content) {
+        Matcher matcher = LINK_PATTERN.matcher(content);
+        int count = 0;
+        while (matcher.find()) {
+            count++;
+        }
+        return count;
+    }
+
+    private static double calculateUppercaseRatio(String content) {
+        int uppercase = 0;
+        int letters = 0;
+        for (char c : content.toCharArray()) {
+            if (Character.isLetter(c)) {
+                letters++;
+                if (Character.isUpperCase(c)) {
+                    uppercase++;
+                }
+            }
+        }
+        if (letters < 12) {
+            return 0.0;
+        }
+        return letters == 0 ? 0.0 : (double) uppercase / letters;
+    }
+}
@@ -0,0 +1,73 @@
+package com.vrctool.bot.service;
+
+import com.vrctool.bot.util.TextNormalizer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Small LRU of MessageAnalysis keyed by message id, shared by the live
+// pipeline and the channel scanner so a message the gateway already handled
+// is not tokenized again when the scanner reaches it. An entry only counts as
+// a hit if the content still matches, so edited messages are re-analyzed.
+public class MessageAnalysisCache {
+    public record CacheStats(long hits, long misses, long evictions, int size) {}
+
+    private final TextNormalizer textNormalizer;
+    private final int maxEntries;
+    private final Map<String, MessageAnalysis> entries;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong evictions;
+
+    public MessageAnalysisCache(TextNormalizer textNormalizer, int maxEntries) {
+        this.textNormalizer = textNormalizer;
+        this.maxEntries = Math.max(0, maxEntries);
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.evictions = new AtomicLong();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, MessageAnalysis> eldest) {
+                if (size() > MessageAnalysisCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public TextNormalizer textNormalizer() {
+        return textNormalizer;
+    }
+
+    public MessageAnalysis analyze(String messageId, String content) {
+        String safeContent = content == null ? "" : content;
+        if (maxEntries == 0 || messageId == null) {
+            misses.incrementAndGet();
+            return MessageAnalysis.of(safeContent, textNormalizer);
+        }
+        synchronized (entries) {
+            MessageAnalysis cached = entries.get(messageId);
+            if (cached != null && cached.content().equals(safeContent)) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+        misses.incrementAndGet();
+        // Analysis runs outside the lock; a concurrent miss for the same id just computes it twice.
+        MessageAnalysis analysis = MessageAnalysis.of(safeContent, textNormalizer);
+        synchronized (entries) {
+            entries.put(messageId, analysis);
+        }
+        return analysis;
+    }
+
+    public CacheStats stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new CacheStats(hits.get(), misses.get(), evictions.get(), size);
+    }
+}
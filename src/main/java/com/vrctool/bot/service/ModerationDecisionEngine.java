@@ -1,20 +1,18 @@
 package com.vrctool.bot.service;
 
 import com.vrctool.bot.config.BotConfig;
-import com.vrctool.bot.util.ModerationPatterns;
-import com.vrctool.bot.util.TextNormalizer;
+import com.vrctool.bot.util.BlockedPatternAutomaton;
+import com.vrctool.bot.util.PatternPrefilter;
 import java.util.List;
-import java.util.Locale;
-import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicLong;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
 
 public class ModerationDecisionEngine {
-    private record KeywordPattern(String keyword, Pattern pattern) {}
-
     public enum Action {
         ALLOW,
         WARN,
@@ -26,11 +24,14 @@ public class ModerationDecisionEngine {
             String content,
             String matchedKeyword,
             String blockedPattern,
+            String overBudgetPattern,
             LlmClient.RiskLevel llmRiskLevel,
             String llmRationale,
             String selfReviewNote,
             int recentKeywordMatches,
             int totalRecentTokens,
+            int burstKeywordMatches,
+            int floodWindowTokens,
             int channelRiskScore,
             int messageRiskScore,
             int historyRiskScore,
@@ -42,133 +43,185 @@ public class ModerationDecisionEngine {
             double uppercaseRatio,
             int warnThreshold,
             int deleteThreshold,
-            int escalateThreshold
+            int escalateThreshold,
+            long ruleSetVersion
     ) {}
 
     public record Decision(Action action, DecisionContext context) {}
 
-    private record ReviewResult(Action action, String note) {}
+    public record RuleAssessment(
+            String content,
+            String matchedKeyword,
+            String blockedPattern,
+            String overBudgetPattern,
+            int recentKeywordMatches,
+            int totalRecentTokens,
+            int burstKeywordMatches,
+            int floodWindowTokens,
+            int channelRiskScore,
+            int messageRiskScore,
+            int historyRiskScore,
+            int baseRiskScore,
+            int messageLength,
+            int linkCount,
+            double uppercaseRatio,
+            boolean reportContext,
+            boolean playfulContext,
+            boolean accusationContext,
+            RuleSet ruleSet
+    ) {}
 
-    private static final Pattern LINK_PATTERN = Pattern.compile("https?://\\S+", Pattern.CASE_INSENSITIVE);
-    private static final Pattern ALLOWED_GIF_LINK_PATTERN = Pattern.compile(
-            "https?://(?:www\\.)?tenor\\.com/view/\\S*gif\\S*",
-            Pattern.CASE_INSENSITIVE
-    );
-    private static final Pattern MINOR_REFERENCE_PATTERN = Pattern.compile(
-            "\\b(minor|underage|child|kid|teen|13|14|15|16|17)\\b",
-            Pattern.CASE_INSENSITIVE
-    );
-    private static final Pattern ADULT_REFERENCE_PATTERN = Pattern.compile(
-            "\\b(adult|18\\+|18\\s*plus|over\\s*18|18\\s*\\+)\\b",
-            Pattern.CASE_INSENSITIVE
-    );
-    private static final Pattern RELATIONSHIP_CONTEXT_PATTERN = Pattern.compile(
-            "\\b(cuddle|cuddling|dating|relationship|boyfriend|girlfriend|bf|gf|romantic|flirt|"
-                    + "kiss|sexual|dm|dms|messages|screenshots|evidence|proof|gifting|gifted)\\b",
-            Pattern.CASE_INSENSITIVE
-    );
-    private static final Pattern REPORT_CONTEXT_PATTERN = Pattern.compile(
-            "\\b(report|reported|reporting|screenshots|evidence|proof|log|logs)\\b",
-            Pattern.CASE_INSENSITIVE
-    );
-    private static final Pattern ACCUSATION_SUBJECT_PATTERN = Pattern.compile(
-            "\\b(you('|\\s)?re|u\\s*r|ur|he('|\\s)?s|she('|\\s)?s|they('|\\s)?re|"
-                    + "this\\s+(guy|girl|person)|that\\s+(guy|girl|person)|"
-                    + "him|her|them)\\b",
-            Pattern.CASE_INSENSITIVE
-    );
-    private static final Pattern ACCUSATION_TERM_PATTERN = Pattern.compile(
-            "\\b(pedo|pedophile|groomer|predator|creep|perv|pervert|abuser|rapist|"
-                    + "molester|harasser|stalker|sex\\s*offender|child\\s*abuser)\\b",
-            Pattern.CASE_INSENSITIVE
-    );
-    private static final Pattern PLAYFUL_CONTEXT_PATTERN = Pattern.compile(
-            "\\b(lol|lmao|lmfao|rofl|jk|j/k|just\\s+kidding|kidding|for\\s+fun|"
-                    + "just\\s+joking|joking|banter|teasing|only\\s+joking|messing\\s+around)\\b",
-            Pattern.CASE_INSENSITIVE
-    );
+    public record LlmUsageStats(long requested, long avoided) {}
+
+    private record ReviewResult(Action action, String note) {}
 
     private final BotConfig config;
     private final WordMemoryStore wordMemoryStore;
-    private final List<Pattern> blockedPatterns;
-    private final List<KeywordPattern> keywordPatterns;
-    private final TextNormalizer textNormalizer;
+    private final ModerationRules rules;
+    private final MessageAnalysisCache analysisCache;
     private final LlmClient llmClient;
+    // Null when MOD_PARALLEL_MATCH_LENGTH is 0; otherwise scans messages at least that long in parallel.
+    private final ForkJoinPool matchPool;
+    private final AtomicLong llmCallsRequested = new AtomicLong();
+    private final AtomicLong llmCallsAvoided = new AtomicLong();
 
     public ModerationDecisionEngine(
             BotConfig config,
             WordMemoryStore wordMemoryStore,
-            TextNormalizer textNormalizer,
+            ModerationRules rules,
+            MessageAnalysisCache analysisCache,
             LlmClient llmClient
     ) {
         this.config = config;
         this.wordMemoryStore = wordMemoryStore;
-        this.textNormalizer = textNormalizer;
+        this.rules = rules;
+        this.analysisCache = analysisCache;
         this.llmClient = llmClient;
-        this.blockedPatterns = config.blockedPatterns();
-        this.keywordPatterns = config.scanKeywords().stream()
-                .map(keyword -> new KeywordPattern(keyword, ModerationPatterns.compileKeywordPattern(keyword)))
-                .toList();
+        this.matchPool = config.modParallelMatchLength() > 0 ? createMatchPool(config) : null;
     }
 
     public Decision evaluate(Message message, Member member, MessageChannel channel) {
-        String content = message.getContentDisplay();
-        String lowercase = content.toLowerCase(Locale.ROOT);
-        TextNormalizer.NormalizedResult normalizedResult = textNormalizer.normalizeAndExpand(content);
-        String normalized = normalizedResult.normalized();
-        String expanded = normalizedResult.expanded();
-        String sanitizedContent = stripAllowedGifLinks(content);
-        TextNormalizer.NormalizedResult blockedNormalizedResult = textNormalizer.normalizeAndExpand(sanitizedContent);
-        String blockedNormalized = blockedNormalizedResult.normalized();
-        String blockedExpanded = blockedNormalizedResult.expanded();
-
-        String matchedKeyword = null;
-        for (KeywordPattern keywordPattern : keywordPatterns) {
-            if (matchesAny(keywordPattern.pattern(), content, normalized, expanded)) {
-                matchedKeyword = keywordPattern.keyword();
-                break;
-            }
-        }
-        if (matchedKeyword == null && isAgeGapConcern(content, normalized, expanded)) {
-            matchedKeyword = "age gap (adult/minor)";
+        RuleAssessment assessment = assess(message, member, channel);
+        LlmClient.LlmClassification skipped = shortCircuit(assessment);
+        return decide(assessment, skipped != null ? skipped : classify(assessment));
+    }
+
+    public CompletableFuture<Decision> evaluateAsync(Message message, Member member, MessageChannel channel) {
+        return evaluateAsync(message, member, channel, analyze(message));
+    }
+
+    // analysis must describe message.getContentDisplay().
+    public CompletableFuture<Decision> evaluateAsync(
+            Message message,
+            Member member,
+            MessageChannel channel,
+            MessageAnalysis analysis
+    ) {
+        return evaluateAsync(message.getGuild().getId(), channel.getId(), member.getId(), analysis);
+    }
+
+    CompletableFuture<Decision> evaluateAsync(String guildId, String channelId, String memberId, MessageAnalysis analysis) {
+        RuleAssessment assessment = assess(guildId, channelId, memberId, analysis);
+        LlmClient.LlmClassification skipped = shortCircuit(assessment);
+        if (skipped != null) {
+            return CompletableFuture.completedFuture(decide(assessment, skipped));
         }
+        return classifyAsync(assessment).thenApply(result -> decide(assessment, result));
+    }
 
-        String blockedPattern = null;
-        for (Pattern pattern : blockedPatterns) {
-            if (matchesAny(pattern, sanitizedContent, blockedNormalized, blockedExpanded)) {
-                blockedPattern = pattern.pattern();
-                break;
-            }
+    public LlmUsageStats llmUsage() {
+        return new LlmUsageStats(llmCallsRequested.get(), llmCallsAvoided.get());
+    }
+
+    // Null unless the engine talks to the HTTP endpoint.
+    public LlmCircuitBreaker.BreakerStats llmBreakerStats() {
+        return llmClient instanceof LlmHttpClient httpClient ? httpClient.breakerStats() : null;
+    }
+
+    // Null unless the engine talks to the HTTP endpoint.
+    public LlmClassificationCache.CacheStats llmCacheStats() {
+        return llmClient instanceof LlmHttpClient httpClient ? httpClient.cacheStats() : null;
+    }
+
+    public PatternPrefilter.Stats contextPrefilterStats() {
+        return RuleSet.contextPrefilterStats();
+    }
+
+    public void shutdown() {
+        if (matchPool != null) {
+            matchPool.shutdown();
         }
+        llmClient.close();
+    }
 
-        int messageLength = content.length();
-        int linkCount = countLinks(sanitizedContent.toLowerCase(Locale.ROOT));
-        double uppercaseRatio = calculateUppercaseRatio(content);
-        int messageRiskScore = scoreMessageFormat(messageLength, linkCount, uppercaseRatio);
+    public MessageAnalysis analyze(Message message) {
+        return analysisCache.analyze(message.getId(), message.getContentDisplay());
+    }
 
-        Map<String, Integer> tokenCounts = wordMemoryStore.getTokenCounts(
-                message.getGuild().getId(),
-                channel.getId(),
-                member.getId()
-        );
+    public RuleAssessment assess(Message message, Member member, MessageChannel channel) {
+        return assess(message, member, channel, analyze(message));
+    }
+
+    public RuleAssessment assess(Message message, Member member, MessageChannel channel, MessageAnalysis analysis) {
+        return assess(message.getGuild().getId(), channel.getId(), member.getId(), analysis);
+    }
+
+    RuleAssessment assess(String guildId, String channelId, String memberId, MessageAnalysis analysis) {
+        String content = analysis.content();
+
+        // Read once so the whole assessment runs against one rule set version.
+        RuleSet ruleSet = rules.current();
         List<String> recentMessages = wordMemoryStore.getRecentMessages(
-                message.getGuild().getId(),
-                channel.getId(),
-                member.getId(),
+                guildId,
+                channelId,
+                memberId,
                 6
         );
         String recentContext = String.join(" ", recentMessages);
-        int totalRecentTokens = tokenCounts.values().stream().mapToInt(Integer::intValue).sum();
+        // Copypasta near the length limit dominates worst-case latency, so long messages fan out.
+        RuleSet.Matches matches = matchPool != null && content.length() >= config.modParallelMatchLength()
+                ? ruleSet.match(analysis, recentContext, matchPool)
+                : ruleSet.match(analysis, recentContext);
+        String matchedKeyword = matches.keyword();
+        RuleSet.ContextSignals signals = matches.signals();
+        if (matchedKeyword == null && signals.ageGap()) {
+            matchedKeyword = "age gap (adult/minor)";
+        }
+
+        BlockedPatternAutomaton.Result blockedMatch = matches.blocked();
+        String blockedPattern = blockedMatch.pattern() == null ? null : blockedMatch.pattern().pattern();
+        String overBudgetPattern = blockedMatch.overBudget() == null ? null : blockedMatch.overBudget().pattern();
+
+        int messageLength = analysis.messageLength();
+        int linkCount = analysis.linkCount();
+        double uppercaseRatio = analysis.uppercaseRatio();
+        int messageRiskScore = scoreMessageFormat(messageLength, linkCount, uppercaseRatio);
+
+        int totalRecentTokens = wordMemoryStore.getTotalTokenCount(guildId, channelId, memberId);
         int recentKeywordMatches = matchedKeyword == null
+                ? 0
+                : wordMemoryStore.getTokenCount(guildId, channelId, memberId, matchedKeyword);
+        // Disabled history terms skip their window lookups.
+        int burstKeywordMatches = matchedKeyword == null || ruleSet.keywordBurstThreshold() == 0
                 ? 0
                 : wordMemoryStore.getTokenCount(
-                        message.getGuild().getId(),
-                        channel.getId(),
-                        member.getId(),
-                        matchedKeyword
+                        guildId,
+                        channelId,
+                        memberId,
+                        matchedKeyword,
+                        ruleSet.keywordBurstWindow()
                 );
-        int historyRiskScore = scoreHistory(totalRecentTokens, recentKeywordMatches);
-        int channelRiskScore = config.channelRiskScore(channel.getId());
+        int floodWindowTokens = ruleSet.tokenFloodThreshold() == 0
+                ? 0
+                : wordMemoryStore.getTotalTokenCount(guildId, channelId, memberId, ruleSet.tokenFloodWindow());
+        int historyRiskScore = scoreHistory(
+                ruleSet,
+                totalRecentTokens,
+                recentKeywordMatches,
+                burstKeywordMatches,
+                floodWindowTokens
+        );
+        int channelRiskScore = ruleSet.channelRiskScore(channelId);
 
         int baseRiskScore = 0;
         if (blockedPattern != null) {
@@ -178,102 +231,203 @@ public class ModerationDecisionEngine {
             baseRiskScore += 30;
         }
 
-        LlmClient.LlmClassification llmClassification = llmClient.classifyMessage(
+        boolean reportContext = signals.report();
+        boolean playfulContext = signals.playful();
+        boolean accusationContext = signals.accusation();
+
+        return new RuleAssessment(
                 content,
-                new LlmClient.LlmRuleContext(matchedKeyword, blockedPattern)
+                matchedKeyword,
+                blockedPattern,
+                overBudgetPattern,
+                recentKeywordMatches,
+                totalRecentTokens,
+                burstKeywordMatches,
+                floodWindowTokens,
+                channelRiskScore,
+                messageRiskScore,
+                historyRiskScore,
+                baseRiskScore,
+                messageLength,
+                linkCount,
+                uppercaseRatio,
+                reportContext,
+                playfulContext,
+                accusationContext,
+                ruleSet
         );
-        int llmScoreFloor = switch (llmClassification.riskLevel()) {
-            case HIGH -> config.modEscalateThreshold();
-            case MEDIUM -> config.modDeleteThreshold();
+    }
+
+    public LlmClient.LlmClassification classify(RuleAssessment assessment) {
+        llmCallsRequested.incrementAndGet();
+        return llmClient.classifyMessage(
+                assessment.content(),
+                new LlmClient.LlmRuleContext(assessment.matchedKeyword(), assessment.blockedPattern())
+        );
+    }
+
+    public CompletableFuture<LlmClient.LlmClassification> classifyAsync(RuleAssessment assessment) {
+        llmCallsRequested.incrementAndGet();
+        return llmClient.classifyMessageAsync(
+                assessment.content(),
+                new LlmClient.LlmRuleContext(assessment.matchedKeyword(), assessment.blockedPattern())
+        );
+    }
+
+    public Decision decide(RuleAssessment assessment, LlmClient.LlmClassification llmClassification) {
+        String matchedKeyword = assessment.matchedKeyword();
+        String blockedPattern = assessment.blockedPattern();
+        int messageRiskScore = assessment.messageRiskScore();
+        int historyRiskScore = assessment.historyRiskScore();
+        int channelRiskScore = assessment.channelRiskScore();
+
+        int llmScoreFloor = llmScoreFloor(assessment.ruleSet(), llmClassification.riskLevel());
+        int totalRiskScore = Math.max(ruleRiskScore(assessment), llmScoreFloor);
+        ReviewResult review = resolveAction(assessment, llmClassification.riskLevel(), totalRiskScore);
+
+        DecisionContext context = new DecisionContext(
+                assessment.content(),
+                matchedKeyword,
+                blockedPattern,
+                assessment.overBudgetPattern(),
+                llmClassification.riskLevel(),
+                llmClassification.rationale(),
+                review.note(),
+                assessment.recentKeywordMatches(),
+                assessment.totalRecentTokens(),
+                assessment.burstKeywordMatches(),
+                assessment.floodWindowTokens(),
+                channelRiskScore,
+                messageRiskScore,
+                historyRiskScore,
+                assessment.baseRiskScore(),
+                llmScoreFloor,
+                totalRiskScore,
+                assessment.messageLength(),
+                assessment.linkCount(),
+                assessment.uppercaseRatio(),
+                assessment.ruleSet().warnThreshold(),
+                assessment.ruleSet().deleteThreshold(),
+                assessment.ruleSet().escalateThreshold(),
+                assessment.ruleSet().version()
+        );
+
+        return new Decision(review.action(), context);
+    }
+
+    private LlmClient.LlmClassification shortCircuit(RuleAssessment assessment) {
+        if (!config.llmShortCircuitEnabled() || !config.llmClassificationEnabled()) {
+            return null;
+        }
+        if (isShortCleanMessage(assessment)) {
+            llmCallsAvoided.incrementAndGet();
+            return new LlmClient.LlmClassification(LlmClient.RiskLevel.LOW, "Short clean message; LLM skipped.");
+        }
+        // The LLM only sets a score floor, so skip it when no risk level it could return changes the action.
+        int ruleRiskScore = ruleRiskScore(assessment);
+        Action outcome = null;
+        for (LlmClient.RiskLevel level : LlmClient.RiskLevel.values()) {
+            int totalRiskScore = Math.max(ruleRiskScore, llmScoreFloor(assessment.ruleSet(), level));
+            Action action = resolveAction(assessment, level, totalRiskScore).action();
+            if (outcome != null && outcome != action) {
+                return null;
+            }
+            outcome = action;
+        }
+        llmCallsAvoided.incrementAndGet();
+        LlmClient.LlmClassification rules = LlmClient.classifyByRules(
+                new LlmClient.LlmRuleContext(assessment.matchedKeyword(), assessment.blockedPattern())
+        );
+        return new LlmClient.LlmClassification(rules.riskLevel(), rules.rationale() + " Rule score decides; LLM skipped.");
+    }
+
+    private boolean isShortCleanMessage(RuleAssessment assessment) {
+        return assessment.content().strip().length() < config.llmShortMessageLength()
+                && assessment.matchedKeyword() == null
+                && assessment.blockedPattern() == null
+                && assessment.linkCount() == 0
+                && assessment.historyRiskScore() == 0
+                && assessment.channelRiskScore() == 0
+                && !assessment.accusationContext()
+                && !assessment.reportContext();
+    }
+
+    private static int llmScoreFloor(RuleSet ruleSet, LlmClient.RiskLevel riskLevel) {
+        return switch (riskLevel) {
+            case HIGH -> ruleSet.escalateThreshold();
+            case MEDIUM -> ruleSet.deleteThreshold();
             case LOW -> 0;
         };
+    }
+
+    private static int ruleRiskScore(RuleAssessment assessment) {
+        return assessment.baseRiskScore()
+                + assessment.messageRiskScore()
+                + assessment.historyRiskScore()
+                + assessment.channelRiskScore();
+    }
 
-        int totalRiskScore = baseRiskScore + messageRiskScore + historyRiskScore + channelRiskScore;
-        totalRiskScore = Math.max(totalRiskScore, llmScoreFloor);
+    private ReviewResult resolveAction(RuleAssessment assessment, LlmClient.RiskLevel llmRiskLevel, int totalRiskScore) {
+        String matchedKeyword = assessment.matchedKeyword();
+        String blockedPattern = assessment.blockedPattern();
+        int messageRiskScore = assessment.messageRiskScore();
+        int historyRiskScore = assessment.historyRiskScore();
+        int channelRiskScore = assessment.channelRiskScore();
 
+        RuleSet ruleSet = assessment.ruleSet();
         Action action;
-        if (totalRiskScore >= config.modEscalateThreshold()) {
+        if (totalRiskScore >= ruleSet.escalateThreshold()) {
             action = Action.ESCALATE_TO_MODS;
-        } else if (totalRiskScore >= config.modDeleteThreshold()) {
+        } else if (totalRiskScore >= ruleSet.deleteThreshold()) {
             action = Action.DELETE;
-        } else if (totalRiskScore >= config.modWarnThreshold()) {
+        } else if (totalRiskScore >= ruleSet.warnThreshold()) {
             action = Action.WARN;
         } else {
             action = Action.ALLOW;
         }
 
-        boolean reportContext = isReportContext(content, normalized, expanded)
-                || matchesAny(REPORT_CONTEXT_PATTERN, recentContext);
-        boolean playfulContext = isPlayfulContext(content, normalized, expanded, recentContext);
-        boolean accusationContext = isAccusationContext(content, normalized, expanded, recentContext);
-
         Action adjusted = quickThinkReview(
                 action,
                 matchedKeyword,
                 blockedPattern,
-                llmClassification.riskLevel(),
+                llmRiskLevel,
                 messageRiskScore,
                 historyRiskScore,
                 channelRiskScore,
-                reportContext
+                assessment.reportContext()
         );
 
         Action accusationAdjusted = adjustForAccusationContext(
                 adjusted,
                 matchedKeyword,
                 blockedPattern,
-                llmClassification.riskLevel(),
-                accusationContext,
-                playfulContext,
-                reportContext
+                llmRiskLevel,
+                assessment.accusationContext(),
+                assessment.playfulContext(),
+                assessment.reportContext()
         );
 
-        ReviewResult review = reviewAction(
+        ReviewResult reviewed = reviewAction(
                 accusationAdjusted,
                 matchedKeyword,
                 blockedPattern,
-                llmClassification.riskLevel(),
+                llmRiskLevel,
                 messageRiskScore,
                 historyRiskScore,
                 channelRiskScore,
-                accusationContext,
-                playfulContext,
-                reportContext
-        );
-
-        DecisionContext context = new DecisionContext(
-                content,
-                matchedKeyword,
-                blockedPattern,
-                llmClassification.riskLevel(),
-                llmClassification.rationale(),
-                review.note(),
-                recentKeywordMatches,
-                totalRecentTokens,
-                channelRiskScore,
-                messageRiskScore,
-                historyRiskScore,
-                baseRiskScore,
-                llmScoreFloor,
-                totalRiskScore,
-                messageLength,
-                linkCount,
-                uppercaseRatio,
-                config.modWarnThreshold(),
-                config.modDeleteThreshold(),
-                config.modEscalateThreshold()
+                assessment.accusationContext(),
+                assessment.playfulContext(),
+                assessment.reportContext()
         );
-
-        return new Decision(review.action(), context);
-    }
-
-    private static boolean matchesAny(Pattern pattern, String... candidates) {
-        for (String candidate : candidates) {
-            if (candidate != null && !candidate.isBlank() && pattern.matcher(candidate).find()) {
-                return true;
-            }
-        }
-        return false;
+        // A pattern that ran out of budget may have matched; a person decides instead of failing open.
+        String overBudgetPattern = assessment.overBudgetPattern();
+        if (overBudgetPattern != null && (reviewed.action() == Action.ALLOW || reviewed.action() == Action.WARN)) {
+            return new ReviewResult(
+                    Action.ESCALATE_TO_MODS,
+                    "Blocked pattern " + overBudgetPattern + " exceeded its match budget; manual review needed."
+            );
+        }
+        return reviewed;
     }
 
     private static int scoreMessageFormat(int messageLength, int linkCount, double uppercaseRatio) {
@@ -296,7 +450,13 @@ public class ModerationDecisionEngine {
         return score;
     }
 
-    private static int scoreHistory(int totalRecentTokens, int recentKeywordMatches) {
+    static int scoreHistory(
+            RuleSet ruleSet,
+            int totalRecentTokens,
+            int recentKeywordMatches,
+            int burstKeywordMatches,
+            int floodWindowTokens
+    ) {
         int score = 0;
         if (totalRecentTokens >= 2000) {
             score += 12;
@@ -307,69 +467,16 @@ public class ModerationDecisionEngine {
         if (recentKeywordMatches > 0) {
             score += Math.min(recentKeywordMatches * 5, 25);
         }
-        return score;
-    }
-
-    private static int countLinks(String content) {
-        Matcher matcher = LINK_PATTERN.matcher(content);
-        int count = 0;
-        while (matcher.find()) {
-            count++;
-        }
-        return count;
-    }
-
-    private static boolean isAgeGapConcern(String content, String normalized, String expanded) {
-        return matchesAny(MINOR_REFERENCE_PATTERN, content, normalized, expanded)
-                && matchesAny(ADULT_REFERENCE_PATTERN, content, normalized, expanded)
-                && matchesAny(RELATIONSHIP_CONTEXT_PATTERN, content, normalized, expanded);
-    }
-
-    private static boolean isReportContext(String content, String normalized, String expanded) {
-        return matchesAny(REPORT_CONTEXT_PATTERN, content, normalized, expanded);
-    }
-
-    private static boolean isPlayfulContext(
-            String content,
-            String normalized,
-            String expanded,
-            String recentContext
-    ) {
-        return matchesAny(PLAYFUL_CONTEXT_PATTERN, content, normalized, expanded, recentContext);
-    }
-
-    private static boolean isAccusationContext(
-            String content,
-            String normalized,
-            String expanded,
-            String recentContext
-    ) {
-        return matchesAny(ACCUSATION_TERM_PATTERN, content, normalized, expanded, recentContext)
-                && matchesAny(ACCUSATION_SUBJECT_PATTERN, content, normalized, expanded, recentContext);
-    }
-
-    private static String stripAllowedGifLinks(String content) {
-        if (content == null || content.isBlank()) {
-            return "";
-        }
-        return ALLOWED_GIF_LINK_PATTERN.matcher(content).replaceAll(" ");
-    }
-
-    private static double calculateUppercaseRatio(String content) {
-        int uppercase = 0;
-        int letters = 0;
-        for (char c : content.toCharArray()) {
-            if (Character.isLetter(c)) {
-                letters++;
-                if (Character.isUpperCase(c)) {
-                    uppercase++;
-                }
-            }
+        // Bursts catch repeat offenders that lifetime totals average away.
+        int burstThreshold = ruleSet.keywordBurstThreshold();
+        if (burstThreshold > 0 && burstKeywordMatches >= burstThreshold) {
+            score += 10;
         }
-        if (letters < 12) {
-            return 0.0;
+        int floodThreshold = ruleSet.tokenFloodThreshold();
+        if (floodThreshold > 0 && floodWindowTokens >= floodThreshold) {
+            score += 8;
         }
-        return letters == 0 ? 0.0 : (double) uppercase / letters;
+        return score;
     }
 
     private static ReviewResult reviewAction(
@@ -470,4 +577,16 @@ public class ModerationDecisionEngine {
         return Action.ESCALATE_TO_MODS;
     }
 
+    private static ForkJoinPool createMatchPool(BotConfig config) {
+        return new ForkJoinPool(
+                config.modParallelMatchThreads(),
+                pool -> {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    thread.setName("moderation-match-" + thread.getPoolIndex());
+                    return thread;
+                },
+                null,
+                false
+        );
+    }
 }
@@ -0,0 +1,279 @@
+package com.vrctool.bot.service;
+
+import com.vrctool.bot.config.BotConfig;
+import com.vrctool.bot.util.PatternPrefilter;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
+
+public class ModerationPipeline {
+    @FunctionalInterface
+    public interface ActionDispatcher {
+        void dispatch(Message message, Member member, MessageChannel channel, ModerationDecisionEngine.Decision decision);
+    }
+
+    public record PipelineStats(
+            long submitted,
+            long dropped,
+            long completed,
+            long failed,
+            int inFlight,
+            int capacity
+    ) {}
+
+    private static final class ChannelLane {
+        private CompletableFuture<?> ruleTail = CompletableFuture.completedFuture(null);
+        private CompletableFuture<?> dispatchTail = CompletableFuture.completedFuture(null);
+        private int pending;
+        private boolean retired;
+    }
+
+    private final ModerationDecisionEngine decisionEngine;
+    private final WordMemoryStore wordMemoryStore;
+    private final ActionDispatcher dispatcher;
+    private final ExecutorService ruleExecutor;
+    private final Semaphore capacity;
+    private final int capacityLimit;
+    private final boolean dropWhenFull;
+    private final long admitTimeoutMillis;
+    private final Map<String, ChannelLane> lanes;
+    private final AtomicLong submitted;
+    private final AtomicLong dropped;
+    private final AtomicLong completed;
+    private final AtomicLong failed;
+
+    public ModerationPipeline(
+            BotConfig config,
+            ModerationDecisionEngine decisionEngine,
+            WordMemoryStore wordMemoryStore,
+            ActionDispatcher dispatcher
+    ) {
+        this.decisionEngine = decisionEngine;
+        this.wordMemoryStore = wordMemoryStore;
+        this.dispatcher = dispatcher;
+        this.ruleExecutor = createRuleExecutor(config);
+        this.capacityLimit = config.modPipelineQueueCapacity();
+        this.capacity = new Semaphore(capacityLimit);
+        this.dropWhenFull = config.modPipelineDropWhenFull();
+        this.admitTimeoutMillis = config.modPipelineAdmitTimeoutMillis();
+        this.lanes = new ConcurrentHashMap<>();
+        this.submitted = new AtomicLong();
+        this.dropped = new AtomicLong();
+        this.completed = new AtomicLong();
+        this.failed = new AtomicLong();
+    }
+
+    public boolean submit(Message message, Member member, MessageChannel channel) {
+        return submit(
+                channel.getId(),
+                () -> ingestAndEvaluate(message, member, channel),
+                decision -> dispatcher.dispatch(message, member, channel, decision)
+        );
+    }
+
+    // evaluate runs on a rule worker; dispatch runs once the decision is in, in submission order per channel.
+    boolean submit(
+            String channelId,
+            Supplier<CompletableFuture<ModerationDecisionEngine.Decision>> evaluate,
+            Consumer<ModerationDecisionEngine.Decision> dispatch
+    ) {
+        if (!admit()) {
+            long total = dropped.incrementAndGet();
+            System.err.println("[MODERATION] Pipeline full; skipped message in channel "
+                    + channelId + " (dropped=" + total + ").");
+            return false;
+        }
+        submitted.incrementAndGet();
+        while (true) {
+            ChannelLane lane = lanes.computeIfAbsent(channelId, ignored -> new ChannelLane());
+            synchronized (lane) {
+                if (lane.retired) {
+                    continue;
+                }
+                lane.pending++;
+                enqueue(lane, channelId, evaluate, dispatch);
+                return true;
+            }
+        }
+    }
+
+    public PipelineStats stats() {
+        return new PipelineStats(
+                submitted.get(),
+                dropped.get(),
+                completed.get(),
+                failed.get(),
+                capacityLimit - capacity.availablePermits(),
+                capacityLimit
+        );
+    }
+
+    public void shutdown(long timeout, TimeUnit unit) {
+        try {
+            if (capacity.tryAcquire(capacityLimit, timeout, unit)) {
+                capacity.release(capacityLimit);
+            } else {
+                System.err.println("[MODERATION] Pipeline shutdown timed out with "
+                        + (capacityLimit - capacity.availablePermits()) + " messages in flight.");
+            }
+        } catch (InterruptedException error) {
+            Thread.currentThread().interrupt();
+        }
+        ruleExecutor.shutdown();
+        decisionEngine.shutdown();
+        PipelineStats pipeline = stats();
+        System.out.println("[MODERATION] Pipeline submitted=" + pipeline.submitted()
+                + ", dropped=" + pipeline.dropped()
+                + ", completed=" + pipeline.completed()
+                + ", failed=" + pipeline.failed()
+                + ", inFlight=" + pipeline.inFlight() + "/" + pipeline.capacity() + ".");
+        ModerationDecisionEngine.LlmUsageStats usage = decisionEngine.llmUsage();
+        System.out.println("[MODERATION] LLM calls requested=" + usage.requested()
+                + ", avoided=" + usage.avoided() + ".");
+        LlmCircuitBreaker.BreakerStats breaker = decisionEngine.llmBreakerStats();
+        if (breaker != null) {
+            System.out.println("[LLM] Circuit breaker " + breaker.state()
+                    + ": opened=" + breaker.opened()
+                    + ", halfOpened=" + breaker.halfOpened()
+                    + ", closed=" + breaker.closed()
+                    + ", rejected=" + breaker.rejected()
+                    + ", timeout=" + breaker.currentTimeout().toMillis() + "ms.");
+        }
+        LlmClassificationCache.CacheStats cache = decisionEngine.llmCacheStats();
+        if (cache != null) {
+            System.out.println("[LLM] Classification cache hits=" + cache.hits()
+                    + ", misses=" + cache.misses()
+                    + ", evictions=" + cache.evictions()
+                    + ", size=" + cache.size() + ".");
+        }
+        PatternPrefilter.Stats prefilter = decisionEngine.contextPrefilterStats();
+        System.out.println(String.format(
+                "[MODERATION] Context prefilter skipped %d of %d regex checks (%.1f%%).",
+                prefilter.rejected(),
+                prefilter.checked(),
+                prefilter.rejectRate() * 100
+        ));
+    }
+
+    private void enqueue(
+            ChannelLane lane,
+            String channelId,
+            Supplier<CompletableFuture<ModerationDecisionEngine.Decision>> evaluate,
+            Consumer<ModerationDecisionEngine.Decision> dispatch
+    ) {
+        CompletableFuture<CompletableFuture<ModerationDecisionEngine.Decision>> evaluated = lane.ruleTail.thenApplyAsync(
+                ignored -> evaluate.get(),
+                ruleExecutor
+        );
+        lane.ruleTail = evaluated.handle((pending, error) -> null);
+
+        // The LLM request stays in flight without holding a worker; the rule stage moves on to the next message.
+        CompletableFuture<ModerationDecisionEngine.Decision> decided = evaluated
+                .thenCompose(pending -> pending)
+                .handle((decision, error) -> {
+                    if (error != null) {
+                        failed.incrementAndGet();
+                        System.err.println("[MODERATION] Pipeline evaluation failed: " + rootMessage(error));
+                        return null;
+                    }
+                    return decision;
+                });
+
+        lane.dispatchTail = lane.dispatchTail.thenCombineAsync(decided, (ignored, decision) -> {
+            if (decision != null) {
+                try {
+                    dispatch.accept(decision);
+                    completed.incrementAndGet();
+                } catch (RuntimeException error) {
+                    failed.incrementAndGet();
+                    System.err.println("[MODERATION] Pipeline dispatch failed: " + rootMessage(error));
+                }
+            }
+            return null;
+        }, ruleExecutor).handle((ignored, error) -> {
+            release(channelId, lane);
+            return null;
+        });
+    }
+
+    private CompletableFuture<ModerationDecisionEngine.Decision> ingestAndEvaluate(
+            Message message,
+            Member member,
+            MessageChannel channel
+    ) {
+        // Analyzed once here and shared by the word memory and every matcher in the engine.
+        MessageAnalysis analysis = decisionEngine.analyze(message);
+        wordMemoryStore.recordMessage(
+                message.getGuild().getId(),
+                channel.getId(),
+                member.getId(),
+                analysis.text().normalized(),
+                message.getTimeCreated().toInstant()
+        );
+        return decisionEngine.evaluateAsync(message, member, channel, analysis);
+    }
+
+    // Runs on the gateway thread, so a full pipeline waits at most admitTimeoutMillis before dropping.
+    private boolean admit() {
+        if (dropWhenFull) {
+            return capacity.tryAcquire();
+        }
+        try {
+            return capacity.tryAcquire(admitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException error) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void release(String channelId, ChannelLane lane) {
+        synchronized (lane) {
+            lane.pending--;
+            if (lane.pending == 0) {
+                lane.retired = true;
+                lanes.remove(channelId, lane);
+            }
+        }
+        capacity.release();
+    }
+
+    private static ExecutorService createRuleExecutor(BotConfig config) {
+        if (config.modPipelineVirtualThreads()) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException error) {
+                System.err.println("[MODERATION] Virtual threads unavailable on this runtime; using a fixed pool.");
+            }
+        }
+        return Executors.newFixedThreadPool(config.modPipelineWorkers(), namedThreads("moderation-rules"));
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static String rootMessage(Throwable error) {
+        Throwable root = error;
+        while (root.getCause() != null) {
+            root = root.getCause();
+        }
+        return root.getClass().getSimpleName() + ": " + root.getMessage();
+    }
+}
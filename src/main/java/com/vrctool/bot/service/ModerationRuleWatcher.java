@@ -0,0 +1,286 @@
+package com.vrctool.bot.service;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+// Reloads the moderation rules from a properties file whenever it changes,
+// without restarting the bot. The file uses the environment variable names
+// (MOD_SCAN_KEYWORDS, MOD_BLOCKED_PATTERNS, MOD_WARN_THRESHOLD,
+// MOD_DELETE_THRESHOLD, MOD_ESCALATE_THRESHOLD, MOD_CHANNEL_RISK_SCORES,
+// MOD_KEYWORD_BURST_THRESHOLD, MOD_KEYWORD_BURST_MINUTES,
+// MOD_TOKEN_FLOOD_THRESHOLD, MOD_TOKEN_FLOOD_MINUTES);
+// keys it leaves out keep their startup values. Parsing and compiling run on
+// the watcher thread, and a file that fails validation is rejected as a whole
+// so the working rule set stays in place.
+public final class ModerationRuleWatcher implements AutoCloseable {
+    private static final long SETTLE_MILLIS = 250;
+    private static final Set<String> KEYS = Set.of(
+            "MOD_SCAN_KEYWORDS",
+            "MOD_BLOCKED_PATTERNS",
+            "MOD_WARN_THRESHOLD",
+            "MOD_DELETE_THRESHOLD",
+            "MOD_ESCALATE_THRESHOLD",
+            "MOD_CHANNEL_RISK_SCORES",
+            "MOD_KEYWORD_BURST_THRESHOLD",
+            "MOD_KEYWORD_BURST_MINUTES",
+            "MOD_TOKEN_FLOOD_THRESHOLD",
+            "MOD_TOKEN_FLOOD_MINUTES"
+    );
+
+    private final Path file;
+    private final ModerationRules rules;
+    private final RuleSet.Definition baseline;
+    private WatchService watchService;
+    private Thread thread;
+    private String lastContent;
+
+    public ModerationRuleWatcher(Path file, ModerationRules rules, RuleSet.Definition baseline) {
+        this.file = file.toAbsolutePath();
+        this.rules = rules;
+        this.baseline = baseline;
+    }
+
+    public void start() throws IOException {
+        if (Files.exists(file)) {
+            reload();
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        file.getParent().register(
+                watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY
+        );
+        thread = new Thread(this::watch, "moderation-rule-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        System.out.println("[MODERATION] Watching " + file + " for rule changes.");
+    }
+
+    // Applies the file if its content changed since the last attempt; returns true if a new rule set went live.
+    public synchronized boolean reload() {
+        String content;
+        try {
+            content = Files.readString(file);
+        } catch (IOException error) {
+            System.err.println("[MODERATION] Rule reload skipped; cannot read " + file + ": " + error.getMessage());
+            return false;
+        }
+        if (content.equals(lastContent)) {
+            return false;
+        }
+        lastContent = content;
+        try {
+            RuleSet.Definition definition = parse(content, baseline);
+            rules.replace(definition);
+            return true;
+        } catch (RuntimeException error) {
+            System.err.println("[MODERATION] Rule reload rejected; keeping v" + rules.current().version()
+                    + ": " + error.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (watchService == null) {
+            return;
+        }
+        try {
+            watchService.close();
+        } catch (IOException error) {
+            System.err.println("[MODERATION] Failed to close rule watcher: " + error.getMessage());
+        }
+        thread.interrupt();
+    }
+
+    static RuleSet.Definition parse(String content, RuleSet.Definition baseline) {
+        Properties properties = new Properties();
+        try {
+            properties.load(new StringReader(content));
+        } catch (IOException | IllegalArgumentException error) {
+            throw new IllegalArgumentException("Malformed rules file: " + error.getMessage());
+        }
+        for (String key : properties.stringPropertyNames()) {
+            if (!KEYS.contains(key)) {
+                System.err.println("[MODERATION] Unknown rule key ignored: " + key);
+            }
+        }
+        List<String> keywords = properties.containsKey("MOD_SCAN_KEYWORDS")
+                ? parseList(properties.getProperty("MOD_SCAN_KEYWORDS"), "MOD_SCAN_KEYWORDS")
+                : baseline.keywords();
+        List<Pattern> blockedPatterns = properties.containsKey("MOD_BLOCKED_PATTERNS")
+                ? parsePatterns(properties.getProperty("MOD_BLOCKED_PATTERNS"))
+                : baseline.blockedPatterns();
+        int warn = parseInt(properties, "MOD_WARN_THRESHOLD", baseline.warnThreshold());
+        int delete = parseInt(properties, "MOD_DELETE_THRESHOLD", baseline.deleteThreshold());
+        int escalate = parseInt(properties, "MOD_ESCALATE_THRESHOLD", baseline.escalateThreshold());
+        if (warn > delete || delete > escalate) {
+            throw new IllegalArgumentException("Thresholds must satisfy warn <= delete <= escalate, got "
+                    + warn + " / " + delete + " / " + escalate);
+        }
+        Map<String, Integer> channelRiskProfiles = properties.containsKey("MOD_CHANNEL_RISK_SCORES")
+                ? parseChannelRiskProfiles(properties.getProperty("MOD_CHANNEL_RISK_SCORES"))
+                : baseline.channelRiskProfiles();
+        int burstThreshold = parseNonNegativeInt(
+                properties,
+                "MOD_KEYWORD_BURST_THRESHOLD",
+                baseline.keywordBurstThreshold()
+        );
+        int burstMinutes = parsePositiveInt(
+                properties,
+                "MOD_KEYWORD_BURST_MINUTES",
+                (int) baseline.keywordBurstWindow().toMinutes()
+        );
+        int floodThreshold = parseNonNegativeInt(
+                properties,
+                "MOD_TOKEN_FLOOD_THRESHOLD",
+                baseline.tokenFloodThreshold()
+        );
+        int floodMinutes = parsePositiveInt(
+                properties,
+                "MOD_TOKEN_FLOOD_MINUTES",
+                (int) baseline.tokenFloodWindow().toMinutes()
+        );
+        return new RuleSet.Definition(
+                keywords,
+                blockedPatterns,
+                warn,
+                delete,
+                escalate,
+                channelRiskProfiles,
+                burstThreshold,
+                Duration.ofMinutes(burstMinutes),
+                floodThreshold,
+                Duration.ofMinutes(floodMinutes)
+        );
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = containsFile(key);
+                if (!key.reset()) {
+                    System.err.println("[MODERATION] Rule watcher stopped; " + file.getParent() + " is gone.");
+                    return;
+                }
+                if (!changed) {
+                    continue;
+                }
+                // Editors and deploy tools write in several steps; let the burst settle and read once.
+                Thread.sleep(SETTLE_MILLIS);
+                for (WatchKey pending = watchService.poll(); pending != null; pending = watchService.poll()) {
+                    pending.pollEvents();
+                    pending.reset();
+                }
+                reload();
+            }
+        } catch (InterruptedException error) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ignored) {
+            // close() was called.
+        }
+    }
+
+    private boolean containsFile(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context())) {
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    // Same comma-separated formats BotConfig reads from the environment, but strict: one bad entry rejects the file.
+    private static List<String> parseList(String value, String key) {
+        List<String> entries = new ArrayList<>();
+        for (String entry : value.split(",")) {
+            if (!entry.isBlank()) {
+                entries.add(entry.trim());
+            }
+        }
+        if (entries.isEmpty()) {
+            throw new IllegalArgumentException(key + " is empty");
+        }
+        return entries;
+    }
+
+    private static List<Pattern> parsePatterns(String value) {
+        List<Pattern> patterns = new ArrayList<>();
+        for (String regex : parseList(value, "MOD_BLOCKED_PATTERNS")) {
+            try {
+                patterns.add(Pattern.compile(regex, Pattern.CASE_INSENSITIVE));
+            } catch (PatternSyntaxException error) {
+                throw new IllegalArgumentException("Invalid regex " + regex + ": " + error.getDescription());
+            }
+        }
+        return patterns;
+    }
+
+    private static int parseInt(Properties properties, String key, int fallback) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException error) {
+            throw new IllegalArgumentException(key + " is not a number: " + value);
+        }
+    }
+
+    private static int parsePositiveInt(Properties properties, String key, int fallback) {
+        int value = parseInt(properties, key, fallback);
+        if (value < 1) {
+            throw new IllegalArgumentException(key + " must be at least 1, got " + value);
+        }
+        return value;
+    }
+
+    // 0 turns the corresponding history term off.
+    private static int parseNonNegativeInt(Properties properties, String key, int fallback) {
+        int value = parseInt(properties, key, fallback);
+        if (value < 0) {
+            throw new IllegalArgumentException(key + " must not be negative, got " + value);
+        }
+        return value;
+    }
+
+    private static Map<String, Integer> parseChannelRiskProfiles(String value) {
+        Map<String, Integer> profiles = new HashMap<>();
+        for (String entry : value.split(",")) {
+            String trimmed = entry.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            String[] parts = trimmed.split(":", 2);
+            if (parts.length != 2 || parts[0].isBlank()) {
+                throw new IllegalArgumentException("Invalid channel risk score: " + trimmed);
+            }
+            try {
+                profiles.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+            } catch (NumberFormatException error) {
+                throw new IllegalArgumentException("Invalid channel risk score: " + trimmed);
+            }
+        }
+        return profiles;
+    }
+}
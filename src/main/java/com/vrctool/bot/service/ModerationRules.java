@@ -0,0 +1,33 @@
+package com.vrctool.bot.service;
+
+import com.vrctool.bot.config.BotConfig;
+import java.util.concurrent.atomic.AtomicReference;
+
+// The one RuleSet shared by the decision engine and the scan service. A new
+// set is compiled off to the side and published with a single reference
+// swap, so readers never block and never see a half-built set.
+public final class ModerationRules {
+    private final AtomicReference<RuleSet> current;
+
+    public ModerationRules(RuleSet initial) {
+        this.current = new AtomicReference<>(initial);
+    }
+
+    public static ModerationRules fromConfig(BotConfig config) {
+        return new ModerationRules(RuleSet.compile(1, RuleSet.Definition.fromConfig(config)));
+    }
+
+    public RuleSet current() {
+        return current.get();
+    }
+
+    // Compiles the definition into the next version and swaps it in; returns the published set.
+    public synchronized RuleSet replace(RuleSet.Definition definition) {
+        RuleSet next = RuleSet.compile(current.get().version() + 1, definition);
+        current.set(next);
+        System.out.println("[MODERATION] Rule set v" + next.version() + " active ("
+                + next.keywords().keywords().size() + " keywords, "
+                + next.blockedPatterns().patterns().size() + " blocked patterns).");
+        return next;
+    }
+}
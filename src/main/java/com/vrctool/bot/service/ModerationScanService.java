@@ -1,8 +1,8 @@
 package com.vrctool.bot.service;
 
 import com.vrctool.bot.config.BotConfig;
-import com.vrctool.bot.util.ModerationPatterns;
-import com.vrctool.bot.util.TextNormalizer;
+import com.vrctool.bot.util.NormalizedTokens;
+import com.vrctool.bot.util.TokenSequence;
 import java.time.Instant;
 import java.util.Comparator;
 import java.util.List;
@@ -11,7 +11,6 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.regex.Pattern;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.Member;
@@ -20,39 +19,26 @@ import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
 import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
 
 public class ModerationScanService {
-    private record KeywordPattern(String keyword, Pattern pattern) {}
-
-    private static final Pattern MINOR_REFERENCE_PATTERN = Pattern.compile(
-            "\\b(minor|underage|child|kid|teen|13|14|15|16|17)\\b",
-            Pattern.CASE_INSENSITIVE
-    );
-    private static final Pattern ADULT_REFERENCE_PATTERN = Pattern.compile(
-            "\\b(adult|18\\+|18\\s*plus|over\\s*18|18\\s*\\+)\\b",
-            Pattern.CASE_INSENSITIVE
-    );
-    private static final Pattern RELATIONSHIP_CONTEXT_PATTERN = Pattern.compile(
-            "\\b(cuddle|cuddling|dating|relationship|boyfriend|girlfriend|bf|gf|romantic|flirt|"
-                    + "kiss|sexual|dm|dms|messages|screenshots|evidence|proof|gifting|gifted)\\b",
-            Pattern.CASE_INSENSITIVE
-    );
-
     private final BotConfig config;
     private final ScheduledExecutorService scheduler;
     private final Map<String, String> lastMessageIds;
-    private final List<KeywordPattern> keywordPatterns;
     private final WordMemoryStore wordMemoryStore;
-    private final TextNormalizer textNormalizer;
+    private final ModerationRules rules;
+    private final MessageAnalysisCache analysisCache;
 
-    public ModerationScanService(BotConfig config, WordMemoryStore wordMemoryStore, TextNormalizer textNormalizer) {
+    public ModerationScanService(
+            BotConfig config,
+            WordMemoryStore wordMemoryStore,
+            ModerationRules rules,
+            MessageAnalysisCache analysisCache
+    ) {
         this.config = config;
         this.wordMemoryStore = wordMemoryStore;
-        this.textNormalizer = textNormalizer;
+        this.rules = rules;
+        this.analysisCache = analysisCache;
         int threadCount = Math.max(2, config.scanChannelIds().size());
         this.scheduler = Executors.newScheduledThreadPool(threadCount);
         this.lastMessageIds = new ConcurrentHashMap<>();
-        this.keywordPatterns = config.scanKeywords().stream()
-                .map(keyword -> new KeywordPattern(keyword, ModerationPatterns.compileKeywordPattern(keyword)))
-                .toList();
     }
 
     public void start(JDA jda) {
@@ -86,51 +72,36 @@ public class ModerationScanService {
     }
 
     private void processMessages(GuildMessageChannel channel, List<Message> messages) {
+        RuleSet ruleSet = rules.current();
         messages.stream()
                 .sorted(Comparator.comparing(Message::getTimeCreated))
                 .forEach(message -> {
                     if (message.getAuthor().isBot() || message.isWebhookMessage()) {
                         return;
                     }
+                    String content = message.getContentDisplay();
+                    // Messages the live pipeline already handled are served from the shared cache.
+                    TokenSequence text = analysisCache.analyze(message.getId(), content).text();
                     wordMemoryStore.recordMessage(
                             message.getGuild().getId(),
                             channel.getId(),
                             message.getAuthor().getId(),
-                            textNormalizer.normalize(message.getContentDisplay()),
+                            text.normalized(),
                             message.getTimeCreated().toInstant()
                     );
-                    String content = message.getContentDisplay();
-                    TextNormalizer.NormalizedResult normalizedResult = textNormalizer.normalizeAndExpand(content);
-                    String normalized = normalizedResult.normalized();
-                    String expanded = normalizedResult.expanded();
-                    if (isAgeGapConcern(content, normalized, expanded)) {
+                    NormalizedTokens normalized = text.normalized();
+                    NormalizedTokens expanded = text.expanded();
+                    if (ruleSet.isAgeGapConcern(content, normalized, expanded)) {
                         logFlag(channel, message, "age gap (adult/minor)");
                         return;
                     }
-                    for (KeywordPattern keywordPattern : keywordPatterns) {
-                        if (matchesAny(keywordPattern.pattern(), content, normalized, expanded)) {
-                            logFlag(channel, message, keywordPattern.keyword());
-                            break;
-                        }
+                    String matchedKeyword = ruleSet.keywords().firstMatch(content, normalized, expanded);
+                    if (matchedKeyword != null) {
+                        logFlag(channel, message, matchedKeyword);
                     }
                 });
     }
 
-    private static boolean matchesAny(Pattern pattern, String... candidates) {
-        for (String candidate : candidates) {
-            if (candidate != null && !candidate.isBlank() && pattern.matcher(candidate).find()) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private static boolean isAgeGapConcern(String content, String normalized, String expanded) {
-        return matchesAny(MINOR_REFERENCE_PATTERN, content, normalized, expanded)
-                && matchesAny(ADULT_REFERENCE_PATTERN, content, normalized, expanded)
-                && matchesAny(RELATIONSHIP_CONTEXT_PATTERN, content, normalized, expanded);
-    }
-
     private void updateLastId(GuildMessageChannel channel, List<Message> messages) {
         messages.stream()
                 .max(Comparator.comparing(Message::getTimeCreated))
@@ -0,0 +1,149 @@
+package com.vrctool.bot.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Fixed-capacity ring of a key's newest messages; the oldest entry is
+// overwritten once it is full, so memory per key is bounded by the capacity
+// rather than by how much the user wrote during the retention period. With
+// compression on, entries older than the newest HOT_ENTRIES are kept as
+// deflated UTF-8 (or raw UTF-8 when deflate does not help), so the common
+// "latest few messages" lookup never inflates anything. Writers hold the
+// owning stripe's write lock; arrays never resize and stored byte[] values are
+// never mutated, so a racy optimistic read stays in bounds.
+final class RecentMessageRing {
+    static final int HOT_ENTRIES = 8;
+
+    private static final byte RAW = 0;
+    private static final byte DEFLATED = 1;
+
+    private final long[] timestamps;
+    // Each slot holds a String, or a byte[] tagged with RAW/DEFLATED in its first byte.
+    private final Object[] contents;
+    private final boolean compressOlder;
+    private int head;
+    private int size;
+
+    RecentMessageRing(int capacity, boolean compressOlder) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.timestamps = new long[capacity];
+        this.contents = new Object[capacity];
+        this.compressOlder = compressOlder;
+    }
+
+    void add(long timestampMillis, String content) {
+        int slot = (head + size) % timestamps.length;
+        if (size == timestamps.length) {
+            head = (head + 1) % timestamps.length;
+        } else {
+            size++;
+        }
+        timestamps[slot] = timestampMillis;
+        contents[slot] = content;
+        if (compressOlder && size > HOT_ENTRIES) {
+            int cooled = (head + size - 1 - HOT_ENTRIES) % timestamps.length;
+            if (contents[cooled] instanceof String text) {
+                contents[cooled] = encode(text);
+            }
+        }
+    }
+
+    // Drops entries older than the cutoff; entries are in arrival order, which matches timestamp order for live traffic.
+    void removeOlderThan(long cutoffMillis) {
+        while (size > 0 && timestamps[head] < cutoffMillis) {
+            contents[head] = null;
+            head = (head + 1) % timestamps.length;
+            size--;
+        }
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    List<String> newest(int limit, long cutoffMillis) {
+        List<String> results = new ArrayList<>(Math.min(limit, size));
+        for (int offset = size - 1; offset >= 0 && results.size() < limit; offset--) {
+            int slot = (head + offset) % timestamps.length;
+            if (timestamps[slot] < cutoffMillis) {
+                break;
+            }
+            results.add(decode(contents[slot]));
+        }
+        return results;
+    }
+
+    // Oldest first, decoded.
+    List<WordMemorySnapshot.Message> messages() {
+        List<WordMemorySnapshot.Message> results = new ArrayList<>(size);
+        for (int offset = 0; offset < size; offset++) {
+            int slot = (head + offset) % timestamps.length;
+            results.add(new WordMemorySnapshot.Message(timestamps[slot], decode(contents[slot])));
+        }
+        return results;
+    }
+
+    private static byte[] encode(String text) {
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        try {
+            deflater.setInput(utf8);
+            deflater.finish();
+            byte[] buffer = new byte[utf8.length + 1];
+            buffer[0] = DEFLATED;
+            int length = 1;
+            while (!deflater.finished() && length < buffer.length) {
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+            if (deflater.finished() && length < buffer.length) {
+                return Arrays.copyOf(buffer, length);
+            }
+        } finally {
+            deflater.end();
+        }
+        // Short messages rarely shrink; keep them as tagged UTF-8.
+        byte[] raw = new byte[utf8.length + 1];
+        raw[0] = RAW;
+        System.arraycopy(utf8, 0, raw, 1, utf8.length);
+        return raw;
+    }
+
+    private static String decode(Object stored) {
+        if (!(stored instanceof byte[] bytes)) {
+            return (String) stored;
+        }
+        if (bytes[0] == RAW) {
+            return new String(bytes, 1, bytes.length - 1, StandardCharsets.UTF_8);
+        }
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(bytes, 1, bytes.length - 1);
+            ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length * 3);
+            byte[] chunk = new byte[256];
+            while (!inflater.finished()) {
+                int read = inflater.inflate(chunk);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                output.write(chunk, 0, read);
+            }
+            return output.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException corrupt) {
+            throw new IllegalStateException("Corrupt compressed message", corrupt);
+        } finally {
+            inflater.end();
+        }
+    }
+}
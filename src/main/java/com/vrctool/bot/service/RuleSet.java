@@ -0,0 +1,413 @@
+package com.vrctool.bot.service;
+
+import com.vrctool.bot.config.BotConfig;
+import com.vrctool.bot.util.BlockedPatternAutomaton;
+import com.vrctool.bot.util.KeywordAutomaton;
+import com.vrctool.bot.util.ModerationPatterns;
+import com.vrctool.bot.util.PatternPrefilter;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.regex.Pattern;
+
+// Everything the moderation rules match against, compiled once: the keyword
+// and blocked-pattern automatons, the contextual patterns, and the score
+// thresholds, history burst and flood limits, and channel risk scores. Immutable, so a consumer that reads
+// ModerationRules.current() once per message sees one consistent version
+// even if a newer set is swapped in mid-evaluation.
+public final class RuleSet {
+    // The hot-reloadable part of BotConfig, before compilation.
+    public record Definition(
+            List<String> keywords,
+            List<Pattern> blockedPatterns,
+            int warnThreshold,
+            int deleteThreshold,
+            int escalateThreshold,
+            Map<String, Integer> channelRiskProfiles,
+            int keywordBurstThreshold,
+            Duration keywordBurstWindow,
+            int tokenFloodThreshold,
+            Duration tokenFloodWindow
+    ) {
+        public Definition {
+            keywords = List.copyOf(keywords);
+            blockedPatterns = List.copyOf(blockedPatterns);
+            channelRiskProfiles = Map.copyOf(channelRiskProfiles);
+        }
+
+        public static Definition fromConfig(BotConfig config) {
+            return new Definition(
+                    config.scanKeywords(),
+                    config.blockedPatterns(),
+                    config.modWarnThreshold(),
+                    config.modDeleteThreshold(),
+                    config.modEscalateThreshold(),
+                    config.channelRiskProfiles(),
+                    config.modKeywordBurstThreshold(),
+                    Duration.ofMinutes(config.modKeywordBurstMinutes()),
+                    config.modTokenFloodThreshold(),
+                    Duration.ofMinutes(config.modTokenFloodMinutes())
+            );
+        }
+    }
+
+    private static final Pattern MINOR_REFERENCE_PATTERN = Pattern.compile(
+            "\\b(minor|underage|child|kid|teen|13|14|15|16|17)\\b",
+            Pattern.CASE_INSENSITIVE
+    );
+    private static final Pattern ADULT_REFERENCE_PATTERN = Pattern.compile(
+            "\\b(adult|18\\+|18\\s*plus|over\\s*18|18\\s*\\+)\\b",
+            Pattern.CASE_INSENSITIVE
+    );
+    private static final Pattern RELATIONSHIP_CONTEXT_PATTERN = Pattern.compile(
+            "\\b(cuddle|cuddling|dating|relationship|boyfriend|girlfriend|bf|gf|romantic|flirt|"
+                    + "kiss|sexual|dm|dms|messages|screenshots|evidence|proof|gifting|gifted)\\b",
+            Pattern.CASE_INSENSITIVE
+    );
+    private static final Pattern REPORT_CONTEXT_PATTERN = Pattern.compile(
+            "\\b(report|reported|reporting|screenshots|evidence|proof|log|logs)\\b",
+            Pattern.CASE_INSENSITIVE
+    );
+    private static final Pattern ACCUSATION_SUBJECT_PATTERN = Pattern.compile(
+            "\\b(you('|\\s)?re|u\\s*r|ur|he('|\\s)?s|she('|\\s)?s|they('|\\s)?re|"
+                    + "this\\s+(guy|girl|person)|that\\s+(guy|girl|person)|"
+                    + "him|her|them)\\b",
+            Pattern.CASE_INSENSITIVE
+    );
+    private static final Pattern ACCUSATION_TERM_PATTERN = Pattern.compile(
+            "\\b(pedo|pedophile|groomer|predator|creep|perv|pervert|abuser|rapist|"
+                    + "molester|harasser|stalker|sex\\s*offender|child\\s*abuser)\\b",
+            Pattern.CASE_INSENSITIVE
+    );
+    private static final Pattern PLAYFUL_CONTEXT_PATTERN = Pattern.compile(
+            "\\b(lol|lmao|lmfao|rofl|jk|j/k|just\\s+kidding|kidding|for\\s+fun|"
+                    + "just\\s+joking|joking|banter|teasing|only\\s+joking|messing\\s+around)\\b",
+            Pattern.CASE_INSENSITIVE
+    );
+
+    // Indexes into CONTEXT_PREFILTER.
+    private static final int MINOR_REFERENCE = 0;
+    private static final int ADULT_REFERENCE = 1;
+    private static final int RELATIONSHIP_CONTEXT = 2;
+    private static final int REPORT_CONTEXT = 3;
+    private static final int ACCUSATION_SUBJECT = 4;
+    private static final int ACCUSATION_TERM = 5;
+    private static final int PLAYFUL_CONTEXT = 6;
+    // The contextual patterns never change, so one prefilter (and its counters) serves every version.
+    private static final PatternPrefilter CONTEXT_PREFILTER = PatternPrefilter.compile(List.of(
+            MINOR_REFERENCE_PATTERN,
+            ADULT_REFERENCE_PATTERN,
+            RELATIONSHIP_CONTEXT_PATTERN,
+            REPORT_CONTEXT_PATTERN,
+            ACCUSATION_SUBJECT_PATTERN,
+            ACCUSATION_TERM_PATTERN,
+            PLAYFUL_CONTEXT_PATTERN
+    ));
+
+    public record ContextSignals(boolean ageGap, boolean report, boolean playful, boolean accusation) {}
+
+    // Everything the rule stage matches for one message; keyword is null when none matched.
+    public record Matches(String keyword, ContextSignals signals, BlockedPatternAutomaton.Result blocked) {}
+
+    private static final BlockedPatternAutomaton.Result NO_BLOCKED_MATCH = new BlockedPatternAutomaton.Result(null, null);
+
+    private final long version;
+    private final Definition definition;
+    private final KeywordAutomaton keywords;
+    private final BlockedPatternAutomaton blockedPatterns;
+
+    private RuleSet(
+            long version,
+            Definition definition,
+            KeywordAutomaton keywords,
+            BlockedPatternAutomaton blockedPatterns
+    ) {
+        this.version = version;
+        this.definition = definition;
+        this.keywords = keywords;
+        this.blockedPatterns = blockedPatterns;
+    }
+
+    public static RuleSet compile(long version, Definition definition) {
+        BlockedPatternAutomaton blocked = BlockedPatternAutomaton.compile(definition.blockedPatterns());
+        if (!blocked.fallbackPatterns().isEmpty()) {
+            System.out.println("[MODERATION] Blocked patterns using regex fallback: "
+                    + blocked.fallbackPatterns());
+        }
+        // Only fallback patterns backtrack; the automaton handles the rest in linear time.
+        for (Pattern pattern : blocked.fallbackPatterns()) {
+            String nested = ModerationPatterns.nestedQuantifier(pattern);
+            if (nested != null) {
+                System.err.println("[MODERATION] Blocked pattern " + pattern.pattern() + " nests quantifiers in "
+                        + nested + " and can backtrack catastrophically; its matches are time-limited.");
+            }
+        }
+        return new RuleSet(version, definition, KeywordAutomaton.compile(definition.keywords()), blocked);
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public Definition definition() {
+        return definition;
+    }
+
+    public int warnThreshold() {
+        return definition.warnThreshold();
+    }
+
+    public int deleteThreshold() {
+        return definition.deleteThreshold();
+    }
+
+    public int escalateThreshold() {
+        return definition.escalateThreshold();
+    }
+
+    public int keywordBurstThreshold() {
+        return definition.keywordBurstThreshold();
+    }
+
+    public Duration keywordBurstWindow() {
+        return definition.keywordBurstWindow();
+    }
+
+    public int tokenFloodThreshold() {
+        return definition.tokenFloodThreshold();
+    }
+
+    public Duration tokenFloodWindow() {
+        return definition.tokenFloodWindow();
+    }
+
+    public int channelRiskScore(String channelId) {
+        if (channelId == null || channelId.isBlank()) {
+            return 0;
+        }
+        return definition.channelRiskProfiles().getOrDefault(channelId, 0);
+    }
+
+    public KeywordAutomaton keywords() {
+        return keywords;
+    }
+
+    public BlockedPatternAutomaton blockedPatterns() {
+        return blockedPatterns;
+    }
+
+    // All contextual checks for one message, hashing its text once for the prefilter. The age-gap
+    // check only looks at the message itself; the others also look at the author's recent messages.
+    public ContextSignals contextSignals(
+            String content,
+            CharSequence normalized,
+            CharSequence expanded,
+            String recentContext
+    ) {
+        long[] message = PatternPrefilter.signature(content, normalized, expanded);
+        long[] withHistory = PatternPrefilter.extend(message, recentContext);
+        return new ContextSignals(
+                isAgeGapConcern(message, content, normalized, expanded),
+                CONTEXT_PREFILTER.find(REPORT_CONTEXT, withHistory, content, normalized, expanded, recentContext),
+                CONTEXT_PREFILTER.find(PLAYFUL_CONTEXT, withHistory, content, normalized, expanded, recentContext),
+                isAccusationContext(withHistory, content, normalized, expanded, recentContext)
+        );
+    }
+
+    public Matches match(MessageAnalysis analysis, String recentContext) {
+        CharSequence normalized = analysis.text().normalized();
+        CharSequence expanded = analysis.text().expanded();
+        int keyword = keywords.firstMatchIndex(analysis.content(), normalized, expanded);
+        return new Matches(
+                keyword < 0 ? null : keywords.keywords().get(keyword),
+                contextSignals(analysis.content(), normalized, expanded, recentContext),
+                blockedPatterns.match(
+                        analysis.sanitizedContent(),
+                        analysis.sanitizedText().normalized(),
+                        analysis.sanitizedText().expanded()
+                )
+        );
+    }
+
+    // Same result as match(analysis, recentContext), for very long messages: every text variant
+    // is scanned by the keyword and blocked-pattern automatons as its own task, and every
+    // contextual regex that passes the prefilter runs per candidate. A group stops as soon as its
+    // outcome is known (the first configured keyword or pattern, any candidate matching a
+    // contextual pattern, any age-gap part missing) and cancels its scans that have not started.
+    public Matches match(MessageAnalysis analysis, String recentContext, ForkJoinPool pool) {
+        String content = analysis.content();
+        CharSequence normalized = analysis.text().normalized();
+        CharSequence expanded = analysis.text().expanded();
+        long[] message = PatternPrefilter.signature(content, normalized, expanded);
+        long[] withHistory = PatternPrefilter.extend(message, recentContext);
+
+        CompletableFuture<Integer> keyword = earliest(
+                scans(pool, variant -> keywords.firstMatchIndex(variant), content, normalized, expanded),
+                -1,
+                index -> index < 0 ? Integer.MAX_VALUE : index
+        );
+        List<Pattern> blockedOrder = blockedPatterns.patterns();
+        CompletableFuture<BlockedPatternAutomaton.Result> blocked = earliest(
+                scans(
+                        pool,
+                        variant -> blockedPatterns.match(variant),
+                        analysis.sanitizedContent(),
+                        analysis.sanitizedText().normalized(),
+                        analysis.sanitizedText().expanded()
+                ),
+                NO_BLOCKED_MATCH,
+                // Among misses, keep one that reports a pattern over budget.
+                result -> result.pattern() != null
+                        ? blockedOrder.indexOf(result.pattern())
+                        : result.overBudget() != null ? Integer.MAX_VALUE - 1 : Integer.MAX_VALUE
+        );
+        CompletableFuture<Boolean> ageGap = allMatch(List.of(
+                () -> anyMatch(pool, MINOR_REFERENCE, message, content, normalized, expanded),
+                () -> anyMatch(pool, ADULT_REFERENCE, message, content, normalized, expanded),
+                () -> anyMatch(pool, RELATIONSHIP_CONTEXT, message, content, normalized, expanded)
+        ));
+        CompletableFuture<Boolean> report =
+                anyMatch(pool, REPORT_CONTEXT, withHistory, content, normalized, expanded, recentContext);
+        CompletableFuture<Boolean> playful =
+                anyMatch(pool, PLAYFUL_CONTEXT, withHistory, content, normalized, expanded, recentContext);
+        CompletableFuture<Boolean> accusation = allMatch(List.of(
+                () -> anyMatch(pool, ACCUSATION_TERM, withHistory, content, normalized, expanded, recentContext),
+                () -> anyMatch(pool, ACCUSATION_SUBJECT, withHistory, content, normalized, expanded, recentContext)
+        ));
+
+        int keywordIndex = keyword.join();
+        return new Matches(
+                keywordIndex < 0 ? null : keywords.keywords().get(keywordIndex),
+                new ContextSignals(ageGap.join(), report.join(), playful.join(), accusation.join()),
+                blocked.join()
+        );
+    }
+
+    public boolean isAgeGapConcern(CharSequence... candidates) {
+        return isAgeGapConcern(PatternPrefilter.signature(candidates), candidates);
+    }
+
+    public boolean isReportContext(CharSequence... candidates) {
+        return CONTEXT_PREFILTER.find(REPORT_CONTEXT, PatternPrefilter.signature(candidates), candidates);
+    }
+
+    public boolean isPlayfulContext(CharSequence... candidates) {
+        return CONTEXT_PREFILTER.find(PLAYFUL_CONTEXT, PatternPrefilter.signature(candidates), candidates);
+    }
+
+    public boolean isAccusationContext(CharSequence... candidates) {
+        return isAccusationContext(PatternPrefilter.signature(candidates), candidates);
+    }
+
+    public static PatternPrefilter.Stats contextPrefilterStats() {
+        return CONTEXT_PREFILTER.stats();
+    }
+
+    private static boolean isAgeGapConcern(long[] signature, CharSequence... candidates) {
+        return CONTEXT_PREFILTER.find(MINOR_REFERENCE, signature, candidates)
+                && CONTEXT_PREFILTER.find(ADULT_REFERENCE, signature, candidates)
+                && CONTEXT_PREFILTER.find(RELATIONSHIP_CONTEXT, signature, candidates);
+    }
+
+    private static CompletableFuture<Boolean> anyMatch(
+            ForkJoinPool pool,
+            int patternIndex,
+            long[] signature,
+            CharSequence... candidates
+    ) {
+        if (!CONTEXT_PREFILTER.admits(patternIndex, signature)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return earliest(
+                scans(pool, candidate -> CONTEXT_PREFILTER.matches(patternIndex, candidate), candidates),
+                false,
+                matched -> matched ? 0 : 1
+        );
+    }
+
+    // Starts the parts in order, but none after one the prefilter already ruled out.
+    private static CompletableFuture<Boolean> allMatch(List<Supplier<CompletableFuture<Boolean>>> parts) {
+        List<CompletableFuture<Boolean>> started = new ArrayList<>(parts.size());
+        for (Supplier<CompletableFuture<Boolean>> part : parts) {
+            CompletableFuture<Boolean> future = part.get();
+            if (future.isDone() && !future.join()) {
+                started.forEach(pending -> pending.cancel(false));
+                return future;
+            }
+            started.add(future);
+        }
+        return earliest(started, true, matched -> matched ? 1 : 0);
+    }
+
+    private static <T> List<CompletableFuture<T>> scans(
+            ForkJoinPool pool,
+            Function<CharSequence, T> scan,
+            CharSequence... variants
+    ) {
+        List<CompletableFuture<T>> scans = new ArrayList<>(variants.length);
+        for (CharSequence variant : variants) {
+            if (variant != null && !variant.isEmpty()) {
+                scans.add(CompletableFuture.supplyAsync(() -> scan.apply(variant), pool));
+            }
+        }
+        return scans;
+    }
+
+    // Completes with the lowest-ranked result: as soon as one ranks 0, otherwise once all are
+    // done (none when there are no parts). Either way the parts still pending are cancelled.
+    private static <T> CompletableFuture<T> earliest(List<CompletableFuture<T>> parts, T none, ToIntFunction<T> rank) {
+        if (parts.isEmpty()) {
+            return CompletableFuture.completedFuture(none);
+        }
+        Earliest<T> earliest = new Earliest<>(parts.size(), rank);
+        for (CompletableFuture<T> part : parts) {
+            part.whenComplete((value, error) -> {
+                if (error != null) {
+                    earliest.result.completeExceptionally(error);
+                } else {
+                    earliest.accept(value);
+                }
+            });
+        }
+        earliest.result.whenComplete((value, error) -> parts.forEach(part -> part.cancel(false)));
+        return earliest.result;
+    }
+
+    private static final class Earliest<T> {
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final ToIntFunction<T> rank;
+        private int remaining;
+        private T best;
+        private int bestRank;
+
+        private Earliest(int parts, ToIntFunction<T> rank) {
+            this.remaining = parts;
+            this.rank = rank;
+        }
+
+        private synchronized void accept(T value) {
+            int valueRank = rank.applyAsInt(value);
+            if (best == null || valueRank < bestRank) {
+                best = value;
+                bestRank = valueRank;
+            }
+            if (valueRank == 0) {
+                result.complete(value);
+            } else if (--remaining == 0) {
+                result.complete(best);
+            }
+        }
+    }
+
+    // The term check goes first: it is the selective one, while the subject pattern cannot be prefiltered.
+    private static boolean isAccusationContext(long[] signature, CharSequence... candidates) {
+        return CONTEXT_PREFILTER.find(ACCUSATION_TERM, signature, candidates)
+                && CONTEXT_PREFILTER.find(ACCUSATION_SUBJECT, signature, candidates);
+    }
+}
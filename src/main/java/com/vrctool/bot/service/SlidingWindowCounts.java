@@ -0,0 +1,135 @@
+package com.vrctool.bot.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Per-key ring buffers of time-bucketed token counts: 60 one-minute buckets and
+// 24 one-hour buckets. A slot is reused once the clock moves a full ring past
+// it, so nothing has to be pruned; queries sum the buckets that overlap the
+// window, which is at most 60 lookups. Writers hold the owning stripe's write
+// lock; readers validate with its stamp. Arrays never resize, so a racy read
+// stays in bounds.
+final class SlidingWindowCounts {
+    static final long MINUTE_MILLIS = 60_000L;
+    static final long HOUR_MILLIS = 60 * MINUTE_MILLIS;
+    static final long MAX_WINDOW_MILLIS = 24 * HOUR_MILLIS;
+
+    private final Ring minutes = new Ring(60, MINUTE_MILLIS);
+    private final Ring hours = new Ring(24, HOUR_MILLIS);
+
+    void add(long timestampMillis, int[] tokens) {
+        minutes.add(timestampMillis, tokens);
+        hours.add(timestampMillis, tokens);
+    }
+
+    // Windows up to an hour use minute buckets, longer ones (capped at 24h) hour buckets.
+    int tokenCount(int tokenId, long nowMillis, long windowMillis) {
+        return ringFor(windowMillis).sum(tokenId, nowMillis, windowMillis);
+    }
+
+    int totalTokens(long nowMillis, long windowMillis) {
+        return ringFor(windowMillis).sum(-1, nowMillis, windowMillis);
+    }
+
+    List<WordMemorySnapshot.Bucket> minuteBuckets() {
+        return minutes.buckets();
+    }
+
+    List<WordMemorySnapshot.Bucket> hourBuckets() {
+        return hours.buckets();
+    }
+
+    void restore(List<WordMemorySnapshot.Bucket> minuteBuckets, List<WordMemorySnapshot.Bucket> hourBuckets) {
+        minuteBuckets.forEach(bucket -> minutes.add(bucket.start(), bucket.tokens()));
+        hourBuckets.forEach(bucket -> hours.add(bucket.start(), bucket.tokens()));
+    }
+
+    private Ring ringFor(long windowMillis) {
+        return windowMillis <= minutes.spanMillis() ? minutes : hours;
+    }
+
+    private static final class Ring {
+        private final long bucketMillis;
+        private final long[] bucketStarts;
+        private final int[] totals;
+        private final IntCountTable[] counts;
+        private long latestStart = Long.MIN_VALUE;
+
+        private Ring(int buckets, long bucketMillis) {
+            this.bucketMillis = bucketMillis;
+            this.bucketStarts = new long[buckets];
+            this.totals = new int[buckets];
+            this.counts = new IntCountTable[buckets];
+            Arrays.fill(bucketStarts, Long.MIN_VALUE);
+        }
+
+        private long spanMillis() {
+            return bucketMillis * bucketStarts.length;
+        }
+
+        private void add(long timestampMillis, int[] tokens) {
+            long start = Math.floorDiv(timestampMillis, bucketMillis) * bucketMillis;
+            if (latestStart != Long.MIN_VALUE && start <= latestStart - spanMillis()) {
+                // Older than anything the ring still covers.
+                return;
+            }
+            latestStart = Math.max(latestStart, start);
+            int slot = slotOf(start);
+            if (bucketStarts[slot] != start) {
+                if (bucketStarts[slot] > start) {
+                    return;
+                }
+                bucketStarts[slot] = start;
+                totals[slot] = 0;
+                if (counts[slot] != null) {
+                    counts[slot].clear();
+                }
+            }
+            IntCountTable table = counts[slot];
+            if (table == null) {
+                table = new IntCountTable();
+                counts[slot] = table;
+            }
+            int total = 0;
+            for (int pair = 0; pair < tokens.length; pair += 2) {
+                table.add(tokens[pair], tokens[pair + 1]);
+                total += tokens[pair + 1];
+            }
+            totals[slot] += total;
+        }
+
+        // tokenId < 0 sums the bucket totals instead of one token.
+        private int sum(int tokenId, long nowMillis, long windowMillis) {
+            long windowStart = nowMillis - Math.min(windowMillis, spanMillis());
+            int sum = 0;
+            for (int slot = 0; slot < bucketStarts.length; slot++) {
+                long start = bucketStarts[slot];
+                if (start == Long.MIN_VALUE || start + bucketMillis <= windowStart || start > nowMillis) {
+                    continue;
+                }
+                if (tokenId < 0) {
+                    sum += totals[slot];
+                } else {
+                    IntCountTable table = counts[slot];
+                    sum += table == null ? 0 : table.get(tokenId);
+                }
+            }
+            return sum;
+        }
+
+        private List<WordMemorySnapshot.Bucket> buckets() {
+            List<WordMemorySnapshot.Bucket> result = new ArrayList<>();
+            for (int slot = 0; slot < bucketStarts.length; slot++) {
+                if (bucketStarts[slot] != Long.MIN_VALUE && counts[slot] != null && !counts[slot].isEmpty()) {
+                    result.add(new WordMemorySnapshot.Bucket(bucketStarts[slot], counts[slot].entries()));
+                }
+            }
+            return result;
+        }
+
+        private int slotOf(long start) {
+            return (int) Math.floorMod(Math.floorDiv(start, bucketMillis), (long) bucketStarts.length);
+        }
+    }
+}
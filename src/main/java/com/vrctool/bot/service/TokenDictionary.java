@@ -0,0 +1,92 @@
+package com.vrctool.bot.service;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Interns tokens to dense int ids shared by every key in the store. Each id is
+// reference-counted by the events that mention it; when the last one expires
+// the token is dropped and its id is handed out again, so the dictionary stays
+// proportional to the live vocabulary rather than everything ever seen.
+final class TokenDictionary {
+    private static final class Entry {
+        private final int id;
+        private int references;
+
+        private Entry(int id) {
+            this.id = id;
+        }
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile String[] tokens = new String[1024];
+    private int[] freeIds = new int[64];
+    private int freeCount;
+    private int nextId;
+
+    // Returns the token's id and takes one reference on it.
+    int acquire(String token) {
+        return acquire(token, 1);
+    }
+
+    int acquire(String token, int references) {
+        return entries.compute(token, (key, entry) -> {
+            Entry current = entry == null ? new Entry(allocate(key)) : entry;
+            current.references += references;
+            return current;
+        }).id;
+    }
+
+    void release(int id) {
+        String token = token(id);
+        if (token == null) {
+            return;
+        }
+        entries.computeIfPresent(token, (key, entry) -> {
+            if (--entry.references > 0) {
+                return entry;
+            }
+            free(entry.id);
+            return null;
+        });
+    }
+
+    // Returns -1 when the token is not currently referenced by any event.
+    int idOf(String token) {
+        Entry entry = entries.get(token);
+        return entry == null ? -1 : entry.id;
+    }
+
+    String token(int id) {
+        String[] current = tokens;
+        return id >= 0 && id < current.length ? current[id] : null;
+    }
+
+    // Copy of the id -> token table; freed ids are null.
+    synchronized String[] tokensById() {
+        return Arrays.copyOf(tokens, nextId);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private synchronized int allocate(String token) {
+        int id = freeCount > 0 ? freeIds[--freeCount] : nextId++;
+        String[] current = tokens;
+        if (id >= current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[id] = token;
+        tokens = current;
+        return id;
+    }
+
+    private synchronized void free(int id) {
+        tokens[id] = null;
+        if (freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeIds.length * 2);
+        }
+        freeIds[freeCount++] = id;
+    }
+}
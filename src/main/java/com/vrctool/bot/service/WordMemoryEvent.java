@@ -0,0 +1,18 @@
+package com.vrctool.bot.service;
+
+import java.util.Map;
+
+record WordMemoryEvent(
+        long timestampMillis,
+        String guildId,
+        String channelId,
+        String userId,
+        String content,
+        Map<String, Integer> tokenCounts,
+        long sequence
+) {
+    // Sequence numbers are assigned by the store; 0 means "not yet sequenced" (legacy JSONL, v1 segments).
+    WordMemoryEvent withSequence(long value) {
+        return new WordMemoryEvent(timestampMillis, guildId, channelId, userId, content, tokenCounts, value);
+    }
+}
@@ -0,0 +1,243 @@
+package com.vrctool.bot.service;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+// Segment layout: a 4-byte magic/version header followed by records of
+// [int payloadLength][int crc32(payload)][payload]. Ids and tokens are written
+// once per segment and referenced by index afterwards, so readers rebuild the
+// same dictionary in order. Readers stop at the first truncated or corrupt
+// record, so a crash mid-append loses at most that record. Version 2 adds the
+// store-assigned sequence number after the timestamp; version 1 segments are
+// still readable (sequence 0) but never appended to.
+final class WordMemorySegmentFormat {
+    static final int MAGIC_V1 = 0x574D5331;
+    static final int MAGIC = 0x574D5332;
+    static final int MAX_RECORD_BYTES = 1 << 20;
+
+    private static final int NULL_STRING = 0;
+    private static final int NEW_ENTRY = 0;
+
+    // encoder is null when the segment must not be appended to (damaged or an older version).
+    record ReadResult(boolean intact, Encoder encoder) {}
+
+    static final class Encoder {
+        private final Map<String, Integer> dictionary = new HashMap<>();
+
+        byte[] encode(WordMemoryEvent event) {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream(64);
+            writeLong(payload, event.timestampMillis());
+            writeLong(payload, event.sequence());
+            writeEntry(payload, event.guildId());
+            writeEntry(payload, event.channelId());
+            writeEntry(payload, event.userId());
+            writeString(payload, event.content());
+            Map<String, Integer> tokenCounts = event.tokenCounts() == null ? Map.of() : event.tokenCounts();
+            writeVarInt(payload, tokenCounts.size());
+            for (Map.Entry<String, Integer> entry : tokenCounts.entrySet()) {
+                writeEntry(payload, entry.getKey());
+                writeVarInt(payload, entry.getValue());
+            }
+            byte[] body = payload.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            return ByteBuffer.allocate(8 + body.length)
+                    .putInt(body.length)
+                    .putInt((int) crc.getValue())
+                    .put(body)
+                    .array();
+        }
+
+        private void writeEntry(ByteArrayOutputStream output, String value) {
+            Integer index = dictionary.get(value);
+            if (index != null) {
+                writeVarInt(output, index + 1);
+                return;
+            }
+            writeVarInt(output, NEW_ENTRY);
+            writeString(output, value);
+            dictionary.put(value, dictionary.size());
+        }
+    }
+
+    private static final class Decoder {
+        private final List<String> dictionary = new ArrayList<>();
+        private final boolean sequenced;
+
+        private Decoder(boolean sequenced) {
+            this.sequenced = sequenced;
+        }
+
+        private WordMemoryEvent decode(ByteBuffer payload) {
+            int mark = dictionary.size();
+            try {
+                long timestampMillis = payload.getLong();
+                long sequence = sequenced ? payload.getLong() : 0L;
+                String guildId = readEntry(payload);
+                String channelId = readEntry(payload);
+                String userId = readEntry(payload);
+                String content = readString(payload);
+                int tokenCount = readVarInt(payload);
+                Map<String, Integer> tokenCounts = new HashMap<>(Math.max(4, tokenCount * 2));
+                for (int index = 0; index < tokenCount; index++) {
+                    tokenCounts.put(readEntry(payload), readVarInt(payload));
+                }
+                return new WordMemoryEvent(timestampMillis, guildId, channelId, userId, content, tokenCounts, sequence);
+            } catch (RuntimeException malformed) {
+                dictionary.subList(mark, dictionary.size()).clear();
+                throw malformed;
+            }
+        }
+
+        private String readEntry(ByteBuffer input) {
+            int reference = readVarInt(input);
+            if (reference != NEW_ENTRY) {
+                if (reference > dictionary.size()) {
+                    throw new IllegalArgumentException("Unknown dictionary entry " + reference);
+                }
+                return dictionary.get(reference - 1);
+            }
+            String value = readString(input);
+            dictionary.add(value);
+            return value;
+        }
+
+        private Encoder resumeEncoder() {
+            Encoder encoder = new Encoder();
+            for (int index = 0; index < dictionary.size(); index++) {
+                encoder.dictionary.put(dictionary.get(index), index);
+            }
+            return encoder;
+        }
+    }
+
+    private WordMemorySegmentFormat() {}
+
+    static void writeHeader(OutputStream output) throws IOException {
+        output.write(ByteBuffer.allocate(4).putInt(MAGIC).array());
+    }
+
+    static boolean hasHeader(Path file) throws IOException {
+        try (InputStream input = Files.newInputStream(file)) {
+            byte[] header = input.readNBytes(4);
+            if (header.length != 4) {
+                return false;
+            }
+            int magic = ByteBuffer.wrap(header).getInt();
+            return magic == MAGIC || magic == MAGIC_V1;
+        }
+    }
+
+    // The returned encoder continues the segment's dictionary, so appends can resume after an intact read.
+    static ReadResult read(Path file, Consumer<WordMemoryEvent> sink) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            int magic = input.readInt();
+            if (magic != MAGIC && magic != MAGIC_V1) {
+                return new ReadResult(false, null);
+            }
+            Decoder decoder = new Decoder(magic == MAGIC);
+            CRC32 crc = new CRC32();
+            byte[] buffer = new byte[256];
+            while (true) {
+                int length;
+                try {
+                    length = input.readInt();
+                } catch (EOFException end) {
+                    return new ReadResult(true, decoder.sequenced ? decoder.resumeEncoder() : null);
+                }
+                if (length < 0 || length > MAX_RECORD_BYTES) {
+                    return new ReadResult(false, null);
+                }
+                int checksum;
+                try {
+                    checksum = input.readInt();
+                    if (buffer.length < length) {
+                        buffer = new byte[Math.max(length, buffer.length * 2)];
+                    }
+                    input.readFully(buffer, 0, length);
+                } catch (EOFException truncated) {
+                    return new ReadResult(false, null);
+                }
+                crc.reset();
+                crc.update(buffer, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    return new ReadResult(false, null);
+                }
+                try {
+                    sink.accept(decoder.decode(ByteBuffer.wrap(buffer, 0, length)));
+                } catch (BufferUnderflowException | IllegalArgumentException malformed) {
+                    return new ReadResult(false, null);
+                }
+            }
+        } catch (EOFException emptyFile) {
+            return new ReadResult(false, null);
+        }
+    }
+
+    private static void writeString(ByteArrayOutputStream output, String value) {
+        if (value == null) {
+            writeVarInt(output, NULL_STRING);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(output, bytes.length + 1);
+        output.write(bytes, 0, bytes.length);
+    }
+
+    private static String readString(ByteBuffer input) {
+        int length = readVarInt(input);
+        if (length == NULL_STRING) {
+            return null;
+        }
+        int byteCount = length - 1;
+        if (byteCount > input.remaining()) {
+            throw new IllegalArgumentException("String exceeds record");
+        }
+        String value = new String(input.array(), input.arrayOffset() + input.position(), byteCount, StandardCharsets.UTF_8);
+        input.position(input.position() + byteCount);
+        return value;
+    }
+
+    private static void writeLong(ByteArrayOutputStream output, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            output.write((int) (value >>> shift));
+        }
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream output, int value) {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            output.write((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        output.write(remaining);
+    }
+
+    private static int readVarInt(ByteBuffer input) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte next = input.get();
+            value |= (next & 0x7F) << shift;
+            if ((next & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+}
@@ -0,0 +1,256 @@
+package com.vrctool.bot.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Events are bucketed by timestamp into segment-<bucketStartMillis>-<seq>.wms files.
+// Retention deletes whole buckets, and a segment that failed a write or ended in a
+// corrupt record is never appended to again; the next event for its bucket opens
+// a fresh sequence number instead.
+final class WordMemorySegmentLog {
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)-(\\d+)\\.wms");
+    private static final String LEGACY_SEGMENT = "events.wms";
+
+    private record SegmentFile(long bucketStart, int sequence, Path path) {}
+
+    private record ActiveSegment(SegmentFile file, WordMemorySegmentFormat.Encoder encoder) {}
+
+    private final Path directory;
+    private final long spanMillis;
+    private final TreeMap<Long, List<SegmentFile>> buckets;
+    private final Map<Long, ActiveSegment> active;
+
+    WordMemorySegmentLog(Path directory, Duration span) {
+        this.directory = directory;
+        this.spanMillis = Math.max(1, span.toMillis());
+        this.buckets = new TreeMap<>();
+        this.active = new HashMap<>();
+    }
+
+    Path directory() {
+        return directory;
+    }
+
+    synchronized int segmentCount() {
+        return buckets.values().stream().mapToInt(List::size).sum();
+    }
+
+    // Returns the number of segments that ended in a truncated or corrupt record.
+    // Segments below the covered sequence for their bucket are registered for
+    // retention but not read, because a snapshot already holds their contents.
+    synchronized int load(
+            long cutoffMillis,
+            Map<Long, Integer> covered,
+            Consumer<WordMemoryEvent> sink
+    ) throws IOException {
+        buckets.clear();
+        active.clear();
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+        List<SegmentFile> segments = new ArrayList<>();
+        Path legacy = null;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.wms")) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                Matcher matcher = SEGMENT_NAME.matcher(name);
+                if (matcher.matches()) {
+                    segments.add(new SegmentFile(
+                            Long.parseLong(matcher.group(1)),
+                            Integer.parseInt(matcher.group(2)),
+                            file
+                    ));
+                } else if (name.equals(LEGACY_SEGMENT)) {
+                    legacy = file;
+                }
+            }
+        }
+        segments.sort(Comparator.comparingLong(SegmentFile::bucketStart).thenComparingInt(SegmentFile::sequence));
+
+        int damaged = 0;
+        for (SegmentFile segment : segments) {
+            if (isExpired(segment.bucketStart(), cutoffMillis)) {
+                Files.deleteIfExists(segment.path());
+                continue;
+            }
+            buckets.computeIfAbsent(segment.bucketStart(), ignored -> new ArrayList<>()).add(segment);
+            if (segment.sequence() < covered.getOrDefault(segment.bucketStart(), 0)) {
+                continue;
+            }
+            WordMemorySegmentFormat.ReadResult result = WordMemorySegmentFormat.read(segment.path(), event -> {
+                if (event.timestampMillis() >= cutoffMillis) {
+                    sink.accept(event);
+                }
+            });
+            if (!result.intact()) {
+                damaged++;
+            }
+            if (result.encoder() != null) {
+                active.put(segment.bucketStart(), new ActiveSegment(segment, result.encoder()));
+            } else {
+                active.remove(segment.bucketStart());
+            }
+        }
+
+        if (legacy != null) {
+            List<WordMemoryEvent> migrated = new ArrayList<>();
+            WordMemorySegmentFormat.read(legacy, event -> {
+                if (event.timestampMillis() >= cutoffMillis) {
+                    migrated.add(event);
+                }
+            });
+            for (WordMemoryEvent event : migrated) {
+                sink.accept(event);
+                append(event);
+            }
+            Files.delete(legacy);
+        }
+        return damaged;
+    }
+
+    synchronized void append(WordMemoryEvent event) throws IOException {
+        appendAll(List.of(event), false);
+    }
+
+    // Writes a batch with one open/write/close per touched segment, optionally forcing it to disk.
+    synchronized void appendAll(List<WordMemoryEvent> batch, boolean fsync) throws IOException {
+        Map<Long, List<WordMemoryEvent>> byBucket = new TreeMap<>();
+        for (WordMemoryEvent event : batch) {
+            byBucket.computeIfAbsent(bucketStart(event.timestampMillis()), ignored -> new ArrayList<>()).add(event);
+        }
+        IOException failure = null;
+        for (Map.Entry<Long, List<WordMemoryEvent>> bucket : byBucket.entrySet()) {
+            try {
+                appendToBucket(bucket.getKey(), bucket.getValue(), fsync);
+            } catch (IOException error) {
+                failure = error;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void appendToBucket(long bucketStart, List<WordMemoryEvent> events, boolean fsync) throws IOException {
+        ActiveSegment segment = active.get(bucketStart);
+        boolean created = segment == null;
+        if (created) {
+            int sequence = nextSequence(bucketStart);
+            Path path = directory.resolve("segment-" + bucketStart + "-" + sequence + ".wms");
+            segment = new ActiveSegment(
+                    new SegmentFile(bucketStart, sequence, path),
+                    new WordMemorySegmentFormat.Encoder()
+            );
+            buckets.computeIfAbsent(bucketStart, ignored -> new ArrayList<>()).add(segment.file());
+        }
+        try {
+            ByteArrayOutputStream records = new ByteArrayOutputStream(events.size() * 64 + 4);
+            if (created) {
+                WordMemorySegmentFormat.writeHeader(records);
+            }
+            for (WordMemoryEvent event : events) {
+                records.write(segment.encoder().encode(event));
+            }
+            Files.createDirectories(directory);
+            try (FileChannel channel = FileChannel.open(
+                    segment.file().path(),
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND
+            )) {
+                ByteBuffer buffer = ByteBuffer.wrap(records.toByteArray());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                if (fsync) {
+                    channel.force(false);
+                }
+            }
+        } catch (IOException error) {
+            // The encoder may reference dictionary entries that never reached disk; roll to a new file.
+            active.remove(bucketStart);
+            throw error;
+        }
+        if (created) {
+            active.put(bucketStart, segment);
+        }
+    }
+
+    // Closes every active segment so later appends start new sequence numbers, and
+    // returns the first uncovered sequence per bucket for a snapshot to record.
+    synchronized Map<Long, Integer> roll() {
+        active.clear();
+        Map<Long, Integer> covered = new HashMap<>();
+        for (Long bucketStart : buckets.keySet()) {
+            covered.put(bucketStart, nextSequence(bucketStart));
+        }
+        return covered;
+    }
+
+    // Reads every live segment in file order; used for exports, not for recovery.
+    synchronized void readAll(long cutoffMillis, Consumer<WordMemoryEvent> sink) throws IOException {
+        for (List<SegmentFile> files : buckets.values()) {
+            for (SegmentFile segment : files) {
+                if (!Files.exists(segment.path())) {
+                    continue;
+                }
+                WordMemorySegmentFormat.read(segment.path(), event -> {
+                    if (event.timestampMillis() >= cutoffMillis) {
+                        sink.accept(event);
+                    }
+                });
+            }
+        }
+    }
+
+    // Deletes every bucket that ends at or before the cutoff; events inside a live bucket stay on disk.
+    synchronized int dropExpired(long cutoffMillis) throws IOException {
+        int deleted = 0;
+        for (Iterator<Map.Entry<Long, List<SegmentFile>>> iterator = buckets.entrySet().iterator(); iterator.hasNext();) {
+            Map.Entry<Long, List<SegmentFile>> bucket = iterator.next();
+            if (!isExpired(bucket.getKey(), cutoffMillis)) {
+                break;
+            }
+            for (SegmentFile segment : bucket.getValue()) {
+                Files.deleteIfExists(segment.path());
+                deleted++;
+            }
+            active.remove(bucket.getKey());
+            iterator.remove();
+        }
+        return deleted;
+    }
+
+    private boolean isExpired(long bucketStart, long cutoffMillis) {
+        return bucketStart + spanMillis <= cutoffMillis;
+    }
+
+    private long bucketStart(long timestampMillis) {
+        return Math.floorDiv(timestampMillis, spanMillis) * spanMillis;
+    }
+
+    private int nextSequence(long bucketStart) {
+        List<SegmentFile> files = buckets.get(bucketStart);
+        if (files == null || files.isEmpty()) {
+            return 0;
+        }
+        return files.get(files.size() - 1).sequence() + 1;
+    }
+}
@@ -0,0 +1,232 @@
+package com.vrctool.bot.service;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+// Point-in-time image of the aggregated word memory state. Layout:
+// [magic][version][createdMillis][watermark][bucketMillis][covered segments]
+// [token table][keys...][crc32 of everything before it]. Token ids are the
+// dictionary ids at write time and are remapped on load. The file is written
+// to a temp name and moved into place, and read through a read-only mapping.
+final class WordMemorySnapshot {
+    static final int MAGIC = 0x574D534E;
+    static final int VERSION = 1;
+
+    // tokens holds [tokenId, count] pairs.
+    record Bucket(long start, int[] tokens) {}
+
+    record Message(long timestampMillis, String content) {}
+
+    record KeySection(
+            String guildId,
+            String channelId,
+            String userId,
+            List<Bucket> retentionBuckets,
+            List<Bucket> minuteBuckets,
+            List<Bucket> hourBuckets,
+            List<Message> messages
+    ) {}
+
+    // watermark is the highest event sequence included; covered maps bucket start to first unread sequence.
+    record Contents(
+            long createdMillis,
+            long watermark,
+            long bucketMillis,
+            Map<Long, Integer> covered,
+            String[] tokens,
+            List<KeySection> keys
+    ) {}
+
+    static final class CorruptSnapshotException extends IOException {
+        CorruptSnapshotException(String message) {
+            super(message);
+        }
+    }
+
+    private WordMemorySnapshot() {}
+
+    static void write(Path file, Contents contents) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        CRC32 crc = new CRC32();
+        try (OutputStream raw = Files.newOutputStream(
+                temp,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE
+        )) {
+            DataOutputStream output = new DataOutputStream(
+                    new CheckedOutputStream(new BufferedOutputStream(raw, 1 << 16), crc)
+            );
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(contents.createdMillis());
+            output.writeLong(contents.watermark());
+            output.writeLong(contents.bucketMillis());
+            output.writeInt(contents.covered().size());
+            for (Map.Entry<Long, Integer> entry : contents.covered().entrySet()) {
+                output.writeLong(entry.getKey());
+                output.writeInt(entry.getValue());
+            }
+            String[] tokens = contents.tokens();
+            output.writeInt(tokens.length);
+            for (String token : tokens) {
+                writeString(output, token);
+            }
+            output.writeInt(contents.keys().size());
+            for (KeySection key : contents.keys()) {
+                writeString(output, key.guildId());
+                writeString(output, key.channelId());
+                writeString(output, key.userId());
+                writeBuckets(output, key.retentionBuckets());
+                writeBuckets(output, key.minuteBuckets());
+                writeBuckets(output, key.hourBuckets());
+                output.writeInt(key.messages().size());
+                for (Message message : key.messages()) {
+                    output.writeLong(message.timestampMillis());
+                    writeString(output, message.content());
+                }
+            }
+            output.flush();
+            int checksum = (int) crc.getValue();
+            raw.write(ByteBuffer.allocate(4).putInt(checksum).array());
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Returns null when there is no snapshot file.
+    static Contents read(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 8 || size > Integer.MAX_VALUE) {
+                throw new CorruptSnapshotException("Unexpected snapshot size " + size);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            ByteBuffer body = mapped.duplicate().limit((int) size - 4);
+            CRC32 crc = new CRC32();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != mapped.getInt((int) size - 4)) {
+                throw new CorruptSnapshotException("Snapshot checksum mismatch");
+            }
+            try {
+                return parse(body);
+            } catch (BufferUnderflowException | IllegalArgumentException malformed) {
+                throw new CorruptSnapshotException("Malformed snapshot: " + malformed);
+            }
+        }
+    }
+
+    private static Contents parse(ByteBuffer input) throws CorruptSnapshotException {
+        if (input.getInt() != MAGIC || input.getInt() != VERSION) {
+            throw new CorruptSnapshotException("Unsupported snapshot header");
+        }
+        long createdMillis = input.getLong();
+        long watermark = input.getLong();
+        long bucketMillis = input.getLong();
+        int coveredCount = readCount(input);
+        Map<Long, Integer> covered = new HashMap<>(Math.max(4, coveredCount * 2));
+        for (int index = 0; index < coveredCount; index++) {
+            covered.put(input.getLong(), input.getInt());
+        }
+        String[] tokens = new String[readCount(input)];
+        for (int index = 0; index < tokens.length; index++) {
+            tokens[index] = readString(input);
+        }
+        int keyCount = readCount(input);
+        List<KeySection> keys = new ArrayList<>(keyCount);
+        for (int index = 0; index < keyCount; index++) {
+            String guildId = readString(input);
+            String channelId = readString(input);
+            String userId = readString(input);
+            List<Bucket> retentionBuckets = readBuckets(input);
+            List<Bucket> minuteBuckets = readBuckets(input);
+            List<Bucket> hourBuckets = readBuckets(input);
+            int messageCount = readCount(input);
+            List<Message> messages = new ArrayList<>(messageCount);
+            for (int message = 0; message < messageCount; message++) {
+                messages.add(new Message(input.getLong(), readString(input)));
+            }
+            keys.add(new KeySection(guildId, channelId, userId, retentionBuckets, minuteBuckets, hourBuckets, messages));
+        }
+        return new Contents(createdMillis, watermark, bucketMillis, covered, tokens, keys);
+    }
+
+    private static void writeBuckets(DataOutputStream output, List<Bucket> buckets) throws IOException {
+        output.writeInt(buckets.size());
+        for (Bucket bucket : buckets) {
+            output.writeLong(bucket.start());
+            int[] tokens = bucket.tokens();
+            output.writeInt(tokens.length);
+            for (int value : tokens) {
+                output.writeInt(value);
+            }
+        }
+    }
+
+    private static List<Bucket> readBuckets(ByteBuffer input) {
+        int count = readCount(input);
+        List<Bucket> buckets = new ArrayList<>(count);
+        for (int index = 0; index < count; index++) {
+            long start = input.getLong();
+            int[] tokens = new int[readCount(input)];
+            input.asIntBuffer().get(tokens);
+            input.position(input.position() + tokens.length * 4);
+            buckets.add(new Bucket(start, tokens));
+        }
+        return buckets;
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(ByteBuffer input) {
+        int length = input.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > input.remaining()) {
+            throw new IllegalArgumentException("String exceeds snapshot");
+        }
+        byte[] bytes = new byte[length];
+        input.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int readCount(ByteBuffer input) {
+        int count = input.getInt();
+        if (count < 0 || count > input.remaining()) {
+            throw new IllegalArgumentException("Invalid count " + count);
+        }
+        return count;
+    }
+}
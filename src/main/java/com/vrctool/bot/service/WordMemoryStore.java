@@ -2,96 +2,305 @@ package com.vrctool.bot.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vrctool.bot.util.NormalizedTokens;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
-import java.util.Iterator;
 
+// State is striped by MemoryKey: each stripe owns a StampedLock and the event
+// deque for its keys, so writers for different users never contend. Reads
+// validate an optimistic stamp and fall back to the stripe's read lock.
+// Tokens are interned once in a shared dictionary and per-key counts are
+// open-addressing int tables, so recording does not box counts or duplicate
+// token strings. Instead of keeping every event, each key aggregates counts
+// into retention buckets (1/720 of the retention period, an hour by default)
+// that expire as a whole, so lifetime counts may include events up to one
+// bucket older than retention. Alongside them sit a running total and
+// minute/hour ring buffers for windowed queries such as "keyword hits in the
+// last 10 minutes". Recent messages live in a
+// fixed-size ring per key, since callers only ever ask for the last few.
+// Pruning and periodic snapshots run on a background thread; startup restores
+// the latest snapshot and replays only the log written after it, so it no
+// longer scales with retention.
 public class WordMemoryStore {
     private record MemoryKey(String guildId, String channelId, String userId) {}
 
-    private record MemoryEvent(
-            long timestampMillis,
-            String guildId,
-            String channelId,
-            String userId,
-            String content,
-            Map<String, Integer> tokenCounts
-    ) {}
+    // Enables the write-behind writer; null keeps synchronous appends.
+    public record WriteBehind(int queueCapacity, int maxBatchSize, Duration maxLatency, boolean fsync) {}
 
-    private record MemoryMessage(
-            long timestampMillis,
-            String content
-    ) {}
+    // Caps the recent messages kept per key; compressOlder deflates all but the newest few.
+    public record MessageHistory(int capacity, boolean compressOlder) {}
+
+    // Each token id in a bucket holds one dictionary reference until the bucket expires.
+    private static final class RetentionBucket {
+        private final long start;
+        private final IntCountTable counts = new IntCountTable();
+        private int total;
+
+        private RetentionBucket(long start) {
+            this.start = start;
+        }
+    }
+
+    private static final class KeyState {
+        private final IntCountTable counts = new IntCountTable();
+        private final Deque<RetentionBucket> buckets = new ArrayDeque<>();
+        private final SlidingWindowCounts windows = new SlidingWindowCounts();
+        private final RecentMessageRing messages;
+        private volatile int totalTokens;
+
+        private KeyState(MessageHistory messageHistory) {
+            this.messages = new RecentMessageRing(messageHistory.capacity(), messageHistory.compressOlder());
+        }
+    }
+
+    private static final class Stripe {
+        private final StampedLock lock = new StampedLock();
+    }
 
     private static final ObjectMapper MAPPER = new ObjectMapper();
     private static final Pattern TOKEN_SPLIT = Pattern.compile("[^\\p{L}\\p{N}]+");
     private static final Duration DEFAULT_RETENTION = Duration.ofDays(30);
+    private static final Duration DEFAULT_SEGMENT_SPAN = Duration.ofHours(1);
+    private static final Duration PRUNE_INTERVAL = Duration.ofSeconds(30);
+    private static final MessageHistory DEFAULT_MESSAGE_HISTORY = new MessageHistory(20, false);
+    private static final int STRIPES = 64;
+    // Bounds how far lifetime counts can outlive retention; buckets are sparse, so finer ones cost little heap.
+    private static final int RETENTION_BUCKETS = 720;
+    private static final String SNAPSHOT_FILE = "snapshot.wmsnap";
 
     private final Path path;
+    private final WordMemorySegmentLog segmentLog;
+    private final WordMemoryWriter writer;
+    private final MessageHistory messageHistory;
     private final Duration retention;
-    private final Deque<MemoryEvent> events;
-    private final Map<MemoryKey, Map<String, Integer>> counts;
-    private final Map<MemoryKey, Deque<MemoryMessage>> recentMessages;
+    private final Stripe[] stripes;
+    private final Map<MemoryKey, KeyState> states;
+    private final TokenDictionary dictionary;
+    private final AtomicLong sequences;
+    private final long bucketMillis;
+    private final Path snapshotPath;
+    private final ScheduledExecutorService maintenance;
+    private volatile boolean snapshotsEnabled;
 
     public WordMemoryStore(Path path) {
         this(path, DEFAULT_RETENTION);
     }
 
     public WordMemoryStore(Path path, Duration retention) {
+        this(path, retention, DEFAULT_SEGMENT_SPAN);
+    }
+
+    public WordMemoryStore(Path path, WriteBehind writeBehind) {
+        this(path, writeBehind, DEFAULT_MESSAGE_HISTORY);
+    }
+
+    public WordMemoryStore(Path path, WriteBehind writeBehind, MessageHistory messageHistory) {
+        this(path, DEFAULT_RETENTION, DEFAULT_SEGMENT_SPAN, writeBehind, messageHistory);
+    }
+
+    public WordMemoryStore(Path path, Duration retention, Duration segmentSpan) {
+        this(path, retention, segmentSpan, null);
+    }
+
+    public WordMemoryStore(Path path, Duration retention, Duration segmentSpan, WriteBehind writeBehind) {
+        this(path, retention, segmentSpan, writeBehind, DEFAULT_MESSAGE_HISTORY);
+    }
+
+    public WordMemoryStore(
+            Path path,
+            Duration retention,
+            Duration segmentSpan,
+            WriteBehind writeBehind,
+            MessageHistory messageHistory
+    ) {
+        this.messageHistory = Objects.requireNonNull(messageHistory, "messageHistory");
+        if (messageHistory.capacity() < 1) {
+            throw new IllegalArgumentException("messageHistory capacity must be positive");
+        }
         this.path = Objects.requireNonNull(path, "path");
         this.retention = Objects.requireNonNull(retention, "retention");
-        this.events = new ArrayDeque<>();
-        this.counts = new HashMap<>();
-        this.recentMessages = new HashMap<>();
+        this.segmentLog = new WordMemorySegmentLog(
+                resolveSegmentDirectory(path),
+                Objects.requireNonNull(segmentSpan, "segmentSpan")
+        );
+        this.writer = writeBehind == null ? null : new WordMemoryWriter(
+                segmentLog,
+                writeBehind.queueCapacity(),
+                writeBehind.maxBatchSize(),
+                writeBehind.maxLatency(),
+                writeBehind.fsync()
+        );
+        this.stripes = new Stripe[STRIPES];
+        for (int index = 0; index < STRIPES; index++) {
+            stripes[index] = new Stripe();
+        }
+        this.states = new ConcurrentHashMap<>();
+        this.dictionary = new TokenDictionary();
+        this.sequences = new AtomicLong();
+        this.bucketMillis = Math.max(SlidingWindowCounts.MINUTE_MILLIS, retention.toMillis() / RETENTION_BUCKETS);
+        this.snapshotPath = segmentLog.directory().resolve(SNAPSHOT_FILE);
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "word-memory-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = Math.max(1, Math.min(PRUNE_INTERVAL.toMillis(), retention.toMillis()));
+        maintenance.scheduleWithFixedDelay(this::pruneSafely, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
     }
 
-    public synchronized void load() {
-        if (!Files.exists(path)) {
-            return;
+    public void load() {
+        long started = System.nanoTime();
+        long cutoffMillis = Instant.now().minus(retention).toEpochMilli();
+        WordMemorySnapshot.Contents snapshot = readSnapshot();
+        long watermark = snapshot == null ? 0 : snapshot.watermark();
+        if (snapshot != null) {
+            restoreSnapshot(snapshot);
+            sequences.set(watermark);
+        }
+        List<WordMemoryEvent> replayed = new ArrayList<>();
+        try {
+            int damaged = segmentLog.load(
+                    cutoffMillis,
+                    snapshot == null ? Map.of() : snapshot.covered(),
+                    event -> {
+                        // Events at or below the watermark are already in the snapshot.
+                        if (snapshot == null || event.sequence() > watermark) {
+                            replayed.add(event);
+                        }
+                    }
+            );
+            if (damaged > 0) {
+                System.err.println("[WORD_MEMORY] Dropped truncated or corrupt tails in " + damaged + " segments.");
+            }
+        } catch (IOException e) {
+            System.err.println("[WORD_MEMORY] Failed to read store: " + e.getMessage());
+        }
+        replayed.sort(Comparator.comparingLong(WordMemoryEvent::timestampMillis));
+        for (WordMemoryEvent event : replayed) {
+            addEvent(event);
+            sequences.accumulateAndGet(event.sequence(), Math::max);
+        }
+        prune(Instant.now());
+        if (snapshot == null && segmentLog.segmentCount() == 0) {
+            migrateLegacyJsonl();
         }
-        boolean compactNeeded = false;
+        System.out.println("[WORD_MEMORY] Loaded " + states.size() + " keys ("
+                + (snapshot == null ? "no snapshot" : "snapshot of " + snapshot.keys().size() + " keys")
+                + ", replayed " + replayed.size() + " events) in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) + "ms.");
+    }
+
+    // Writes a snapshot every interval, and once more on close.
+    public void scheduleSnapshots(Duration interval) {
+        long intervalMillis = Math.max(1000, interval.toMillis());
+        snapshotsEnabled = true;
+        maintenance.scheduleWithFixedDelay(this::snapshotSafely, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Holds every stripe's write lock just long enough to copy the state and roll
+    // the active segments; the file itself is written after the locks are released.
+    public void snapshot() throws IOException {
+        long[] stamps = new long[STRIPES];
+        WordMemorySnapshot.Contents contents;
+        for (int index = 0; index < STRIPES; index++) {
+            stamps[index] = stripes[index].lock.writeLock();
+        }
+        try {
+            long watermark = sequences.get();
+            Map<Long, Integer> covered = segmentLog.roll();
+            List<WordMemorySnapshot.KeySection> keys = new ArrayList<>(states.size());
+            for (Map.Entry<MemoryKey, KeyState> entry : states.entrySet()) {
+                keys.add(toSection(entry.getKey(), entry.getValue()));
+            }
+            contents = new WordMemorySnapshot.Contents(
+                    System.currentTimeMillis(),
+                    watermark,
+                    bucketMillis,
+                    covered,
+                    dictionary.tokensById(),
+                    keys
+            );
+        } finally {
+            for (int index = STRIPES - 1; index >= 0; index--) {
+                stripes[index].lock.unlockWrite(stamps[index]);
+            }
+        }
+        WordMemorySnapshot.write(snapshotPath, contents);
+    }
+
+    public int importJsonl(Path source) {
+        int imported = 0;
         Instant now = Instant.now();
-        try (BufferedReader reader = Files.newBufferedReader(path)) {
+        try (BufferedReader reader = Files.newBufferedReader(source)) {
             String line;
             while ((line = reader.readLine()) != null) {
                 if (line.isBlank()) {
                     continue;
                 }
                 try {
-                    MemoryEvent event = MAPPER.readValue(line, MemoryEvent.class);
+                    WordMemoryEvent event = MAPPER.readValue(line, WordMemoryEvent.class);
                     if (isExpired(event, now)) {
-                        compactNeeded = true;
                         continue;
                     }
-                    addEvent(event);
+                    persistEvent(addEvent(event.withSequence(0)));
+                    imported++;
                 } catch (JsonProcessingException e) {
-                    compactNeeded = true;
                     System.err.println("[WORD_MEMORY] Invalid JSONL entry skipped.");
                 }
             }
         } catch (IOException e) {
-            System.err.println("[WORD_MEMORY] Failed to read store: " + e.getMessage());
+            System.err.println("[WORD_MEMORY] Failed to import JSONL: " + e.getMessage());
         }
-        if (compactNeeded) {
-            rewriteFile();
+        return imported;
+    }
+
+    // Exports the persisted log; events still queued in the write-behind writer are not included.
+    public void exportJsonl(Path target) throws IOException {
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        List<WordMemoryEvent> persisted = new ArrayList<>();
+        segmentLog.readAll(Instant.now().minus(retention).toEpochMilli(), persisted::add);
+        persisted.sort(Comparator.comparingLong(WordMemoryEvent::timestampMillis));
+        try (BufferedWriter writer = Files.newBufferedWriter(
+                target,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING
+        )) {
+            for (WordMemoryEvent event : persisted) {
+                writer.write(MAPPER.writeValueAsString(event));
+                writer.newLine();
+            }
         }
     }
 
-    public synchronized void recordMessage(
+    public void recordMessage(
             String guildId,
             String channelId,
             String userId,
@@ -105,25 +314,70 @@ public class WordMemoryStore {
         if (tokens.isEmpty()) {
             return;
         }
-        Map<String, Integer> tokenCounts = buildTokenCounts(tokens);
-        MemoryEvent event = new MemoryEvent(
+        record(guildId, channelId, userId, content, buildTokenCounts(tokens), timestamp);
+    }
+
+    // Records an already normalized message without tokenizing it again: unigrams
+    // come straight from the token offsets and bigrams are one slice of the buffer.
+    public void recordMessage(
+            String guildId,
+            String channelId,
+            String userId,
+            NormalizedTokens tokens,
+            Instant timestamp
+    ) {
+        if (tokens == null || tokens.isEmpty()) {
+            return;
+        }
+        Map<String, Integer> tokenCounts = new HashMap<>(tokens.size() * 4);
+        for (int index = 0; index < tokens.size(); index++) {
+            tokenCounts.merge(tokens.token(index), 1, Integer::sum);
+            if (index + 1 < tokens.size()) {
+                String bigram = tokens.subSequence(tokens.start(index), tokens.end(index + 1)).toString();
+                tokenCounts.merge(bigram, 1, Integer::sum);
+            }
+        }
+        record(guildId, channelId, userId, tokens.toString(), tokenCounts, timestamp);
+    }
+
+    private void record(
+            String guildId,
+            String channelId,
+            String userId,
+            String content,
+            Map<String, Integer> tokenCounts,
+            Instant timestamp
+    ) {
+        WordMemoryEvent event = new WordMemoryEvent(
                 timestamp.toEpochMilli(),
                 guildId,
                 channelId,
                 userId,
                 content,
-                tokenCounts
+                tokenCounts,
+                0
         );
-        boolean compactNeeded = prune(Instant.now());
-        addEvent(event);
-        if (compactNeeded) {
-            rewriteFile();
-        } else {
-            appendEvent(event);
+        persistEvent(addEvent(event));
+    }
+
+    // Stops background work, drains queued write-behind events and writes a final
+    // snapshot if snapshots are scheduled; returns false if the writer timed out.
+    public boolean close(Duration timeout) {
+        maintenance.shutdownNow();
+        boolean drained = true;
+        if (writer != null) {
+            drained = writer.close(timeout);
+            WordMemoryWriter.WriterStats stats = writer.stats();
+            System.out.println("[WORD_MEMORY] Writer closed: written=" + stats.written()
+                    + ", flushes=" + stats.flushes() + ", failedFlushes=" + stats.failedFlushes() + ".");
+        }
+        if (snapshotsEnabled) {
+            snapshotSafely();
         }
+        return drained;
     }
 
-    public synchronized List<String> getRecentMessages(
+    public List<String> getRecentMessages(
             String guildId,
             String channelId,
             String userId,
@@ -133,30 +387,15 @@ public class WordMemoryStore {
             return List.of();
         }
         MemoryKey key = new MemoryKey(guildId, channelId, userId);
-        Deque<MemoryMessage> messages = recentMessages.get(key);
-        if (messages == null || messages.isEmpty()) {
-            return List.of();
-        }
-        pruneMessages(messages, Instant.now());
-        if (messages.isEmpty()) {
+        KeyState state = states.get(key);
+        if (state == null) {
             return List.of();
         }
-        List<String> results = new ArrayList<>();
-        int count = 0;
-        for (Iterator<MemoryMessage> iterator = messages.descendingIterator(); iterator.hasNext();) {
-            MemoryMessage message = iterator.next();
-            if (message.content() != null && !message.content().isBlank()) {
-                results.add(message.content());
-                count++;
-                if (count >= limit) {
-                    break;
-                }
-            }
-        }
-        return results;
+        long cutoffMillis = Instant.now().minus(retention).toEpochMilli();
+        return optimisticRead(stripeFor(key), () -> state.messages.newest(limit, cutoffMillis));
     }
 
-    public synchronized int getTokenCount(
+    public int getTokenCount(
             String guildId,
             String channelId,
             String userId,
@@ -166,127 +405,386 @@ public class WordMemoryStore {
             return 0;
         }
         String normalized = normalizeToken(token);
+        int tokenId = dictionary.idOf(normalized);
+        if (tokenId < 0) {
+            return 0;
+        }
         MemoryKey key = new MemoryKey(guildId, channelId, userId);
-        Map<String, Integer> tokenCounts = counts.get(key);
-        if (tokenCounts == null) {
+        KeyState state = states.get(key);
+        if (state == null) {
             return 0;
         }
-        return tokenCounts.getOrDefault(normalized, 0);
+        return optimisticRead(stripeFor(key), () -> state.counts.get(tokenId));
     }
 
-    public synchronized Map<String, Integer> getTokenCounts(
+    // Counts hits within the window (bucket-aligned, capped at 24 hours and at the retention period).
+    public int getTokenCount(
+            String guildId,
+            String channelId,
+            String userId,
+            String token,
+            Duration window
+    ) {
+        if (token == null || token.isBlank()) {
+            return 0;
+        }
+        int tokenId = dictionary.idOf(normalizeToken(token));
+        if (tokenId < 0) {
+            return 0;
+        }
+        MemoryKey key = new MemoryKey(guildId, channelId, userId);
+        KeyState state = states.get(key);
+        if (state == null) {
+            return 0;
+        }
+        long windowMillis = windowMillis(window);
+        long nowMillis = System.currentTimeMillis();
+        return optimisticRead(stripeFor(key), () -> state.windows.tokenCount(tokenId, nowMillis, windowMillis));
+    }
+
+    // Sum of all token counts for the key over the retention period, kept as a running total.
+    public int getTotalTokenCount(String guildId, String channelId, String userId) {
+        KeyState state = states.get(new MemoryKey(guildId, channelId, userId));
+        return state == null ? 0 : state.totalTokens;
+    }
+
+    public int getTotalTokenCount(String guildId, String channelId, String userId, Duration window) {
+        MemoryKey key = new MemoryKey(guildId, channelId, userId);
+        KeyState state = states.get(key);
+        if (state == null) {
+            return 0;
+        }
+        long windowMillis = windowMillis(window);
+        long nowMillis = System.currentTimeMillis();
+        return optimisticRead(stripeFor(key), () -> state.windows.totalTokens(nowMillis, windowMillis));
+    }
+
+    public Map<String, Integer> getTokenCounts(
             String guildId,
             String channelId,
             String userId
     ) {
         MemoryKey key = new MemoryKey(guildId, channelId, userId);
-        Map<String, Integer> tokenCounts = counts.get(key);
-        if (tokenCounts == null) {
+        KeyState state = states.get(key);
+        if (state == null) {
             return Map.of();
         }
+        // The stamp keeps the copy from straddling a half-applied event.
+        int[] entries = optimisticRead(stripeFor(key), state.counts::entries);
+        Map<String, Integer> tokenCounts = new HashMap<>(Math.max(4, entries.length));
+        for (int index = 0; index < entries.length; index += 2) {
+            String token = dictionary.token(entries[index]);
+            if (token != null) {
+                tokenCounts.put(token, entries[index + 1]);
+            }
+        }
         return Map.copyOf(tokenCounts);
     }
 
-    private void addEvent(MemoryEvent event) {
+    // Returns the event stamped with its sequence number (kept if it already has one).
+    private WordMemoryEvent addEvent(WordMemoryEvent event) {
         if (event == null) {
-            return;
+            return null;
         }
-        events.addLast(event);
         MemoryKey key = new MemoryKey(event.guildId(), event.channelId(), event.userId());
-        Map<String, Integer> tokenCounts = counts.computeIfAbsent(key, ignored -> new HashMap<>());
-        for (Map.Entry<String, Integer> entry : event.tokenCounts().entrySet()) {
-            tokenCounts.merge(entry.getKey(), entry.getValue(), Integer::sum);
-        }
-        if (event.content() != null && !event.content().isBlank()) {
-            Deque<MemoryMessage> messages = recentMessages.computeIfAbsent(key, ignored -> new ArrayDeque<>());
-            messages.addLast(new MemoryMessage(event.timestampMillis(), event.content()));
-        }
-    }
-
-    private boolean prune(Instant now) {
-        boolean removed = false;
-        while (!events.isEmpty() && isExpired(events.peekFirst(), now)) {
-            MemoryEvent expired = events.removeFirst();
-            MemoryKey key = new MemoryKey(expired.guildId(), expired.channelId(), expired.userId());
-            Map<String, Integer> tokenCounts = counts.get(key);
-            if (tokenCounts != null) {
-                for (Map.Entry<String, Integer> entry : expired.tokenCounts().entrySet()) {
-                    tokenCounts.merge(entry.getKey(), -entry.getValue(), Integer::sum);
-                    if (tokenCounts.get(entry.getKey()) <= 0) {
-                        tokenCounts.remove(entry.getKey());
-                    }
-                }
-                if (tokenCounts.isEmpty()) {
-                    counts.remove(key);
+        Map<String, Integer> tokenCounts = event.tokenCounts() == null ? Map.of() : event.tokenCounts();
+        long bucketStart = Math.floorDiv(event.timestampMillis(), bucketMillis) * bucketMillis;
+        Stripe stripe = stripeFor(key);
+        long stamp = stripe.lock.writeLock();
+        try {
+            WordMemoryEvent stamped = event.sequence() > 0 ? event : event.withSequence(sequences.incrementAndGet());
+            KeyState state = states.computeIfAbsent(key, ignored -> new KeyState(messageHistory));
+            RetentionBucket bucket = bucketFor(state, bucketStart);
+            int[] tokens = new int[tokenCounts.size() * 2];
+            int index = 0;
+            for (Map.Entry<String, Integer> entry : tokenCounts.entrySet()) {
+                int tokenId = referencedId(bucket, entry.getKey());
+                if (tokenId < 0) {
+                    tokenId = dictionary.acquire(entry.getKey());
                 }
+                int count = entry.getValue();
+                bucket.counts.add(tokenId, count);
+                bucket.total += count;
+                state.counts.add(tokenId, count);
+                state.totalTokens += count;
+                tokens[index++] = tokenId;
+                tokens[index++] = count;
             }
-            Deque<MemoryMessage> messages = recentMessages.get(key);
-            if (messages != null) {
-                pruneMessages(messages, now);
-                if (messages.isEmpty()) {
-                    recentMessages.remove(key);
-                }
+            state.windows.add(event.timestampMillis(), tokens);
+            if (event.content() != null && !event.content().isBlank()) {
+                state.messages.add(event.timestampMillis(), event.content());
             }
-            removed = true;
+            return stamped;
+        } finally {
+            stripe.lock.unlockWrite(stamp);
         }
-        return removed;
     }
 
-    private boolean isExpired(MemoryEvent event, Instant now) {
-        Instant timestamp = Instant.ofEpochMilli(event.timestampMillis());
-        return timestamp.isBefore(now.minus(retention));
+    // Returns the token's id if this bucket already holds a reference to it, else -1.
+    // The name check guards against an id that was freed and handed to another token.
+    private int referencedId(RetentionBucket bucket, String token) {
+        int tokenId = dictionary.idOf(token);
+        if (tokenId < 0 || bucket.counts.get(tokenId) == 0) {
+            return -1;
+        }
+        return token.equals(dictionary.token(tokenId)) ? tokenId : -1;
     }
 
-    private void appendEvent(MemoryEvent event) {
-        try {
-            ensureParentDirectory();
-            try (BufferedWriter writer = Files.newBufferedWriter(path, java.nio.file.StandardOpenOption.CREATE, java.nio.file.StandardOpenOption.APPEND)) {
-                writer.write(MAPPER.writeValueAsString(event));
-                writer.newLine();
+    // Buckets are kept in start order; late events search back from the newest.
+    private static RetentionBucket bucketFor(KeyState state, long bucketStart) {
+        RetentionBucket newest = state.buckets.peekLast();
+        if (newest != null && newest.start == bucketStart) {
+            return newest;
+        }
+        if (newest == null || newest.start < bucketStart) {
+            RetentionBucket bucket = new RetentionBucket(bucketStart);
+            state.buckets.addLast(bucket);
+            return bucket;
+        }
+        for (RetentionBucket existing : state.buckets) {
+            if (existing.start == bucketStart) {
+                return existing;
             }
+        }
+        List<RetentionBucket> ordered = new ArrayList<>(state.buckets);
+        RetentionBucket bucket = new RetentionBucket(bucketStart);
+        ordered.add(bucket);
+        ordered.sort(Comparator.comparingLong(existing -> existing.start));
+        state.buckets.clear();
+        state.buckets.addAll(ordered);
+        return bucket;
+    }
+
+    void prune(Instant now) {
+        long cutoffMillis = now.minus(retention).toEpochMilli();
+        for (Map.Entry<MemoryKey, KeyState> entry : states.entrySet()) {
+            Stripe stripe = stripeFor(entry.getKey());
+            long stamp = stripe.lock.writeLock();
+            try {
+                expire(entry.getKey(), entry.getValue(), cutoffMillis);
+            } finally {
+                stripe.lock.unlockWrite(stamp);
+            }
+        }
+        try {
+            segmentLog.dropExpired(cutoffMillis);
         } catch (IOException e) {
-            System.err.println("[WORD_MEMORY] Failed to append event: " + e.getMessage());
+            System.err.println("[WORD_MEMORY] Failed to delete expired segments: " + e.getMessage());
         }
     }
 
-    private void rewriteFile() {
+    private void pruneSafely() {
         try {
-            ensureParentDirectory();
-            try (BufferedWriter writer = Files.newBufferedWriter(path, java.nio.file.StandardOpenOption.CREATE, java.nio.file.StandardOpenOption.TRUNCATE_EXISTING)) {
-                for (MemoryEvent event : events) {
-                    writer.write(MAPPER.writeValueAsString(event));
-                    writer.newLine();
-                }
+            prune(Instant.now());
+        } catch (RuntimeException error) {
+            System.err.println("[WORD_MEMORY] Background prune failed: " + error.getMessage());
+        }
+    }
+
+    private void snapshotSafely() {
+        try {
+            long started = System.nanoTime();
+            snapshot();
+            System.out.println("[WORD_MEMORY] Snapshot written in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) + "ms.");
+        } catch (IOException | RuntimeException error) {
+            System.err.println("[WORD_MEMORY] Snapshot failed: " + error.getMessage());
+        }
+    }
+
+    // Caller holds the stripe's write lock. Buckets expire once they end at or before the cutoff,
+    // so a bucket's oldest events outlive retention by less than bucketMillis.
+    private void expire(MemoryKey key, KeyState state, long cutoffMillis) {
+        while (!state.buckets.isEmpty() && state.buckets.peekFirst().start + bucketMillis <= cutoffMillis) {
+            RetentionBucket expired = state.buckets.removeFirst();
+            int[] entries = expired.counts.entries();
+            for (int pair = 0; pair < entries.length; pair += 2) {
+                state.counts.add(entries[pair], -entries[pair + 1]);
+                dictionary.release(entries[pair]);
+            }
+            state.totalTokens -= expired.total;
+        }
+        state.messages.removeOlderThan(cutoffMillis);
+        if (state.buckets.isEmpty() && state.messages.isEmpty()) {
+            states.remove(key);
+        }
+    }
+
+    private WordMemorySnapshot.Contents readSnapshot() {
+        try {
+            WordMemorySnapshot.Contents contents = WordMemorySnapshot.read(snapshotPath);
+            if (contents != null && contents.bucketMillis() != bucketMillis) {
+                System.out.println("[WORD_MEMORY] Retention changed since the last snapshot; replaying the full log.");
+                return null;
             }
+            return contents;
         } catch (IOException e) {
-            System.err.println("[WORD_MEMORY] Failed to compact store: " + e.getMessage());
+            System.err.println("[WORD_MEMORY] Ignoring unreadable snapshot: " + e.getMessage());
+            return null;
         }
     }
 
-    private void ensureParentDirectory() throws IOException {
-        Path parent = path.getParent();
-        if (parent != null) {
-            Files.createDirectories(parent);
+    private void restoreSnapshot(WordMemorySnapshot.Contents contents) {
+        String[] tokens = contents.tokens();
+        // One dictionary call per distinct token, taking all of its bucket references at once.
+        int[] references = new int[tokens.length];
+        for (WordMemorySnapshot.KeySection section : contents.keys()) {
+            for (WordMemorySnapshot.Bucket saved : section.retentionBuckets()) {
+                int[] entries = saved.tokens();
+                for (int pair = 0; pair + 1 < entries.length; pair += 2) {
+                    if (tokenAt(tokens, entries[pair]) != null) {
+                        references[entries[pair]]++;
+                    }
+                }
+            }
+        }
+        int[] ids = new int[tokens.length];
+        for (int index = 0; index < tokens.length; index++) {
+            ids[index] = references[index] > 0 ? dictionary.acquire(tokens[index], references[index]) : -1;
+        }
+        for (WordMemorySnapshot.KeySection section : contents.keys()) {
+            MemoryKey key = new MemoryKey(section.guildId(), section.channelId(), section.userId());
+            KeyState state = new KeyState(messageHistory);
+            for (WordMemorySnapshot.Bucket saved : section.retentionBuckets()) {
+                RetentionBucket bucket = new RetentionBucket(saved.start());
+                int[] entries = saved.tokens();
+                for (int pair = 0; pair + 1 < entries.length; pair += 2) {
+                    if (tokenAt(tokens, entries[pair]) == null) {
+                        continue;
+                    }
+                    int tokenId = ids[entries[pair]];
+                    bucket.counts.add(tokenId, entries[pair + 1]);
+                    bucket.total += entries[pair + 1];
+                    state.counts.add(tokenId, entries[pair + 1]);
+                }
+                state.totalTokens += bucket.total;
+                state.buckets.addLast(bucket);
+            }
+            state.windows.restore(remap(section.minuteBuckets(), ids), remap(section.hourBuckets(), ids));
+            for (WordMemorySnapshot.Message message : section.messages()) {
+                state.messages.add(message.timestampMillis(), message.content());
+            }
+            states.put(key, state);
         }
     }
 
-    private void pruneMessages(Deque<MemoryMessage> messages, Instant now) {
-        if (messages == null) {
-            return;
+    // Window buckets only hold tokens that some retention bucket still references.
+    private static List<WordMemorySnapshot.Bucket> remap(List<WordMemorySnapshot.Bucket> buckets, int[] ids) {
+        List<WordMemorySnapshot.Bucket> remapped = new ArrayList<>(buckets.size());
+        for (WordMemorySnapshot.Bucket bucket : buckets) {
+            int[] entries = bucket.tokens();
+            int[] mapped = new int[entries.length];
+            int index = 0;
+            for (int pair = 0; pair + 1 < entries.length; pair += 2) {
+                int tokenId = entries[pair] >= 0 && entries[pair] < ids.length ? ids[entries[pair]] : -1;
+                if (tokenId >= 0) {
+                    mapped[index++] = tokenId;
+                    mapped[index++] = entries[pair + 1];
+                }
+            }
+            remapped.add(new WordMemorySnapshot.Bucket(bucket.start(), Arrays.copyOf(mapped, index)));
         }
-        while (!messages.isEmpty()) {
-            MemoryMessage first = messages.peekFirst();
-            if (first == null) {
-                messages.removeFirst();
-                continue;
+        return remapped;
+    }
+
+    private static String tokenAt(String[] tokens, int id) {
+        return id >= 0 && id < tokens.length ? tokens[id] : null;
+    }
+
+    // Caller holds every stripe's write lock.
+    private WordMemorySnapshot.KeySection toSection(MemoryKey key, KeyState state) {
+        List<WordMemorySnapshot.Bucket> retentionBuckets = new ArrayList<>(state.buckets.size());
+        for (RetentionBucket bucket : state.buckets) {
+            retentionBuckets.add(new WordMemorySnapshot.Bucket(bucket.start, bucket.counts.entries()));
+        }
+        return new WordMemorySnapshot.KeySection(
+                key.guildId(),
+                key.channelId(),
+                key.userId(),
+                retentionBuckets,
+                state.windows.minuteBuckets(),
+                state.windows.hourBuckets(),
+                state.messages.messages()
+        );
+    }
+
+    private long windowMillis(Duration window) {
+        long requested = Math.max(0, window.toMillis());
+        return Math.min(requested, Math.min(SlidingWindowCounts.MAX_WINDOW_MILLIS, retention.toMillis()));
+    }
+
+    private Stripe stripeFor(MemoryKey key) {
+        int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    // Runs the reader without locking and retries under the read lock if a writer
+    // got in the way, either by changing the stamp or by tripping the reader.
+    private static <T> T optimisticRead(Stripe stripe, Supplier<T> reader) {
+        long stamp = stripe.lock.tryOptimisticRead();
+        if (stamp != 0L) {
+            try {
+                T result = reader.get();
+                if (stripe.lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException racedWithWriter) {
+                // Fall back to the read lock below.
             }
-            Instant timestamp = Instant.ofEpochMilli(first.timestampMillis());
-            if (timestamp.isBefore(now.minus(retention))) {
-                messages.removeFirst();
+        }
+        stamp = stripe.lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            stripe.lock.unlockRead(stamp);
+        }
+    }
+
+    private boolean isExpired(WordMemoryEvent event, Instant now) {
+        Instant timestamp = Instant.ofEpochMilli(event.timestampMillis());
+        return timestamp.isBefore(now.minus(retention));
+    }
+
+    private void migrateLegacyJsonl() {
+        try {
+            if (!Files.isRegularFile(path) || WordMemorySegmentFormat.hasHeader(path)) {
+                return;
+            }
+            Path migrated = path.resolveSibling(path.getFileName() + ".migrated");
+            Files.move(path, migrated, StandardCopyOption.REPLACE_EXISTING);
+            int imported = importJsonl(migrated);
+            System.out.println("[WORD_MEMORY] Migrated " + imported + " JSONL events to " + segmentLog.directory()
+                    + "; original kept at " + migrated + ".");
+        } catch (IOException e) {
+            System.err.println("[WORD_MEMORY] Failed to migrate JSONL store: " + e.getMessage());
+        }
+    }
+
+    private void persistEvent(WordMemoryEvent event) {
+        if (event == null) {
+            return;
+        }
+        try {
+            if (writer != null) {
+                writer.enqueue(event);
             } else {
-                break;
+                segmentLog.append(event);
             }
+        } catch (IOException e) {
+            System.err.println("[WORD_MEMORY] Failed to append event: " + e.getMessage());
+        }
+    }
+
+    // "data/word_memory.jsonl" keeps its segments in "data/word_memory/"; the JSONL file is only read for migration.
+    private static Path resolveSegmentDirectory(Path path) {
+        Path absolute = path.toAbsolutePath();
+        if (Files.isDirectory(absolute)) {
+            return absolute;
         }
+        String name = absolute.getFileName().toString();
+        int extension = name.lastIndexOf('.');
+        String base = extension > 0 ? name.substring(0, extension) : name + "-segments";
+        return absolute.resolveSibling(base);
     }
 
     private static List<String> tokenizeContent(String content) {
@@ -0,0 +1,150 @@
+package com.vrctool.bot.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Write-behind appender: callers enqueue events and a single writer thread
+// group-commits them. The writer blocks for the first event, then keeps
+// collecting until the batch is full or maxLatency has passed, and writes the
+// whole batch with one open/write/close per segment. A full queue blocks the
+// caller, which is the back-pressure signal that the disk cannot keep up.
+final class WordMemoryWriter {
+    record WriterStats(long enqueued, long written, long flushes, long failedFlushes, int queued) {}
+
+    private static final WordMemoryEvent STOP = new WordMemoryEvent(0, null, null, null, null, Map.of(), 0);
+
+    private final WordMemorySegmentLog segmentLog;
+    private final BlockingQueue<WordMemoryEvent> queue;
+    private final int maxBatchSize;
+    private final long maxLatencyNanos;
+    private final boolean fsync;
+    private final Thread thread;
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private volatile boolean closed;
+
+    WordMemoryWriter(
+            WordMemorySegmentLog segmentLog,
+            int queueCapacity,
+            int maxBatchSize,
+            Duration maxLatency,
+            boolean fsync
+    ) {
+        this.segmentLog = segmentLog;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxLatencyNanos = Math.max(0, maxLatency.toNanos());
+        this.fsync = fsync;
+        this.thread = new Thread(this::run, "word-memory-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    void enqueue(WordMemoryEvent event) throws IOException {
+        if (closed) {
+            // Late events after shutdown go straight to disk rather than being lost.
+            segmentLog.appendAll(List.of(event), fsync);
+            return;
+        }
+        try {
+            queue.put(event);
+            enqueued.incrementAndGet();
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            segmentLog.appendAll(List.of(event), fsync);
+        }
+    }
+
+    WriterStats stats() {
+        return new WriterStats(enqueued.get(), written.get(), flushes.get(), failedFlushes.get(), queue.size());
+    }
+
+    // Stops accepting queued writes, flushes everything already queued and waits for the writer thread.
+    boolean close(Duration timeout) {
+        if (closed) {
+            return !thread.isAlive();
+        }
+        closed = true;
+        try {
+            queue.put(STOP);
+            thread.join(Math.max(1, timeout.toMillis()));
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            System.err.println("[WORD_MEMORY] Writer did not drain within " + timeout.toMillis()
+                    + "ms; " + queue.size() + " events still queued.");
+            return false;
+        }
+        // Catches events that raced past the closed check after the writer's final drain.
+        List<WordMemoryEvent> stragglers = new ArrayList<>();
+        queue.drainTo(stragglers);
+        stragglers.removeIf(event -> event == STOP);
+        flush(stragglers);
+        return true;
+    }
+
+    private void run() {
+        List<WordMemoryEvent> batch = new ArrayList<>(maxBatchSize);
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                WordMemoryEvent first = queue.take();
+                if (first == STOP) {
+                    break;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxLatencyNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    WordMemoryEvent next = remaining > 0
+                            ? queue.poll(remaining, TimeUnit.NANOSECONDS)
+                            : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    if (next == STOP) {
+                        stopping = true;
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException interrupted) {
+                stopping = true;
+            }
+            flush(batch);
+        }
+        // Anything enqueued after STOP (or left behind by an interrupt) is still written.
+        List<WordMemoryEvent> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.removeIf(event -> event == STOP);
+        for (int start = 0; start < remaining.size(); start += maxBatchSize) {
+            batch.addAll(remaining.subList(start, Math.min(remaining.size(), start + maxBatchSize)));
+            flush(batch);
+        }
+    }
+
+    private void flush(List<WordMemoryEvent> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            segmentLog.appendAll(batch, fsync);
+            written.addAndGet(batch.size());
+        } catch (IOException e) {
+            failedFlushes.incrementAndGet();
+            System.err.println("[WORD_MEMORY] Failed to write " + batch.size() + " events: " + e.getMessage());
+        }
+        flushes.incrementAndGet();
+        batch.clear();
+    }
+}
@@ -0,0 +1,941 @@
+package com.vrctool.bot.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntPredicate;
+import java.util.regex.Pattern;
+
+public final class BlockedPatternAutomaton {
+    private static final int MAX_NFA_STATES_PER_PATTERN = 4_000;
+    private static final int MAX_CACHED_STATES = 20_000;
+    private static final int MAX_CACHED_CODE_POINTS = 4_096;
+    // Fallback patterns run on the backtracking engine; each candidate gets this many
+    // character reads (plus a per-char allowance) before the match is abandoned. The read
+    // budget is the limit, so the outcome does not depend on load; the wall clock is only a
+    // safety net far above it, for input views slower than a String.
+    private static final long FALLBACK_BASE_READS = 20_000;
+    private static final long FALLBACK_READS_PER_CHAR = 256;
+    private static final long FALLBACK_MAX_NANOS = 1_000_000_000L;
+    private static final long OVER_BUDGET_REPORT_INTERVAL_NANOS = 3_600_000_000_000L;
+    private static final int NO_MATCH = Integer.MAX_VALUE;
+    private static final int UNKNOWN = -1;
+
+    private static final int CHAR = 0;
+    private static final int SPLIT = 1;
+    private static final int ASSERT = 2;
+    private static final int MATCH = 3;
+
+    private static final int WORD_BOUNDARY = 0;
+    private static final int NOT_WORD_BOUNDARY = 1;
+    private static final int INPUT_START = 2;
+    private static final int INPUT_END = 3;
+
+    private static final int BOUNDARY = 0;
+    private static final int LETTER_OR_DIGIT = 1;
+    private static final int UNDERSCORE = 2;
+    private static final int NON_WORD = 3;
+
+    private sealed interface Node permits Empty, Atom, Concat, Alternation, Repeat, Assertion {}
+
+    private record Empty() implements Node {}
+
+    private record Atom(int classId) implements Node {}
+
+    private record Concat(List<Node> items) implements Node {}
+
+    private record Alternation(List<Node> options) implements Node {}
+
+    private record Repeat(Node body, int min, int max) implements Node {}
+
+    private record Assertion(int kind) implements Node {}
+
+    private record Transition(DfaState target, int firstMatch) {}
+
+    private record StateKey(int[] nfaStates, int previous) {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof StateKey key && previous == key.previous && Arrays.equals(nfaStates, key.nfaStates);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(nfaStates) + previous;
+        }
+    }
+
+    private record SymbolKey(int category, BitSet classes) {}
+
+    // overBudget is the first fallback pattern abandoned for exceeding its match budget, if any.
+    public record Result(Pattern pattern, Pattern overBudget) {}
+
+    private static final class DfaState {
+        private final int[] nfaStates;
+        private final int previous;
+        private final Transition[] ascii = new Transition[128];
+        private final Map<Integer, Transition> extended = new ConcurrentHashMap<>();
+        private volatile int endMatch = UNKNOWN;
+
+        private DfaState(int[] nfaStates, int previous) {
+            this.nfaStates = nfaStates;
+            this.previous = previous;
+        }
+    }
+
+    private final List<Pattern> patterns;
+    private final List<Pattern> fallbackPatterns;
+    private final List<Integer> fallbackIndexes;
+    private final List<CharClass> classes;
+    private final List<Integer> nonAsciiClasses;
+    private final int[] types;
+    private final int[] args;
+    private final int[] out1;
+    private final int[] out2;
+    private final int[] starts;
+    private final Map<StateKey, DfaState> states;
+    private final Map<SymbolKey, Integer> extendedSymbols;
+    private final List<Integer> symbolRepresentatives;
+    private final Map<Integer, Integer> codePointSymbols;
+    private final DfaState initialState;
+    // Last report time per pattern; a pattern that keeps tripping is reported again each interval.
+    private final Map<Pattern, Long> reportedOverBudget = new ConcurrentHashMap<>();
+
+    private BlockedPatternAutomaton(List<Pattern> patterns) {
+        this.patterns = List.copyOf(patterns);
+        this.classes = new ArrayList<>();
+        this.states = new HashMap<>();
+        this.extendedSymbols = new HashMap<>();
+        this.symbolRepresentatives = new ArrayList<>();
+        this.codePointSymbols = new ConcurrentHashMap<>();
+        List<Pattern> fallback = new ArrayList<>();
+        List<Integer> fallbackIndex = new ArrayList<>();
+        NfaBuilder builder = new NfaBuilder();
+        List<Integer> startStates = new ArrayList<>();
+        for (int index = 0; index < this.patterns.size(); index++) {
+            Pattern pattern = this.patterns.get(index);
+            int mark = builder.size();
+            int classMark = classes.size();
+            Integer start = null;
+            if ((pattern.flags() & ~Pattern.CASE_INSENSITIVE) == 0) {
+                try {
+                    boolean caseInsensitive = (pattern.flags() & Pattern.CASE_INSENSITIVE) != 0;
+                    Node node = new Parser(pattern.pattern(), caseInsensitive, classes).parse();
+                    start = builder.compile(node, builder.add(MATCH, index, -1, -1));
+                    if (builder.size() - mark > MAX_NFA_STATES_PER_PATTERN) {
+                        start = null;
+                    }
+                } catch (UnsupportedOperationException error) {
+                    start = null;
+                }
+            }
+            if (start == null) {
+                builder.truncate(mark);
+                classes.subList(classMark, classes.size()).clear();
+                fallback.add(pattern);
+                fallbackIndex.add(index);
+            } else {
+                startStates.add(start);
+            }
+        }
+        this.fallbackPatterns = List.copyOf(fallback);
+        this.fallbackIndexes = List.copyOf(fallbackIndex);
+        this.types = builder.types();
+        this.args = builder.args();
+        this.out1 = builder.out1();
+        this.out2 = builder.out2();
+        this.starts = startStates.stream().mapToInt(Integer::intValue).toArray();
+        List<Integer> nonAscii = new ArrayList<>();
+        for (int classId = 0; classId < classes.size(); classId++) {
+            if (classes.get(classId).matchesNonAscii()) {
+                nonAscii.add(classId);
+            }
+        }
+        this.nonAsciiClasses = List.copyOf(nonAscii);
+        this.initialState = intern(new int[0], BOUNDARY);
+    }
+
+    public static BlockedPatternAutomaton compile(List<Pattern> patterns) {
+        return new BlockedPatternAutomaton(patterns == null ? List.of() : patterns);
+    }
+
+    public List<Pattern> patterns() {
+        return patterns;
+    }
+
+    public List<Pattern> fallbackPatterns() {
+        return fallbackPatterns;
+    }
+
+    public Pattern firstMatch(CharSequence... candidates) {
+        return match(candidates).pattern();
+    }
+
+    public Result match(CharSequence... candidates) {
+        int best = NO_MATCH;
+        if (starts.length > 0) {
+            for (CharSequence candidate : candidates) {
+                if (isBlank(candidate)) {
+                    continue;
+                }
+                best = Math.min(best, scan(candidate));
+                if (best == 0) {
+                    return new Result(patterns.get(0), null);
+                }
+            }
+        }
+        Pattern overBudget = null;
+        for (int index = 0; index < fallbackPatterns.size() && fallbackIndexes.get(index) < best; index++) {
+            Pattern pattern = fallbackPatterns.get(index);
+            try {
+                if (matchesAny(pattern, candidates)) {
+                    best = fallbackIndexes.get(index);
+                    break;
+                }
+            } catch (BudgetedCharSequence.BudgetExceeded error) {
+                // Later patterns still run; the caller decides what an unfinished match means.
+                if (overBudget == null) {
+                    overBudget = pattern;
+                }
+                if (shouldReportOverBudget(pattern)) {
+                    System.err.println("[MODERATION] Blocked pattern " + pattern.pattern()
+                            + " exceeded its match budget; check it for nested quantifiers.");
+                }
+            }
+        }
+        return new Result(best == NO_MATCH ? null : patterns.get(best), overBudget);
+    }
+
+    private boolean shouldReportOverBudget(Pattern pattern) {
+        long now = System.nanoTime();
+        Long previous = reportedOverBudget.get(pattern);
+        if (previous != null && now - previous < OVER_BUDGET_REPORT_INTERVAL_NANOS) {
+            return false;
+        }
+        return previous == null
+                ? reportedOverBudget.putIfAbsent(pattern, now) == null
+                : reportedOverBudget.replace(pattern, previous, now);
+    }
+
+    private int scan(CharSequence candidate) {
+        DfaState state = initialState;
+        int best = NO_MATCH;
+        for (int index = 0; index < candidate.length();) {
+            int codePoint = Character.codePointAt(candidate, index);
+            index += Character.charCount(codePoint);
+            Transition transition = transition(state, codePoint);
+            if (transition.firstMatch() < best) {
+                best = transition.firstMatch();
+                if (best == 0) {
+                    return best;
+                }
+            }
+            state = transition.target();
+        }
+        return Math.min(best, endMatch(state));
+    }
+
+    private Transition transition(DfaState state, int codePoint) {
+        if (codePoint < 128) {
+            Transition cached = state.ascii[codePoint];
+            return cached != null ? cached : computeTransition(state, codePoint, codePoint);
+        }
+        int symbol = extendedSymbol(codePoint);
+        Transition cached = state.extended.get(symbol);
+        return cached != null ? cached : computeTransition(state, symbol, symbolRepresentative(symbol));
+    }
+
+    private synchronized Transition computeTransition(DfaState state, int symbol, int codePoint) {
+        Transition existing = codePoint < 128 ? state.ascii[symbol] : state.extended.get(symbol);
+        if (existing != null) {
+            return existing;
+        }
+        int next = category(codePoint, state.previous);
+        List<Integer> charStates = new ArrayList<>();
+        int firstMatch = closure(state, next, charStates);
+        BitSet reached = new BitSet(types.length);
+        for (int nfaState : charStates) {
+            if (classes.get(args[nfaState]).matches(codePoint)) {
+                reached.set(out1[nfaState]);
+            }
+        }
+        Transition transition = new Transition(intern(reached.stream().toArray(), next), firstMatch);
+        if (states.size() < MAX_CACHED_STATES) {
+            if (codePoint < 128) {
+                state.ascii[symbol] = transition;
+            } else {
+                state.extended.put(symbol, transition);
+            }
+        }
+        return transition;
+    }
+
+    private int endMatch(DfaState state) {
+        int cached = state.endMatch;
+        if (cached == UNKNOWN) {
+            cached = closure(state, BOUNDARY, new ArrayList<>());
+            state.endMatch = cached;
+        }
+        return cached;
+    }
+
+    private int closure(DfaState state, int next, List<Integer> charStates) {
+        int firstMatch = NO_MATCH;
+        BitSet visited = new BitSet(types.length);
+        Deque<Integer> stack = new ArrayDeque<>();
+        for (int nfaState : state.nfaStates) {
+            stack.push(nfaState);
+        }
+        for (int start : starts) {
+            stack.push(start);
+        }
+        while (!stack.isEmpty()) {
+            int nfaState = stack.pop();
+            if (visited.get(nfaState)) {
+                continue;
+            }
+            visited.set(nfaState);
+            switch (types[nfaState]) {
+                case CHAR -> charStates.add(nfaState);
+                case MATCH -> firstMatch = Math.min(firstMatch, args[nfaState]);
+                case SPLIT -> {
+                    stack.push(out2[nfaState]);
+                    stack.push(out1[nfaState]);
+                }
+                case ASSERT -> {
+                    if (assertionHolds(args[nfaState], state.previous, next)) {
+                        stack.push(out1[nfaState]);
+                    }
+                }
+                default -> throw new IllegalStateException("Unknown NFA state type " + types[nfaState]);
+            }
+        }
+        return firstMatch;
+    }
+
+    private DfaState intern(int[] nfaStates, int previous) {
+        StateKey key = new StateKey(nfaStates, previous);
+        DfaState cached = states.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        DfaState state = new DfaState(nfaStates, previous);
+        if (states.size() < MAX_CACHED_STATES) {
+            states.put(key, state);
+        }
+        return state;
+    }
+
+    private int extendedSymbol(int codePoint) {
+        Integer cached = codePointSymbols.get(codePoint);
+        if (cached != null) {
+            return cached;
+        }
+        BitSet matched = new BitSet(nonAsciiClasses.size());
+        for (int index = 0; index < nonAsciiClasses.size(); index++) {
+            if (classes.get(nonAsciiClasses.get(index)).matches(codePoint)) {
+                matched.set(index);
+            }
+        }
+        int kind = isLetterOrDigit(codePoint) ? LETTER_OR_DIGIT
+                : isNonSpacingMark(codePoint) ? -1 : NON_WORD;
+        int symbol;
+        synchronized (this) {
+            symbol = extendedSymbols.computeIfAbsent(new SymbolKey(kind, matched), ignored -> {
+                symbolRepresentatives.add(codePoint);
+                return 128 + symbolRepresentatives.size() - 1;
+            });
+        }
+        if (codePointSymbols.size() < MAX_CACHED_CODE_POINTS) {
+            codePointSymbols.put(codePoint, symbol);
+        }
+        return symbol;
+    }
+
+    private synchronized int symbolRepresentative(int symbol) {
+        return symbolRepresentatives.get(symbol - 128);
+    }
+
+    private static int category(int codePoint, int previous) {
+        if (codePoint == '_') {
+            return UNDERSCORE;
+        }
+        if (isLetterOrDigit(codePoint)) {
+            return LETTER_OR_DIGIT;
+        }
+        // java.util.regex treats a non-spacing mark as part of a preceding letter or digit for \b.
+        if (isNonSpacingMark(codePoint) && previous == LETTER_OR_DIGIT) {
+            return LETTER_OR_DIGIT;
+        }
+        return NON_WORD;
+    }
+
+    private static boolean assertionHolds(int kind, int previous, int next) {
+        boolean left = previous == LETTER_OR_DIGIT || previous == UNDERSCORE;
+        boolean right = next == LETTER_OR_DIGIT || next == UNDERSCORE;
+        return switch (kind) {
+            case WORD_BOUNDARY -> left != right;
+            case NOT_WORD_BOUNDARY -> left == right;
+            case INPUT_START -> previous == BOUNDARY;
+            case INPUT_END -> next == BOUNDARY;
+            default -> false;
+        };
+    }
+
+    private static boolean isLetterOrDigit(int codePoint) {
+        return Character.isLetterOrDigit(codePoint);
+    }
+
+    private static boolean isNonSpacingMark(int codePoint) {
+        return Character.getType(codePoint) == Character.NON_SPACING_MARK;
+    }
+
+    // Throws BudgetExceeded only if no candidate matched and at least one ran out of budget.
+    private static boolean matchesAny(Pattern pattern, CharSequence... candidates) {
+        boolean overBudget = false;
+        for (CharSequence candidate : candidates) {
+            if (isBlank(candidate)) {
+                continue;
+            }
+            long maxReads = FALLBACK_BASE_READS + FALLBACK_READS_PER_CHAR * candidate.length();
+            try {
+                if (pattern.matcher(new BudgetedCharSequence(candidate, maxReads, FALLBACK_MAX_NANOS)).find()) {
+                    return true;
+                }
+            } catch (BudgetedCharSequence.BudgetExceeded | StackOverflowError error) {
+                // Deep backtracking can exhaust the stack before the read budget; same outcome.
+                overBudget = true;
+            }
+        }
+        if (overBudget) {
+            throw new BudgetedCharSequence.BudgetExceeded();
+        }
+        return false;
+    }
+
+    private static boolean isBlank(CharSequence candidate) {
+        if (candidate == null) {
+            return true;
+        }
+        for (int index = 0; index < candidate.length(); index++) {
+            if (!Character.isWhitespace(candidate.charAt(index))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class NfaBuilder {
+        private int[] types = new int[64];
+        private int[] args = new int[64];
+        private int[] out1 = new int[64];
+        private int[] out2 = new int[64];
+        private int size;
+
+        private int size() {
+            return size;
+        }
+
+        private void truncate(int mark) {
+            size = mark;
+        }
+
+        private int add(int type, int arg, int first, int second) {
+            if (size == types.length) {
+                types = Arrays.copyOf(types, size * 2);
+                args = Arrays.copyOf(args, size * 2);
+                out1 = Arrays.copyOf(out1, size * 2);
+                out2 = Arrays.copyOf(out2, size * 2);
+            }
+            types[size] = type;
+            args[size] = arg;
+            out1[size] = first;
+            out2[size] = second;
+            return size++;
+        }
+
+        private int compile(Node node, int next) {
+            if (node instanceof Atom atom) {
+                return add(CHAR, atom.classId(), next, -1);
+            }
+            if (node instanceof Assertion assertion) {
+                return add(ASSERT, assertion.kind(), next, -1);
+            }
+            if (node instanceof Concat concat) {
+                int entry = next;
+                for (int index = concat.items().size() - 1; index >= 0; index--) {
+                    entry = compile(concat.items().get(index), entry);
+                }
+                return entry;
+            }
+            if (node instanceof Alternation alternation) {
+                List<Node> options = alternation.options();
+                int entry = compile(options.get(options.size() - 1), next);
+                for (int index = options.size() - 2; index >= 0; index--) {
+                    entry = add(SPLIT, 0, compile(options.get(index), next), entry);
+                }
+                return entry;
+            }
+            if (node instanceof Repeat repeat) {
+                return compileRepeat(repeat, next);
+            }
+            return next;
+        }
+
+        private int compileRepeat(Repeat repeat, int next) {
+            int entry;
+            if (repeat.max() < 0) {
+                int loop = add(SPLIT, 0, -1, next);
+                // Compiling the body may grow the arrays, so take its entry before writing into out1.
+                int body = compile(repeat.body(), loop);
+                out1[loop] = body;
+                entry = loop;
+            } else {
+                entry = next;
+                for (int count = repeat.min(); count < repeat.max(); count++) {
+                    entry = add(SPLIT, 0, compile(repeat.body(), entry), next);
+                    checkSize();
+                }
+            }
+            for (int count = 0; count < repeat.min(); count++) {
+                entry = compile(repeat.body(), entry);
+                checkSize();
+            }
+            return entry;
+        }
+
+        private void checkSize() {
+            if (size > MAX_NFA_STATES_PER_PATTERN * 4) {
+                throw new UnsupportedOperationException("Pattern expands to too many states");
+            }
+        }
+
+        private int[] types() {
+            return Arrays.copyOf(types, size);
+        }
+
+        private int[] args() {
+            return Arrays.copyOf(args, size);
+        }
+
+        private int[] out1() {
+            return Arrays.copyOf(out1, size);
+        }
+
+        private int[] out2() {
+            return Arrays.copyOf(out2, size);
+        }
+    }
+
+    private static final class CharClass {
+        private final List<int[]> ranges = new ArrayList<>();
+        private final List<IntPredicate> predicates = new ArrayList<>();
+        private final boolean caseInsensitive;
+        private boolean negated;
+        private boolean nonAscii;
+
+        private CharClass(boolean caseInsensitive) {
+            this.caseInsensitive = caseInsensitive;
+        }
+
+        private CharClass range(int low, int high) {
+            ranges.add(new int[] {low, high});
+            nonAscii |= high > 127;
+            return this;
+        }
+
+        private CharClass predicate(IntPredicate predicate, boolean matchesNonAscii) {
+            predicates.add(predicate);
+            nonAscii |= matchesNonAscii;
+            return this;
+        }
+
+        private CharClass negate() {
+            negated = !negated;
+            return this;
+        }
+
+        private boolean matchesNonAscii() {
+            return negated || nonAscii;
+        }
+
+        private boolean matches(int codePoint) {
+            boolean inside = contains(codePoint);
+            if (!inside && caseInsensitive && isAsciiLetter(codePoint)) {
+                inside = contains(codePoint ^ 0x20);
+            }
+            return inside != negated;
+        }
+
+        private boolean contains(int codePoint) {
+            for (int[] range : ranges) {
+                if (codePoint >= range[0] && codePoint <= range[1]) {
+                    return true;
+                }
+            }
+            for (IntPredicate predicate : predicates) {
+                if (predicate.test(codePoint)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean isAsciiLetter(int codePoint) {
+            return (codePoint >= 'a' && codePoint <= 'z') || (codePoint >= 'A' && codePoint <= 'Z');
+        }
+    }
+
+    private static final class Parser {
+        private final String source;
+        private final boolean caseInsensitive;
+        private final List<CharClass> classes;
+        private int position;
+
+        private Parser(String source, boolean caseInsensitive, List<CharClass> classes) {
+            this.source = source;
+            this.caseInsensitive = caseInsensitive;
+            this.classes = classes;
+        }
+
+        private Node parse() {
+            Node node = parseAlternation();
+            if (position != source.length()) {
+                throw unsupported("unexpected ')'");
+            }
+            return node;
+        }
+
+        private Node parseAlternation() {
+            List<Node> options = new ArrayList<>();
+            options.add(parseConcat());
+            while (position < source.length() && source.charAt(position) == '|') {
+                position++;
+                options.add(parseConcat());
+            }
+            return options.size() == 1 ? options.get(0) : new Alternation(options);
+        }
+
+        private Node parseConcat() {
+            List<Node> items = new ArrayList<>();
+            while (position < source.length() && source.charAt(position) != '|' && source.charAt(position) != ')') {
+                items.add(parseRepeat());
+            }
+            if (items.isEmpty()) {
+                return new Empty();
+            }
+            return items.size() == 1 ? items.get(0) : new Concat(items);
+        }
+
+        private Node parseRepeat() {
+            Node atom = parseAtom();
+            if (position >= source.length()) {
+                return atom;
+            }
+            int min;
+            int max;
+            char quantifier = source.charAt(position);
+            switch (quantifier) {
+                case '*' -> {
+                    min = 0;
+                    max = -1;
+                    position++;
+                }
+                case '+' -> {
+                    min = 1;
+                    max = -1;
+                    position++;
+                }
+                case '?' -> {
+                    min = 0;
+                    max = 1;
+                    position++;
+                }
+                case '{' -> {
+                    int close = source.indexOf('}', position);
+                    if (close < 0) {
+                        throw unsupported("unterminated repetition");
+                    }
+                    String[] bounds = source.substring(position + 1, close).split(",", -1);
+                    try {
+                        min = Integer.parseInt(bounds[0].trim());
+                        max = bounds.length == 1 ? min
+                                : bounds[1].isBlank() ? -1 : Integer.parseInt(bounds[1].trim());
+                    } catch (NumberFormatException error) {
+                        throw unsupported("invalid repetition");
+                    }
+                    if (bounds.length > 2 || (max >= 0 && max < min)) {
+                        throw unsupported("invalid repetition");
+                    }
+                    position = close + 1;
+                }
+                default -> {
+                    return atom;
+                }
+            }
+            if (position < source.length() && source.charAt(position) == '?') {
+                position++;
+            } else if (position < source.length() && source.charAt(position) == '+') {
+                throw unsupported("possessive quantifier");
+            }
+            if (position < source.length() && "*+?{".indexOf(source.charAt(position)) >= 0) {
+                throw unsupported("stacked quantifier");
+            }
+            return new Repeat(atom, min, max);
+        }
+
+        private Node parseAtom() {
+            char current = source.charAt(position);
+            switch (current) {
+                case '(' -> {
+                    position++;
+                    if (source.startsWith("?:", position)) {
+                        position += 2;
+                    } else if (position < source.length() && source.charAt(position) == '?') {
+                        throw unsupported("group construct");
+                    }
+                    Node inner = parseAlternation();
+                    if (position >= source.length() || source.charAt(position) != ')') {
+                        throw unsupported("unterminated group");
+                    }
+                    position++;
+                    return inner;
+                }
+                case '[' -> {
+                    position++;
+                    return atom(parseClass());
+                }
+                case '.' -> {
+                    position++;
+                    return atom(new CharClass(false)
+                            .range('\n', '\n')
+                            .range('\r', '\r')
+                            .range('\u0085', '\u0085')
+                            .range('\u2028', '\u2029')
+                            .negate());
+                }
+                case '^' -> {
+                    position++;
+                    return new Assertion(INPUT_START);
+                }
+                case '$', '*', '+', '?', '{' -> throw unsupported("construct '" + current + "'");
+                case '\\' -> {
+                    position++;
+                    return parseEscape();
+                }
+                default -> {
+                    int codePoint = source.codePointAt(position);
+                    position += Character.charCount(codePoint);
+                    return atom(literal(codePoint));
+                }
+            }
+        }
+
+        private Node parseEscape() {
+            if (position >= source.length()) {
+                throw unsupported("trailing escape");
+            }
+            char escaped = source.charAt(position);
+            switch (escaped) {
+                case 'b' -> {
+                    position++;
+                    return new Assertion(WORD_BOUNDARY);
+                }
+                case 'B' -> {
+                    position++;
+                    return new Assertion(NOT_WORD_BOUNDARY);
+                }
+                case 'A' -> {
+                    position++;
+                    return new Assertion(INPUT_START);
+                }
+                case 'z' -> {
+                    position++;
+                    return new Assertion(INPUT_END);
+                }
+                default -> {
+                    CharClass shorthand = shorthandClass(escaped);
+                    if (shorthand != null) {
+                        return atom(shorthand);
+                    }
+                    return atom(literal(escapedCodePoint()));
+                }
+            }
+        }
+
+        private CharClass parseClass() {
+            CharClass charClass = new CharClass(caseInsensitive);
+            if (position < source.length() && source.charAt(position) == '^') {
+                charClass.negate();
+                position++;
+            }
+            if (position < source.length() && source.charAt(position) == ']') {
+                throw unsupported("leading ']' in class");
+            }
+            while (true) {
+                if (position >= source.length()) {
+                    throw unsupported("unterminated class");
+                }
+                char current = source.charAt(position);
+                if (current == ']') {
+                    position++;
+                    return charClass;
+                }
+                if (current == '[' || source.startsWith("&&", position)) {
+                    throw unsupported("nested class");
+                }
+                int low;
+                if (current == '\\') {
+                    position++;
+                    if (position >= source.length()) {
+                        throw unsupported("trailing escape");
+                    }
+                    CharClass shorthand = shorthandClass(source.charAt(position));
+                    if (shorthand != null) {
+                        charClass.predicate(shorthand::matches, shorthand.matchesNonAscii());
+                        continue;
+                    }
+                    low = escapedCodePoint();
+                } else {
+                    low = source.codePointAt(position);
+                    position += Character.charCount(low);
+                }
+                if (position + 1 < source.length()
+                        && source.charAt(position) == '-'
+                        && source.charAt(position + 1) != ']') {
+                    position++;
+                    int high;
+                    if (source.charAt(position) == '\\') {
+                        position++;
+                        if (position >= source.length() || isShorthand(source.charAt(position))) {
+                            throw unsupported("invalid range");
+                        }
+                        high = escapedCodePoint();
+                    } else if (source.charAt(position) == '[') {
+                        throw unsupported("nested class");
+                    } else {
+                        high = source.codePointAt(position);
+                        position += Character.charCount(high);
+                    }
+                    if (high < low) {
+                        throw unsupported("invalid range");
+                    }
+                    charClass.range(low, high);
+                } else {
+                    charClass.range(low, low);
+                }
+            }
+        }
+
+        private CharClass shorthandClass(char escaped) {
+            CharClass shorthand;
+            switch (escaped) {
+                case 'd', 'D' -> shorthand = new CharClass(false).range('0', '9');
+                case 's', 'S' -> shorthand = new CharClass(false).range(' ', ' ').range('\t', '\r');
+                case 'w', 'W' -> shorthand = new CharClass(false)
+                        .range('a', 'z')
+                        .range('A', 'Z')
+                        .range('0', '9')
+                        .range('_', '_');
+                case 'p', 'P' -> {
+                    position++;
+                    shorthand = propertyClass();
+                }
+                default -> {
+                    return null;
+                }
+            }
+            position++;
+            return Character.isUpperCase(escaped) ? shorthand.negate() : shorthand;
+        }
+
+        private static boolean isShorthand(char escaped) {
+            return "dDsSwWpP".indexOf(escaped) >= 0;
+        }
+
+        private CharClass propertyClass() {
+            String name;
+            if (position < source.length() && source.charAt(position) == '{') {
+                int close = source.indexOf('}', position);
+                if (close < 0) {
+                    throw unsupported("unterminated property");
+                }
+                name = source.substring(position + 1, close);
+                position = close;
+            } else if (position < source.length()) {
+                name = String.valueOf(source.charAt(position));
+            } else {
+                throw unsupported("missing property name");
+            }
+            return switch (name) {
+                case "Alnum" -> new CharClass(false).range('a', 'z').range('A', 'Z').range('0', '9');
+                case "Alpha" -> new CharClass(false).range('a', 'z').range('A', 'Z');
+                case "Digit" -> new CharClass(false).range('0', '9');
+                case "Space" -> new CharClass(false).range(' ', ' ').range('\t', '\r');
+                case "Punct" -> new CharClass(false).range('!', '/').range(':', '@').range('[', '`').range('{', '~');
+                case "L", "IsL" -> new CharClass(false).predicate(Character::isLetter, true);
+                case "N", "IsN" -> new CharClass(false).predicate(Parser::isNumber, true);
+                default -> throw unsupported("property " + name);
+            };
+        }
+
+        private int escapedCodePoint() {
+            char escaped = source.charAt(position);
+            position++;
+            return switch (escaped) {
+                case 't' -> '\t';
+                case 'n' -> '\n';
+                case 'r' -> '\r';
+                case 'f' -> '\f';
+                case 'a' -> '\u0007';
+                case 'e' -> '\u001B';
+                case 'x' -> hex(2);
+                case 'u' -> hex(4);
+                default -> {
+                    if (Character.isLetterOrDigit(escaped)) {
+                        throw unsupported("escape \\" + escaped);
+                    }
+                    yield escaped;
+                }
+            };
+        }
+
+        private int hex(int digits) {
+            if (position + digits > source.length()) {
+                throw unsupported("truncated hex escape");
+            }
+            try {
+                int value = Integer.parseInt(source.substring(position, position + digits), 16);
+                position += digits;
+                return value;
+            } catch (NumberFormatException error) {
+                throw unsupported("invalid hex escape");
+            }
+        }
+
+        private CharClass literal(int codePoint) {
+            return new CharClass(caseInsensitive).range(codePoint, codePoint);
+        }
+
+        private Node atom(CharClass charClass) {
+            classes.add(charClass);
+            return new Atom(classes.size() - 1);
+        }
+
+        private static boolean isNumber(int codePoint) {
+            int type = Character.getType(codePoint);
+            return type == Character.DECIMAL_DIGIT_NUMBER
+                    || type == Character.LETTER_NUMBER
+                    || type == Character.OTHER_NUMBER;
+        }
+
+        private UnsupportedOperationException unsupported(String reason) {
+            return new UnsupportedOperationException(reason + " in /" + source + "/");
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.vrctool.bot.util;
+
+// Input view for java.util.regex that gives up after a fixed number of character
+// reads or a wall-clock deadline. The backtracking matcher reads its input
+// through charAt, so a pathological pattern trips the budget instead of pinning
+// a CPU; the caller catches BudgetExceeded and abandons the match.
+final class BudgetedCharSequence implements CharSequence {
+    private static final int CLOCK_INTERVAL = 4_096;
+
+    static final class BudgetExceeded extends RuntimeException {
+        BudgetExceeded() {
+            super("Regex match budget exceeded", null, false, false);
+        }
+    }
+
+    private final CharSequence text;
+    private final long deadline;
+    private long remainingReads;
+    private int readsUntilClock = CLOCK_INTERVAL;
+
+    BudgetedCharSequence(CharSequence text, long maxReads, long maxNanos) {
+        this.text = text;
+        this.remainingReads = maxReads;
+        this.deadline = System.nanoTime() + maxNanos;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (--remainingReads < 0) {
+            throw new BudgetExceeded();
+        }
+        if (--readsUntilClock == 0) {
+            readsUntilClock = CLOCK_INTERVAL;
+            if (System.nanoTime() - deadline > 0) {
+                throw new BudgetExceeded();
+            }
+        }
+        return text.charAt(index);
+    }
+
+    @Override
+    public int length() {
+        return text.length();
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return text.subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return text.toString();
+    }
+}
@@ -0,0 +1,275 @@
+package com.vrctool.bot.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class KeywordAutomaton {
+    private static final int OTHER_ALNUM = 0;
+    private static final int OTHER_SEPARATOR = 1;
+    private static final int ROOT = 0;
+    private static final int MAX_CACHED_STATES = 50_000;
+
+    private static final class TrieNode {
+        private final Map<Character, Integer> children = new LinkedHashMap<>();
+        private final List<Integer> keywordIndexes = new ArrayList<>();
+    }
+
+    private static final class DfaState {
+        private final int[] nodes;
+        private final int[] keywordIndexes;
+        private final DfaState[] next;
+
+        private DfaState(int[] nodes, int[] keywordIndexes, int symbolCount) {
+            this.nodes = nodes;
+            this.keywordIndexes = keywordIndexes;
+            this.next = new DfaState[symbolCount];
+        }
+
+        private int firstKeyword() {
+            return keywordIndexes.length == 0 ? -1 : keywordIndexes[0];
+        }
+    }
+
+    private record NodeSet(int[] nodes) {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof NodeSet set && Arrays.equals(nodes, set.nodes);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(nodes);
+        }
+    }
+
+    private final List<String> keywords;
+    private final int[] asciiSymbols;
+    private final Map<Character, Integer> registeredSymbols;
+    private final boolean[] alnumSymbols;
+    private final Map<Character, BitSet> characterClasses;
+    private final List<TrieNode> nodes;
+    private final Map<NodeSet, DfaState> states;
+    private final DfaState initialState;
+
+    private KeywordAutomaton(List<String> keywords) {
+        this.keywords = List.copyOf(keywords);
+        this.asciiSymbols = new int[128];
+        this.registeredSymbols = new HashMap<>();
+        this.characterClasses = new HashMap<>();
+        this.nodes = new ArrayList<>();
+        this.states = new HashMap<>();
+        this.nodes.add(new TrieNode());
+
+        List<Boolean> alnum = new ArrayList<>(List.of(true, false));
+        for (char value = 0; value < 128; value++) {
+            asciiSymbols[value] = isAlnum(value) ? OTHER_ALNUM : OTHER_SEPARATOR;
+        }
+        for (int index = 0; index < this.keywords.size(); index++) {
+            String keyword = this.keywords.get(index);
+            if (keyword == null) {
+                continue;
+            }
+            int node = ROOT;
+            boolean empty = true;
+            for (char rawChar : keyword.trim().toCharArray()) {
+                if (Character.isWhitespace(rawChar)) {
+                    continue;
+                }
+                char folded = fold(rawChar);
+                if (!characterClasses.containsKey(folded)) {
+                    characterClasses.put(folded, buildClass(folded, alnum));
+                }
+                Integer child = nodes.get(node).children.get(folded);
+                if (child == null) {
+                    child = nodes.size();
+                    nodes.add(new TrieNode());
+                    nodes.get(node).children.put(folded, child);
+                }
+                node = child;
+                empty = false;
+            }
+            if (!empty) {
+                nodes.get(node).keywordIndexes.add(index);
+            }
+        }
+        this.alnumSymbols = new boolean[alnum.size()];
+        for (int symbol = 0; symbol < alnum.size(); symbol++) {
+            alnumSymbols[symbol] = alnum.get(symbol);
+        }
+        this.initialState = intern(new int[] {ROOT});
+    }
+
+    public static KeywordAutomaton compile(List<String> keywords) {
+        return new KeywordAutomaton(keywords == null ? List.of() : keywords);
+    }
+
+    public List<String> keywords() {
+        return keywords;
+    }
+
+    public String firstMatch(CharSequence... candidates) {
+        int first = firstMatchIndex(candidates);
+        return first < 0 ? null : keywords.get(first);
+    }
+
+    // Index into keywords() of the first configured keyword found in any candidate, or -1.
+    public int firstMatchIndex(CharSequence... candidates) {
+        int first = -1;
+        for (CharSequence candidate : candidates) {
+            if (isBlank(candidate)) {
+                continue;
+            }
+            DfaState state = initialState;
+            for (int index = 0; index < candidate.length(); index++) {
+                state = transition(state, symbolOf(candidate.charAt(index)));
+                int matched = state.firstKeyword();
+                if (matched >= 0 && (first < 0 || matched < first)) {
+                    first = matched;
+                    if (first == 0) {
+                        return 0;
+                    }
+                }
+            }
+        }
+        return first;
+    }
+
+    public List<String> findAll(CharSequence... candidates) {
+        BitSet matched = new BitSet(keywords.size());
+        for (CharSequence candidate : candidates) {
+            if (isBlank(candidate)) {
+                continue;
+            }
+            DfaState state = initialState;
+            for (int index = 0; index < candidate.length(); index++) {
+                state = transition(state, symbolOf(candidate.charAt(index)));
+                for (int keywordIndex : state.keywordIndexes) {
+                    matched.set(keywordIndex);
+                }
+            }
+        }
+        List<String> results = new ArrayList<>(matched.cardinality());
+        for (int index = matched.nextSetBit(0); index >= 0; index = matched.nextSetBit(index + 1)) {
+            results.add(keywords.get(index));
+        }
+        return results;
+    }
+
+    private DfaState transition(DfaState state, int symbol) {
+        DfaState next = state.next[symbol];
+        return next != null ? next : computeTransition(state, symbol);
+    }
+
+    private synchronized DfaState computeTransition(DfaState state, int symbol) {
+        DfaState existing = state.next[symbol];
+        if (existing != null) {
+            return existing;
+        }
+        boolean separator = !alnumSymbols[symbol];
+        BitSet reached = new BitSet(nodes.size());
+        for (int nodeId : state.nodes) {
+            TrieNode node = nodes.get(nodeId);
+            for (Map.Entry<Character, Integer> child : node.children.entrySet()) {
+                if (characterClasses.get(child.getKey()).get(symbol)) {
+                    reached.set(child.getValue());
+                }
+            }
+            // Separators may sit between keyword characters, so partial matches survive them.
+            if (separator && nodeId != ROOT) {
+                reached.set(nodeId);
+            }
+        }
+        // A keyword may only start after a separator (or at the start of the text).
+        if (separator) {
+            reached.set(ROOT);
+        }
+        DfaState target = intern(reached.stream().toArray());
+        if (states.size() < MAX_CACHED_STATES) {
+            state.next[symbol] = target;
+        }
+        return target;
+    }
+
+    private DfaState intern(int[] nodeIds) {
+        NodeSet key = new NodeSet(nodeIds);
+        DfaState cached = states.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        BitSet keywordIndexes = new BitSet(keywords.size());
+        List<Integer> live = new ArrayList<>(nodeIds.length);
+        for (int nodeId : nodeIds) {
+            TrieNode node = nodes.get(nodeId);
+            node.keywordIndexes.forEach(keywordIndexes::set);
+            if (nodeId == ROOT || !node.children.isEmpty()) {
+                live.add(nodeId);
+            }
+        }
+        int[] liveNodes = live.stream().mapToInt(Integer::intValue).toArray();
+        DfaState state = new DfaState(liveNodes, keywordIndexes.stream().toArray(), alnumSymbols.length);
+        if (states.size() < MAX_CACHED_STATES) {
+            states.put(key, state);
+        }
+        return state;
+    }
+
+    private BitSet buildClass(char folded, List<Boolean> alnum) {
+        BitSet symbols = new BitSet();
+        String alternatives = ModerationPatterns.obfuscationAlternatives(folded);
+        String members = alternatives == null ? String.valueOf(folded) : alternatives;
+        for (char member : members.toCharArray()) {
+            symbols.set(registerSymbol(fold(member), alnum));
+        }
+        return symbols;
+    }
+
+    private int registerSymbol(char value, List<Boolean> alnum) {
+        Integer existing = registeredSymbols.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        int symbol = alnum.size();
+        alnum.add(isAlnum(value));
+        registeredSymbols.put(value, symbol);
+        if (value < 128) {
+            asciiSymbols[value] = symbol;
+            if (value >= 'a' && value <= 'z') {
+                asciiSymbols[Character.toUpperCase(value)] = symbol;
+            }
+        }
+        return symbol;
+    }
+
+    private int symbolOf(char value) {
+        if (value < 128) {
+            return asciiSymbols[value];
+        }
+        Integer symbol = registeredSymbols.get(value);
+        return symbol == null ? OTHER_SEPARATOR : symbol;
+    }
+
+    private static boolean isBlank(CharSequence candidate) {
+        if (candidate == null) {
+            return true;
+        }
+        for (int index = 0; index < candidate.length(); index++) {
+            if (!Character.isWhitespace(candidate.charAt(index))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char fold(char value) {
+        return value >= 'A' && value <= 'Z' ? (char) (value + ('a' - 'A')) : value;
+    }
+
+    private static boolean isAlnum(char value) {
+        return (value >= 'a' && value <= 'z') || (value >= 'A' && value <= 'Z') || (value >= '0' && value <= '9');
+    }
+}
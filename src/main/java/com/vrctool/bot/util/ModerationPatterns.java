@@ -1,6 +1,8 @@
 package com.vrctool.bot.util;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.regex.Pattern;
 
@@ -78,14 +80,318 @@ public final class ModerationPatterns {
     }
 
     private static String obfuscationPattern(char value) {
+        String alternatives = obfuscationAlternatives(value);
+        return alternatives == null ? null : "[" + alternatives + "]";
+    }
+
+    static String obfuscationAlternatives(char value) {
         return switch (Character.toLowerCase(value)) {
-            case 'a' -> "[a@]";
-            case 'e' -> "[e3]";
-            case 'i' -> "[i1!]";
-            case 'o' -> "[o0]";
-            case 's' -> "[s5$]";
-            case 't' -> "[t7]";
+            case 'a' -> "a@";
+            case 'e' -> "e3";
+            case 'i' -> "i1!";
+            case 'o' -> "o0";
+            case 's' -> "s5$";
+            case 't' -> "t7";
             default -> null;
         };
     }
+
+    // Literal runs (2+ chars, lowercased) that any match of the pattern must contain, one list per
+    // top-level alternative: a match of alternative i contains every run in list i. Returns null when
+    // some alternative has no such run or the pattern uses syntax this scan does not understand, in
+    // which case the pattern cannot be prefiltered.
+    public static List<List<String>> requiredLiterals(Pattern pattern) {
+        if ((pattern.flags() & ~Pattern.CASE_INSENSITIVE) != 0) {
+            return null;
+        }
+        String regex = pattern.pattern();
+        while (regex.startsWith("\\b")) {
+            regex = regex.substring(2);
+        }
+        while (regex.endsWith("\\b") && !regex.endsWith("\\\\b")) {
+            regex = regex.substring(0, regex.length() - 2);
+        }
+        if (regex.startsWith("(") && groupEnd(regex, 0) == regex.length() - 1) {
+            regex = regex.substring(regex.startsWith("(?:") ? 3 : 1, regex.length() - 1);
+            if (regex.startsWith("?")) {
+                return null;
+            }
+        }
+        List<List<String>> alternatives = new ArrayList<>();
+        for (String alternative : splitAlternatives(regex)) {
+            List<String> runs = literalRuns(alternative);
+            if (runs == null || runs.isEmpty()) {
+                return null;
+            }
+            alternatives.add(runs);
+        }
+        return alternatives.isEmpty() ? null : alternatives;
+    }
+
+    // The first group that repeats without bound while its body also does, such as (a+)+ or
+    // (\w+\s?)*, or null if there is none. On a near miss the backtracking engine tries every
+    // way of splitting the input between the two loops. Possessive quantifiers and atomic
+    // groups never give characters back, so they are not reported.
+    public static String nestedQuantifier(Pattern pattern) {
+        String regex = pattern.pattern();
+        // Per open group: start index, whether its body repeats unboundedly, whether it is atomic.
+        Deque<int[]> groups = new ArrayDeque<>();
+        groups.push(new int[] {0, 0, 0});
+        int index = 0;
+        while (index < regex.length()) {
+            char value = regex.charAt(index);
+            int atomEnd;
+            if (value == '\\') {
+                atomEnd = escapeEnd(regex, index);
+            } else if (value == '[') {
+                int end = classEnd(regex, index);
+                if (end < 0) {
+                    return null;
+                }
+                atomEnd = end + 1;
+            } else if (value == '(') {
+                groups.push(new int[] {index, 0, regex.startsWith("(?>", index) ? 1 : 0});
+                index++;
+                continue;
+            } else if (value == ')') {
+                if (groups.size() == 1) {
+                    return null;
+                }
+                int[] group = groups.pop();
+                int end = skipQuantifier(regex, index + 1);
+                boolean repeated = repeatsUnbounded(regex, index + 1, end);
+                if (repeated && group[1] == 1 && group[2] == 0) {
+                    return regex.substring(group[0], end);
+                }
+                if (repeated || (group[1] == 1 && group[2] == 0)) {
+                    groups.peek()[1] = 1;
+                }
+                index = end;
+                continue;
+            } else {
+                atomEnd = index + 1;
+            }
+            int end = skipQuantifier(regex, atomEnd);
+            if (repeatsUnbounded(regex, atomEnd, end)) {
+                groups.peek()[1] = 1;
+            }
+            index = end;
+        }
+        return null;
+    }
+
+    // End of the escape starting at index, including any digits, names or quoted text it owns.
+    private static int escapeEnd(String regex, int index) {
+        if (index + 1 >= regex.length()) {
+            return regex.length();
+        }
+        char escaped = regex.charAt(index + 1);
+        int next = index + 2;
+        return switch (escaped) {
+            case 'Q' -> {
+                int close = regex.indexOf("\\E", next);
+                yield close < 0 ? regex.length() : close + 2;
+            }
+            case 'p', 'P' -> regex.startsWith("{", next) ? closingIndex(regex, next, '}') : take(regex, next, 1);
+            case 'x' -> regex.startsWith("{", next) ? closingIndex(regex, next, '}') : take(regex, next, 2);
+            case 'N' -> regex.startsWith("{", next) ? closingIndex(regex, next, '}') : next;
+            case 'k' -> regex.startsWith("<", next) ? closingIndex(regex, next, '>') : next;
+            case 'u' -> take(regex, next, 4);
+            case 'c' -> take(regex, next, 1);
+            case '0' -> {
+                // \0n, \0nn or \0mnn with m at most 3.
+                int limit = next < regex.length() && regex.charAt(next) <= '3' ? 3 : 2;
+                int end = next;
+                while (end < take(regex, next, limit) && regex.charAt(end) >= '0' && regex.charAt(end) <= '7') {
+                    end++;
+                }
+                yield end;
+            }
+            case '1', '2', '3', '4', '5', '6', '7', '8', '9' -> {
+                // Backreferences take every following digit they can; claim them all rather than guess.
+                int end = next;
+                while (end < regex.length() && Character.isDigit(regex.charAt(end))) {
+                    end++;
+                }
+                yield end;
+            }
+            default -> next;
+        };
+    }
+
+    private static int take(String regex, int from, int count) {
+        return Math.min(from + count, regex.length());
+    }
+
+    private static int closingIndex(String regex, int from, char close) {
+        int index = regex.indexOf(close, from);
+        return index < 0 ? regex.length() : index + 1;
+    }
+
+    // Whether the quantifier spanning [start, end) is *, + or {n,}, and not possessive.
+    private static boolean repeatsUnbounded(String regex, int start, int end) {
+        if (start >= end || (end - 1 > start && regex.charAt(end - 1) == '+')) {
+            return false;
+        }
+        char quantifier = regex.charAt(start);
+        if (quantifier == '*' || quantifier == '+') {
+            return true;
+        }
+        return quantifier == '{' && regex.startsWith(",}", regex.indexOf('}', start) - 1);
+    }
+
+    private static List<String> splitAlternatives(String regex) {
+        List<String> alternatives = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int index = 0; index < regex.length(); index++) {
+            char value = regex.charAt(index);
+            if (value == '\\') {
+                index++;
+            } else if (value == '[') {
+                index = classEnd(regex, index);
+            } else if (value == '(') {
+                depth++;
+            } else if (value == ')') {
+                depth--;
+            } else if (value == '|' && depth == 0) {
+                alternatives.add(regex.substring(start, index));
+                start = index + 1;
+            }
+        }
+        alternatives.add(regex.substring(start));
+        return alternatives;
+    }
+
+    private static List<String> literalRuns(String alternative) {
+        List<String> runs = new ArrayList<>();
+        StringBuilder run = new StringBuilder();
+        int index = 0;
+        while (index < alternative.length()) {
+            char value = alternative.charAt(index);
+            char literal;
+            int next;
+            if (value == '\\') {
+                if (index + 1 >= alternative.length()) {
+                    return null;
+                }
+                char escaped = alternative.charAt(index + 1);
+                next = index + 2;
+                if (Character.isLetterOrDigit(escaped)) {
+                    // Classes, assertions, backreferences, code point escapes (\x41, \0101, \cA and the like)
+                    // and quoted text: the run ends, and none of the escape's own characters join the next one.
+                    endRun(runs, run);
+                    index = skipQuantifier(alternative, escapeEnd(alternative, index));
+                    continue;
+                }
+                literal = escaped;
+            } else if (value == '(' || value == '[') {
+                int end = value == '(' ? groupEnd(alternative, index) : classEnd(alternative, index);
+                if (end < 0) {
+                    return null;
+                }
+                endRun(runs, run);
+                index = skipQuantifier(alternative, end + 1);
+                continue;
+            } else if (value == '.' || value == '^' || value == '$') {
+                endRun(runs, run);
+                index = skipQuantifier(alternative, index + 1);
+                continue;
+            } else if (value == ')' || value == '|' || isQuantifier(value)) {
+                return null;
+            } else {
+                literal = value;
+                next = index + 1;
+            }
+            if (next < alternative.length() && isQuantifier(alternative.charAt(next))) {
+                char quantifier = alternative.charAt(next);
+                boolean required = quantifier == '+'
+                        || (quantifier == '{' && next + 1 < alternative.length() && alternative.charAt(next + 1) != '0');
+                if (required) {
+                    run.append(Character.toLowerCase(literal));
+                }
+                // A repeated or optional char breaks contiguity with whatever follows.
+                endRun(runs, run);
+                index = skipQuantifier(alternative, next);
+                continue;
+            }
+            run.append(Character.toLowerCase(literal));
+            index = next;
+        }
+        endRun(runs, run);
+        return runs;
+    }
+
+    private static void endRun(List<String> runs, StringBuilder run) {
+        if (run.length() >= 2) {
+            runs.add(run.toString());
+        }
+        run.setLength(0);
+    }
+
+    private static boolean isQuantifier(char value) {
+        return value == '?' || value == '*' || value == '+' || value == '{';
+    }
+
+    private static int skipQuantifier(String regex, int index) {
+        if (index >= regex.length() || !isQuantifier(regex.charAt(index))) {
+            return index;
+        }
+        int next = index + 1;
+        if (regex.charAt(index) == '{') {
+            int close = regex.indexOf('}', index);
+            next = close < 0 ? regex.length() : close + 1;
+        }
+        // Lazy and possessive suffixes.
+        if (next < regex.length() && (regex.charAt(next) == '?' || regex.charAt(next) == '+')) {
+            next++;
+        }
+        return next;
+    }
+
+    private static int groupEnd(String regex, int open) {
+        int depth = 0;
+        for (int index = open; index < regex.length(); index++) {
+            char value = regex.charAt(index);
+            if (value == '\\') {
+                index++;
+            } else if (value == '[') {
+                index = classEnd(regex, index);
+                if (index < 0) {
+                    return -1;
+                }
+            } else if (value == '(') {
+                depth++;
+            } else if (value == ')' && --depth == 0) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private static int classEnd(String regex, int open) {
+        int index = open + 1;
+        if (index < regex.length() && regex.charAt(index) == '^') {
+            index++;
+        }
+        // A ']' right after the opening bracket is a literal member.
+        if (index < regex.length() && regex.charAt(index) == ']') {
+            index++;
+        }
+        for (; index < regex.length(); index++) {
+            char value = regex.charAt(index);
+            if (value == '\\') {
+                index++;
+            } else if (value == '[') {
+                int nested = classEnd(regex, index);
+                if (nested < 0) {
+                    return -1;
+                }
+                index = nested;
+            } else if (value == ']') {
+                return index;
+            }
+        }
+        return -1;
+    }
 }
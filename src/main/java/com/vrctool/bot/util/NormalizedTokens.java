@@ -0,0 +1,229 @@
+package com.vrctool.bot.util;
+
+import java.util.Arrays;
+
+// Reusable output buffer for TextNormalizer: the normalized text as one char
+// array (tokens separated by single spaces) plus each token's offsets in that
+// buffer and in the original input, so callers can walk tokens without
+// splitting or materialising strings. Not thread-safe; reuse one instance per
+// thread.
+public final class NormalizedTokens implements CharSequence {
+    private char[] chars = new char[128];
+    private int length;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int[] sourceStarts = new int[16];
+    private int[] sourceEnds = new int[16];
+    private int count;
+    // Open-addressing set of token index + 1, keyed by token hash; only used by appendDistinct.
+    private int[] distinct;
+    private int[] hashes;
+
+    public int size() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public int start(int index) {
+        checkIndex(index);
+        return starts[index];
+    }
+
+    public int end(int index) {
+        checkIndex(index);
+        return ends[index];
+    }
+
+    // Offsets of the input text this token was read from; synonym expansions share their source token's.
+    public int sourceStart(int index) {
+        checkIndex(index);
+        return sourceStarts[index];
+    }
+
+    public int sourceEnd(int index) {
+        checkIndex(index);
+        return sourceEnds[index];
+    }
+
+    public int tokenLength(int index) {
+        return end(index) - start(index);
+    }
+
+    public String token(int index) {
+        return new String(chars, start(index), tokenLength(index));
+    }
+
+    public boolean tokenEquals(int index, String value) {
+        int start = start(index);
+        int tokenLength = ends[index] - start;
+        if (value.length() != tokenLength) {
+            return false;
+        }
+        for (int offset = 0; offset < tokenLength; offset++) {
+            if (chars[start + offset] != value.charAt(offset)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return chars[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("[" + start + ", " + end + ")");
+        }
+        return new String(chars, start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return length == 0 ? "" : new String(chars, 0, length);
+    }
+
+    void clear() {
+        length = 0;
+        count = 0;
+        if (distinct != null) {
+            Arrays.fill(distinct, 0);
+        }
+    }
+
+    void startToken(int sourceStart) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+            sourceStarts = Arrays.copyOf(sourceStarts, count * 2);
+            sourceEnds = Arrays.copyOf(sourceEnds, count * 2);
+        }
+        if (count > 0) {
+            append(' ');
+        }
+        starts[count] = length;
+        ends[count] = length;
+        sourceStarts[count] = sourceStart;
+        sourceEnds[count] = sourceStart;
+        count++;
+    }
+
+    void endToken(int sourceEnd) {
+        sourceEnds[count - 1] = sourceEnd;
+    }
+
+    // Appends text[start, end) as a new token unless an equal token is already present.
+    boolean appendDistinct(CharSequence text, int start, int end, int sourceStart, int sourceEnd) {
+        int hash = 0;
+        for (int index = start; index < end; index++) {
+            hash = 31 * hash + text.charAt(index);
+        }
+        if (distinct == null || (count + 1) * 2 > distinct.length) {
+            rehash(Math.max(32, Integer.highestOneBit(Math.max(1, count) * 4)));
+        }
+        int mask = distinct.length - 1;
+        int slot = mix(hash) & mask;
+        for (int candidate = distinct[slot]; candidate != 0; candidate = distinct[slot]) {
+            int existing = candidate - 1;
+            if (hashes[existing] == hash && rangeEquals(existing, text, start, end)) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        startToken(sourceStart);
+        for (int index = start; index < end; index++) {
+            append(text.charAt(index));
+        }
+        ends[count - 1] = length;
+        endToken(sourceEnd);
+        if (hashes.length < starts.length) {
+            hashes = Arrays.copyOf(hashes, starts.length);
+        }
+        hashes[count - 1] = hash;
+        distinct[slot] = count;
+        return true;
+    }
+
+    void appendCodePoint(int codePoint) {
+        if (Character.isBmpCodePoint(codePoint)) {
+            append((char) codePoint);
+        } else {
+            append(Character.highSurrogate(codePoint));
+            append(Character.lowSurrogate(codePoint));
+        }
+        ends[count - 1] = length;
+    }
+
+    // Morphology only ever rewrites the token being built, which is always the last one.
+    void truncateLastToken(int tokenLength) {
+        length = starts[count - 1] + tokenLength;
+        ends[count - 1] = length;
+    }
+
+    void replaceLastToken(String replacement) {
+        length = starts[count - 1];
+        for (int index = 0; index < replacement.length(); index++) {
+            append(replacement.charAt(index));
+        }
+        ends[count - 1] = length;
+    }
+
+    private void append(char value) {
+        if (length == chars.length) {
+            chars = Arrays.copyOf(chars, length * 2);
+        }
+        chars[length++] = value;
+    }
+
+    private boolean rangeEquals(int index, CharSequence text, int start, int end) {
+        if (ends[index] - starts[index] != end - start) {
+            return false;
+        }
+        for (int offset = 0; offset < end - start; offset++) {
+            if (chars[starts[index] + offset] != text.charAt(start + offset)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Buffers that mix plain and distinct appends are not supported; rehash assumes every token is hashed.
+    private void rehash(int capacity) {
+        distinct = new int[capacity];
+        if (hashes == null) {
+            hashes = new int[starts.length];
+        }
+        int mask = capacity - 1;
+        for (int index = 0; index < count; index++) {
+            int slot = mix(hashes[index]) & mask;
+            while (distinct[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            distinct[slot] = index + 1;
+        }
+    }
+
+    private static int mix(int hash) {
+        int mixed = hash * 0x9E3779B9;
+        return mixed ^ (mixed >>> 16);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException(index);
+        }
+    }
+}
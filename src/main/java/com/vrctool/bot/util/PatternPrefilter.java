@@ -0,0 +1,175 @@
+package com.vrctool.bot.util;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+// Cheap gate in front of a fixed list of regexes. Each pattern is reduced to
+// the literal runs one of its alternatives must contain (see
+// ModerationPatterns.requiredLiterals), and each run to its lowercased
+// trigrams (bigrams for two-char runs) hashed into a 4096-bit mask. A text
+// is hashed the same way once; a pattern whose every alternative is missing
+// an n-gram cannot match and its regex is skipped. Hash collisions only let
+// extra texts through, never reject a real match.
+public final class PatternPrefilter {
+    private static final int WORDS = 64;
+    private static final int MASK = WORDS * Long.SIZE - 1;
+
+    public record Stats(long checked, long rejected) {
+        public double rejectRate() {
+            return checked == 0 ? 0 : (double) rejected / checked;
+        }
+    }
+
+    private final List<Pattern> patterns;
+    // Per pattern, per alternative, the n-gram mask that alternative needs; null means always run the regex.
+    private final long[][][] requirements;
+    private final LongAdder checked = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    private PatternPrefilter(List<Pattern> patterns) {
+        this.patterns = List.copyOf(patterns);
+        this.requirements = new long[this.patterns.size()][][];
+        for (int index = 0; index < this.patterns.size(); index++) {
+            List<List<String>> alternatives = ModerationPatterns.requiredLiterals(this.patterns.get(index));
+            if (alternatives == null) {
+                continue;
+            }
+            long[][] masks = new long[alternatives.size()][];
+            for (int alternative = 0; alternative < alternatives.size(); alternative++) {
+                long[] mask = new long[WORDS];
+                for (String run : alternatives.get(alternative)) {
+                    addRequiredGrams(mask, run);
+                }
+                masks[alternative] = mask;
+            }
+            requirements[index] = masks;
+        }
+    }
+
+    public static PatternPrefilter compile(List<Pattern> patterns) {
+        return new PatternPrefilter(patterns == null ? List.of() : patterns);
+    }
+
+    public List<Pattern> patterns() {
+        return patterns;
+    }
+
+    public boolean filters(int patternIndex) {
+        return requirements[patternIndex] != null;
+    }
+
+    // N-gram mask of the candidates together; n-grams never span two candidates.
+    public static long[] signature(CharSequence... candidates) {
+        long[] signature = new long[WORDS];
+        for (CharSequence candidate : candidates) {
+            if (candidate != null) {
+                addGrams(signature, candidate);
+            }
+        }
+        return signature;
+    }
+
+    // signature plus the n-grams of more, as a new mask.
+    public static long[] extend(long[] signature, CharSequence... more) {
+        long[] extended = signature.clone();
+        for (CharSequence candidate : more) {
+            if (candidate != null) {
+                addGrams(extended, candidate);
+            }
+        }
+        return extended;
+    }
+
+    // Runs the pattern over the candidates unless the signature rules it out.
+    public boolean find(int patternIndex, long[] signature, CharSequence... candidates) {
+        if (!admits(patternIndex, signature)) {
+            return false;
+        }
+        for (CharSequence candidate : candidates) {
+            if (matches(patternIndex, candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The prefilter half of find: false only if the pattern cannot match text with this signature.
+    public boolean admits(int patternIndex, long[] signature) {
+        long[][] alternatives = requirements[patternIndex];
+        if (alternatives == null) {
+            return true;
+        }
+        checked.increment();
+        if (!anySatisfied(alternatives, signature)) {
+            rejected.increment();
+            return false;
+        }
+        return true;
+    }
+
+    // The regex half of find, for one candidate.
+    public boolean matches(int patternIndex, CharSequence candidate) {
+        return candidate != null && !candidate.isEmpty() && patterns.get(patternIndex).matcher(candidate).find();
+    }
+
+    public Stats stats() {
+        return new Stats(checked.sum(), rejected.sum());
+    }
+
+    private static boolean anySatisfied(long[][] alternatives, long[] signature) {
+        for (long[] required : alternatives) {
+            boolean satisfied = true;
+            for (int word = 0; word < WORDS && satisfied; word++) {
+                satisfied = (required[word] & ~signature[word]) == 0;
+            }
+            if (satisfied) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void addRequiredGrams(long[] mask, String run) {
+        if (run.length() == 2) {
+            set(mask, bigram(run.charAt(0), run.charAt(1)));
+            return;
+        }
+        for (int index = 2; index < run.length(); index++) {
+            set(mask, trigram(run.charAt(index - 2), run.charAt(index - 1), run.charAt(index)));
+        }
+    }
+
+    private static void addGrams(long[] mask, CharSequence text) {
+        if (text.length() < 2) {
+            return;
+        }
+        char first = 0;
+        char second = Character.toLowerCase(text.charAt(0));
+        for (int index = 1; index < text.length(); index++) {
+            char third = Character.toLowerCase(text.charAt(index));
+            set(mask, bigram(second, third));
+            if (index >= 2) {
+                set(mask, trigram(first, second, third));
+            }
+            first = second;
+            second = third;
+        }
+    }
+
+    private static int bigram(char first, char second) {
+        return mix(first * 0x9E3779B1 + second);
+    }
+
+    private static int trigram(char first, char second, char third) {
+        return mix((first * 0x9E3779B1 + second) * 0x9E3779B1 + third + 0x7F4A7C15);
+    }
+
+    private static int mix(int hash) {
+        return (hash * 0x85EBCA6B >>> 16) & MASK;
+    }
+
+    private static void set(long[] mask, int bit) {
+        mask[bit >>> 6] |= 1L << bit;
+    }
+}
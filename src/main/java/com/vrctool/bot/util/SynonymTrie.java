@@ -0,0 +1,300 @@
+package com.vrctool.bot.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Aho-Corasick automaton over whole tokens rather than chars: every synonym
+// phrase ("scam", "phone number") is a path of token ids, so single and
+// multi-word phrases are matched in one left-to-right pass over the
+// normalized tokens. Built once and frozen into flat arrays; matching looks
+// tokens up by their chars in the buffer and allocates nothing.
+final class SynonymTrie {
+    private static final int ROOT = 0;
+    static final SynonymTrie EMPTY = new Builder().build();
+
+    // Token vocabulary: open-addressing table of id + 1, keyed by the same hash NormalizedTokens uses.
+    private final String[] vocabulary;
+    private final int[] vocabularyHashes;
+    private final int[] vocabularyTable;
+    // Children of node n are childTokens/childNodes[childOffsets[n], childOffsets[n + 1]), sorted by token id.
+    private final int[] childOffsets;
+    private final int[] childTokens;
+    private final int[] childNodes;
+    private final int[] failures;
+    // Outputs of node n (its own phrase and those of its suffixes) sit in [outputOffsets[n], outputOffsets[n + 1]).
+    private final int[] outputOffsets;
+    private final int[] outputExpansions;
+    private final int[] outputPhraseLengths;
+    private final String[] expansions;
+
+    private SynonymTrie(
+            String[] vocabulary,
+            int[] childOffsets,
+            int[] childTokens,
+            int[] childNodes,
+            int[] failures,
+            int[] outputOffsets,
+            int[] outputExpansions,
+            int[] outputPhraseLengths,
+            String[] expansions
+    ) {
+        this.vocabulary = vocabulary;
+        this.vocabularyHashes = new int[vocabulary.length];
+        this.vocabularyTable = new int[Math.max(2, Integer.highestOneBit(Math.max(1, vocabulary.length) * 4))];
+        this.childOffsets = childOffsets;
+        this.childTokens = childTokens;
+        this.childNodes = childNodes;
+        this.failures = failures;
+        this.outputOffsets = outputOffsets;
+        this.outputExpansions = outputExpansions;
+        this.outputPhraseLengths = outputPhraseLengths;
+        this.expansions = expansions;
+        int mask = vocabularyTable.length - 1;
+        for (int id = 0; id < vocabulary.length; id++) {
+            int hash = hash(vocabulary[id], 0, vocabulary[id].length());
+            vocabularyHashes[id] = hash;
+            int slot = mix(hash) & mask;
+            while (vocabularyTable[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            vocabularyTable[slot] = id + 1;
+        }
+    }
+
+    boolean isEmpty() {
+        return vocabulary.length == 0;
+    }
+
+    // Appends each distinct token to expanded, followed by the expansions of every phrase ending at it.
+    // Expansions carry the source span of the whole phrase they were matched from.
+    void expandInto(NormalizedTokens tokens, NormalizedTokens expanded) {
+        int state = ROOT;
+        for (int index = 0; index < tokens.size(); index++) {
+            int start = tokens.start(index);
+            int end = tokens.end(index);
+            expanded.appendDistinct(tokens, start, end, tokens.sourceStart(index), tokens.sourceEnd(index));
+            if (isEmpty()) {
+                continue;
+            }
+            state = next(state, tokenId(tokens, start, end));
+            for (int output = outputOffsets[state]; output < outputOffsets[state + 1]; output++) {
+                String expansion = expansions[outputExpansions[output]];
+                int first = index - outputPhraseLengths[output] + 1;
+                expanded.appendDistinct(
+                        expansion,
+                        0,
+                        expansion.length(),
+                        tokens.sourceStart(first),
+                        tokens.sourceEnd(index)
+                );
+            }
+        }
+    }
+
+    private int next(int state, int tokenId) {
+        if (tokenId < 0) {
+            // No phrase contains this token, so every partial match ends here.
+            return ROOT;
+        }
+        int current = state;
+        while (true) {
+            int child = child(current, tokenId);
+            if (child >= 0) {
+                return child;
+            }
+            if (current == ROOT) {
+                return ROOT;
+            }
+            current = failures[current];
+        }
+    }
+
+    private int child(int node, int tokenId) {
+        int index = Arrays.binarySearch(childTokens, childOffsets[node], childOffsets[node + 1], tokenId);
+        return index < 0 ? -1 : childNodes[index];
+    }
+
+    private int tokenId(CharSequence text, int start, int end) {
+        int hash = hash(text, start, end);
+        int mask = vocabularyTable.length - 1;
+        int slot = mix(hash) & mask;
+        for (int candidate = vocabularyTable[slot]; candidate != 0; candidate = vocabularyTable[slot]) {
+            int id = candidate - 1;
+            if (vocabularyHashes[id] == hash && rangeEquals(vocabulary[id], text, start, end)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static boolean rangeEquals(String value, CharSequence text, int start, int end) {
+        if (value.length() != end - start) {
+            return false;
+        }
+        for (int offset = 0; offset < value.length(); offset++) {
+            if (value.charAt(offset) != text.charAt(start + offset)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(CharSequence text, int start, int end) {
+        int hash = 0;
+        for (int index = start; index < end; index++) {
+            hash = 31 * hash + text.charAt(index);
+        }
+        return hash;
+    }
+
+    private static int mix(int hash) {
+        int mixed = hash * 0x9E3779B9;
+        return mixed ^ (mixed >>> 16);
+    }
+
+    static final class Builder {
+        private final Map<String, Integer> tokenIds = new LinkedHashMap<>();
+        private final List<Map<Integer, Integer>> children = new ArrayList<>();
+        private final List<Set<String>> outputs = new ArrayList<>();
+        private final List<Integer> depths = new ArrayList<>();
+
+        Builder() {
+            addNode(0);
+        }
+
+        // Registers a phrase (already split into normalized tokens) and the text it expands to;
+        // the phrase itself is dropped from its expansions since the tokens already contain it.
+        Builder add(String[] phrase, List<String> phraseExpansions) {
+            if (phrase.length == 0) {
+                return this;
+            }
+            int node = ROOT;
+            for (String token : phrase) {
+                int tokenId = tokenIds.computeIfAbsent(token, ignored -> tokenIds.size());
+                Integer child = children.get(node).get(tokenId);
+                if (child == null) {
+                    child = addNode(depths.get(node) + 1);
+                    children.get(node).put(tokenId, child);
+                }
+                node = child;
+            }
+            String text = String.join(" ", phrase);
+            for (String expansion : phraseExpansions) {
+                if (!expansion.equals(text)) {
+                    outputs.get(node).add(expansion);
+                }
+            }
+            return this;
+        }
+
+        SynonymTrie build() {
+            int nodeCount = children.size();
+            int[] childOffsets = new int[nodeCount + 1];
+            int edgeCount = 0;
+            for (int node = 0; node < nodeCount; node++) {
+                childOffsets[node] = edgeCount;
+                edgeCount += children.get(node).size();
+            }
+            childOffsets[nodeCount] = edgeCount;
+            int[] childTokens = new int[edgeCount];
+            int[] childNodes = new int[edgeCount];
+            for (int node = 0; node < nodeCount; node++) {
+                int edge = childOffsets[node];
+                for (Map.Entry<Integer, Integer> child : new TreeMap<>(children.get(node)).entrySet()) {
+                    childTokens[edge] = child.getKey();
+                    childNodes[edge] = child.getValue();
+                    edge++;
+                }
+            }
+
+            // Breadth-first, so a node's failure target (a shorter suffix) is always finished before it.
+            int[] failures = new int[nodeCount];
+            List<List<int[]>> merged = new ArrayList<>(nodeCount);
+            Map<String, Integer> expansionIds = new HashMap<>();
+            List<String> expansionList = new ArrayList<>();
+            for (int node = 0; node < nodeCount; node++) {
+                merged.add(null);
+            }
+            merged.set(ROOT, List.of());
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            for (int child : children.get(ROOT).values()) {
+                failures[child] = ROOT;
+                queue.add(child);
+            }
+            while (!queue.isEmpty()) {
+                int node = queue.poll();
+                List<int[]> nodeOutputs = new ArrayList<>();
+                Set<Integer> seen = new LinkedHashSet<>();
+                for (String expansion : outputs.get(node)) {
+                    int id = expansionIds.computeIfAbsent(expansion, value -> {
+                        expansionList.add(value);
+                        return expansionList.size() - 1;
+                    });
+                    if (seen.add(id)) {
+                        nodeOutputs.add(new int[] {id, depths.get(node)});
+                    }
+                }
+                for (int[] inherited : merged.get(failures[node])) {
+                    if (seen.add(inherited[0])) {
+                        nodeOutputs.add(inherited);
+                    }
+                }
+                merged.set(node, nodeOutputs);
+                for (Map.Entry<Integer, Integer> child : children.get(node).entrySet()) {
+                    int failure = failures[node];
+                    while (failure != ROOT && !children.get(failure).containsKey(child.getKey())) {
+                        failure = failures[failure];
+                    }
+                    Integer target = children.get(failure).get(child.getKey());
+                    failures[child.getValue()] = target == null ? ROOT : target;
+                    queue.add(child.getValue());
+                }
+            }
+
+            int[] outputOffsets = new int[nodeCount + 1];
+            int outputCount = 0;
+            for (int node = 0; node < nodeCount; node++) {
+                outputOffsets[node] = outputCount;
+                outputCount += merged.get(node).size();
+            }
+            outputOffsets[nodeCount] = outputCount;
+            int[] outputExpansions = new int[outputCount];
+            int[] outputPhraseLengths = new int[outputCount];
+            for (int node = 0; node < nodeCount; node++) {
+                int output = outputOffsets[node];
+                for (int[] entry : merged.get(node)) {
+                    outputExpansions[output] = entry[0];
+                    outputPhraseLengths[output] = entry[1];
+                    output++;
+                }
+            }
+            return new SynonymTrie(
+                    tokenIds.keySet().toArray(new String[0]),
+                    childOffsets,
+                    childTokens,
+                    childNodes,
+                    failures,
+                    outputOffsets,
+                    outputExpansions,
+                    outputPhraseLengths,
+                    expansionList.toArray(new String[0])
+            );
+        }
+
+        private int addNode(int depth) {
+            children.add(new LinkedHashMap<>());
+            outputs.add(new LinkedHashSet<>());
+            depths.add(depth);
+            return children.size() - 1;
+        }
+    }
+}
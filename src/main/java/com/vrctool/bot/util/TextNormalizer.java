@@ -4,9 +4,6 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
@@ -15,6 +12,11 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.regex.Pattern;
 
+// normalize() is a single pass over the input's code points: each one is
+// lowercased, letters and digits are appended to the current token and
+// anything else ends it, and morphology trims or rewrites the token in place.
+// Tokens land in a reusable NormalizedTokens buffer, so the only allocation
+// per call is the returned string.
 public final class TextNormalizer {
     public enum MorphologyMode {
         NONE,
@@ -27,13 +29,24 @@ public final class TextNormalizer {
     private static final Pattern NON_ALNUM = Pattern.compile("[^\\p{L}\\p{N}]+");
     private static final Pattern WHITESPACE = Pattern.compile("\\s+");
     private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String[][] LEMMAS = {
+            {"children", "child"},
+            {"people", "person"},
+            {"men", "man"},
+            {"women", "woman"},
+            {"mice", "mouse"},
+            {"geese", "goose"}
+    };
+    private static final char DOTTED_CAPITAL_I = '\u0130';
+    private static final char CAPITAL_SIGMA = '\u03A3';
+    private static final ThreadLocal<TokenSequence> SCRATCH = ThreadLocal.withInitial(TokenSequence::new);
 
     private final MorphologyMode morphologyMode;
-    private final Map<String, Set<String>> synonymExpansions;
+    private final SynonymTrie synonyms;
 
     public TextNormalizer(Map<String, List<String>> synonyms, MorphologyMode morphologyMode) {
         this.morphologyMode = Objects.requireNonNull(morphologyMode, "morphologyMode");
-        this.synonymExpansions = buildExpansions(synonyms == null ? Map.of() : synonyms);
+        this.synonyms = buildSynonyms(synonyms == null ? Map.of() : synonyms);
     }
 
     public static TextNormalizer fromResource(String resourcePath, MorphologyMode morphologyMode) {
@@ -42,83 +55,133 @@ public final class TextNormalizer {
     }
 
     public NormalizedResult normalizeAndExpand(String input) {
-        String normalized = normalize(input);
-        String expanded = expandWithSynonyms(normalized);
-        return new NormalizedResult(normalized, expanded);
+        TokenSequence tokens = analyzeInto(input, SCRATCH.get());
+        return new NormalizedResult(tokens.normalized().toString(), tokens.expanded().toString());
     }
 
     public String normalize(String input) {
-        if (input == null || input.isBlank()) {
-            return "";
-        }
-        String lowered = input.toLowerCase(Locale.ROOT);
-        String cleaned = NON_ALNUM.matcher(lowered).replaceAll(" ");
-        String collapsed = WHITESPACE.matcher(cleaned).replaceAll(" ").trim();
-        if (collapsed.isBlank()) {
-            return "";
+        return normalizeInto(input, SCRATCH.get().normalized()).toString();
+    }
+
+    // Tokenizes input once for every consumer in the pipeline; the result is owned by the caller.
+    public TokenSequence analyze(String input) {
+        return analyzeInto(input, new TokenSequence());
+    }
+
+    public TokenSequence analyzeInto(String input, TokenSequence output) {
+        output.reset(input);
+        normalizeInto(input, output.normalized());
+        synonyms.expandInto(output.normalized(), output.expanded());
+        return output;
+    }
+
+    // Clears the buffer and fills it with the normalized tokens of input.
+    public NormalizedTokens normalizeInto(String input, NormalizedTokens output) {
+        output.clear();
+        if (input == null || input.isEmpty()) {
+            return output;
         }
-        if (morphologyMode == MorphologyMode.NONE) {
-            return collapsed;
-        }
-        String[] tokens = collapsed.split(" ");
-        List<String> normalizedTokens = new ArrayList<>(tokens.length);
-        for (String token : tokens) {
-            String normalized = applyMorphology(token);
-            if (!normalized.isBlank()) {
-                normalizedTokens.add(normalized);
+        // Sigma lowercases differently at the end of a word; let String handle those rare inputs.
+        // Offsets then refer to the lowercased text, which only differs in length if it also has a dotted I.
+        String source = input.indexOf(CAPITAL_SIGMA) >= 0 ? input.toLowerCase(Locale.ROOT) : input;
+        boolean inToken = false;
+        for (int index = 0; index < source.length();) {
+            int start = index;
+            int codePoint = source.codePointAt(index);
+            index += Character.charCount(codePoint);
+            int lowered = Character.toLowerCase(codePoint);
+            if (isLetterOrNumber(lowered)) {
+                if (!inToken) {
+                    output.startToken(start);
+                    inToken = true;
+                }
+                output.appendCodePoint(lowered);
+                // String lowercases a dotted capital I to "i" plus a combining dot, which ends the token.
+                if (codePoint == DOTTED_CAPITAL_I) {
+                    finishToken(output, index);
+                    inToken = false;
+                }
+            } else if (inToken) {
+                finishToken(output, start);
+                inToken = false;
             }
         }
-        return String.join(" ", normalizedTokens).trim();
+        if (inToken) {
+            finishToken(output, source.length());
+        }
+        return output;
     }
 
+    // Expands text that is already normalized (tokens separated by single spaces).
     public String expandWithSynonyms(String normalized) {
         if (normalized == null || normalized.isBlank()) {
             return "";
         }
-        String[] tokens = normalized.split(" ");
-        Set<String> expandedTokens = new LinkedHashSet<>();
-        for (String token : tokens) {
-            if (token.isBlank()) {
-                continue;
-            }
-            expandedTokens.add(token);
-            Set<String> expansions = synonymExpansions.get(token);
-            if (expansions != null) {
-                expandedTokens.addAll(expansions);
+        TokenSequence scratch = SCRATCH.get();
+        scratch.reset(normalized);
+        NormalizedTokens tokens = scratch.normalized();
+        boolean inToken = false;
+        for (int index = 0; index < normalized.length(); index++) {
+            char value = normalized.charAt(index);
+            if (value != ' ') {
+                if (!inToken) {
+                    tokens.startToken(index);
+                    inToken = true;
+                }
+                tokens.appendCodePoint(value);
+            } else if (inToken) {
+                tokens.endToken(index);
+                inToken = false;
             }
         }
-        return String.join(" ", expandedTokens);
+        if (inToken) {
+            tokens.endToken(normalized.length());
+        }
+        synonyms.expandInto(tokens, scratch.expanded());
+        return scratch.expanded().toString();
     }
 
-    private Map<String, Set<String>> buildExpansions(Map<String, List<String>> synonyms) {
-        if (synonyms.isEmpty()) {
-            return Map.of();
+    // Every term of a group expands to the whole group. A term is matched both as written and in
+    // its morphology form, since the stemmer is not idempotent ("harass" stems to "haras", while
+    // "harassing" stems to "harass"); expansions are emitted as written so keyword lists match them.
+    private SynonymTrie buildSynonyms(Map<String, List<String>> synonymGroups) {
+        if (synonymGroups.isEmpty()) {
+            return SynonymTrie.EMPTY;
         }
-        Map<String, Set<String>> expansions = new LinkedHashMap<>();
-        for (Map.Entry<String, List<String>> entry : synonyms.entrySet()) {
-            String key = normalizeToken(entry.getKey());
-            if (key.isBlank()) {
+        SynonymTrie.Builder builder = new SynonymTrie.Builder();
+        for (Map.Entry<String, List<String>> entry : synonymGroups.entrySet()) {
+            Set<String> group = new LinkedHashSet<>();
+            addTerm(group, entry.getKey());
+            if (entry.getValue() != null) {
+                entry.getValue().forEach(synonym -> addTerm(group, synonym));
+            }
+            if (group.size() < 2) {
                 continue;
             }
-            Set<String> group = new LinkedHashSet<>();
-            group.add(key);
-            List<String> values = entry.getValue();
-            if (values != null) {
-                for (String synonym : values) {
-                    String normalized = normalizeToken(synonym);
-                    if (!normalized.isBlank()) {
-                        group.add(normalized);
+            List<String> expansions = List.copyOf(group);
+            for (String term : group) {
+                String[] phrase = term.split(" ");
+                builder.add(phrase, expansions);
+                if (morphologyMode != MorphologyMode.NONE) {
+                    String[] morphology = new String[phrase.length];
+                    for (int index = 0; index < phrase.length; index++) {
+                        morphology[index] = applyMorphology(phrase[index]);
                     }
+                    builder.add(morphology, expansions);
                 }
             }
-            for (String term : group) {
-                expansions.computeIfAbsent(term, ignored -> new LinkedHashSet<>()).addAll(group);
-            }
         }
-        for (Map.Entry<String, Set<String>> entry : expansions.entrySet()) {
-            entry.getValue().remove(entry.getKey());
+        return builder.build();
+    }
+
+    private static void addTerm(Set<String> group, String term) {
+        if (term == null || term.isBlank()) {
+            return;
+        }
+        String cleaned = NON_ALNUM.matcher(term.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+        if (!cleaned.isEmpty()) {
+            group.add(WHITESPACE.matcher(cleaned).replaceAll(" "));
         }
-        return Collections.unmodifiableMap(expansions);
     }
 
     private static Map<String, List<String>> loadSynonyms(String resourcePath) {
@@ -138,22 +201,30 @@ public final class TextNormalizer {
         }
     }
 
-    private String normalizeToken(String token) {
-        if (token == null || token.isBlank()) {
-            return "";
-        }
-        String cleaned = NON_ALNUM.matcher(token.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
-        if (cleaned.isBlank()) {
-            return "";
+    private void finishToken(NormalizedTokens tokens, int sourceEnd) {
+        tokens.endToken(sourceEnd);
+        applyMorphology(tokens);
+    }
+
+    // Same rules as applyMorphology(String), applied to the buffer's last token.
+    private void applyMorphology(NormalizedTokens tokens) {
+        if (morphologyMode == MorphologyMode.NONE) {
+            return;
         }
-        String collapsed = WHITESPACE.matcher(cleaned).replaceAll(" ").trim();
-        if (collapsed.contains(" ")) {
-            return collapsed;
+        int last = tokens.size() - 1;
+        if (morphologyMode == MorphologyMode.LEMMA) {
+            for (String[] lemma : LEMMAS) {
+                if (tokens.tokenEquals(last, lemma[0])) {
+                    tokens.replaceLastToken(lemma[1]);
+                    return;
+                }
+            }
         }
-        if (morphologyMode == MorphologyMode.NONE) {
-            return collapsed;
+        int length = tokens.tokenLength(last);
+        int suffix = stemSuffixLength(tokens, tokens.end(last), length);
+        if (suffix > 0) {
+            tokens.truncateLastToken(length - suffix);
         }
-        return applyMorphology(collapsed);
     }
 
     private String applyMorphology(String token) {
@@ -171,33 +242,58 @@ public final class TextNormalizer {
     }
 
     private static String lemmatizeToken(String token) {
-        return switch (token) {
-            case "children" -> "child";
-            case "people" -> "person";
-            case "men" -> "man";
-            case "women" -> "woman";
-            case "mice" -> "mouse";
-            case "geese" -> "goose";
-            default -> token;
-        };
+        for (String[] lemma : LEMMAS) {
+            if (lemma[0].equals(token)) {
+                return lemma[1];
+            }
+        }
+        return token;
     }
 
     private static String stemToken(String token) {
-        if (token.length() <= 3) {
-            return token;
+        int suffix = stemSuffixLength(token, token.length(), token.length());
+        return suffix == 0 ? token : token.substring(0, token.length() - suffix);
+    }
+
+    // Number of trailing chars the stemmer strips from the token ending at end.
+    private static int stemSuffixLength(CharSequence text, int end, int length) {
+        if (length <= 3) {
+            return 0;
         }
-        if (token.endsWith("ing") && token.length() > 5) {
-            return token.substring(0, token.length() - 3);
+        if (length > 5 && endsWith(text, end, "ing")) {
+            return 3;
         }
-        if (token.endsWith("ed") && token.length() > 4) {
-            return token.substring(0, token.length() - 2);
+        if (length > 4 && (endsWith(text, end, "ed") || endsWith(text, end, "es"))) {
+            return 2;
         }
-        if (token.endsWith("es") && token.length() > 4) {
-            return token.substring(0, token.length() - 2);
+        if (text.charAt(end - 1) == 's') {
+            return 1;
         }
-        if (token.endsWith("s") && token.length() > 3) {
-            return token.substring(0, token.length() - 1);
+        return 0;
+    }
+
+    private static boolean endsWith(CharSequence text, int end, String suffix) {
+        int start = end - suffix.length();
+        for (int offset = 0; offset < suffix.length(); offset++) {
+            if (text.charAt(start + offset) != suffix.charAt(offset)) {
+                return false;
+            }
         }
-        return token;
+        return true;
+    }
+
+    // Matches the [\p{L}\p{N}] class the regex-based normalizer used.
+    private static boolean isLetterOrNumber(int codePoint) {
+        return switch (Character.getType(codePoint)) {
+            case Character.UPPERCASE_LETTER,
+                    Character.LOWERCASE_LETTER,
+                    Character.TITLECASE_LETTER,
+                    Character.MODIFIER_LETTER,
+                    Character.OTHER_LETTER,
+                    Character.DECIMAL_DIGIT_NUMBER,
+                    Character.LETTER_NUMBER,
+                    Character.OTHER_NUMBER -> true;
+            default -> false;
+        };
     }
 }
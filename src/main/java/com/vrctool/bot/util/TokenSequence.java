@@ -0,0 +1,31 @@
+package com.vrctool.bot.util;
+
+// One message as the moderation pipeline sees it: the original text, its
+// normalized tokens, and the distinct normalized tokens with synonym
+// expansions interleaved. TextNormalizer.analyze builds it once per message
+// and the matchers, word memory and decision engine all read from it instead
+// of re-tokenizing the content. Both token views are CharSequences, so regex
+// and automaton matchers can scan them without materialising strings.
+public final class TokenSequence {
+    private final NormalizedTokens normalized = new NormalizedTokens();
+    private final NormalizedTokens expanded = new NormalizedTokens();
+    private String source = "";
+
+    public String source() {
+        return source;
+    }
+
+    public NormalizedTokens normalized() {
+        return normalized;
+    }
+
+    public NormalizedTokens expanded() {
+        return expanded;
+    }
+
+    void reset(String source) {
+        this.source = source == null ? "" : source;
+        normalized.clear();
+        expanded.clear();
+    }
+}
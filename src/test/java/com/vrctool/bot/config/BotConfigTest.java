@@ -0,0 +1,50 @@
+package com.vrctool.bot.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.vrctool.bot.util.BlockedPatternAutomaton;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+class BotConfigTest {
+
+    @Test
+    void defaultBlockedPatternsCompileAndMatchLikeJavaRegex() {
+        List<Pattern> patterns = BotConfig.defaultBlockedPatterns();
+        // Several defaults grow the automaton's NFA inside a loop body, which once broke startup.
+        BlockedPatternAutomaton automaton = BlockedPatternAutomaton.compile(patterns);
+        String[] messages = {
+                "hello there, see you in the world tonight",
+                "join discord . gg / invite for free stuff",
+                "d i s c o r d dot gg",
+                "free nitro here",
+                "grab it at example dot com/login",
+                "my ip is 192.168.0.1",
+                "aaaaaaaaaaaaaaaaaaaa",
+                "DM ME for a deal"
+        };
+        for (String message : messages) {
+            Pattern expected = null;
+            for (Pattern pattern : patterns) {
+                if (pattern.matcher(message).find()) {
+                    expected = pattern;
+                    break;
+                }
+            }
+            assertEquals(expected, automaton.firstMatch(message), message);
+        }
+    }
+
+    @Test
+    void writeBehindIsOptIn() {
+        assertFalse(BotConfig.fromEnvironment(Map.of("DISCORD_TOKEN", "test-token")::get).wordMemoryWriteBehind());
+        assertTrue(BotConfig.fromEnvironment(Map.of(
+                "DISCORD_TOKEN", "test-token",
+                "WORD_MEMORY_WRITE_BEHIND", "true"
+        )::get).wordMemoryWriteBehind());
+    }
+}
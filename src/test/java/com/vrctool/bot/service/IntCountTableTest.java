@@ -0,0 +1,58 @@
+package com.vrctool.bot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class IntCountTableTest {
+    @Test
+    void matchesHashMapUnderRandomAddsAndRemovals() {
+        IntCountTable table = new IntCountTable();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int step = 0; step < 200_000; step++) {
+            int key = random.nextInt(2000);
+            int delta = random.nextInt(3) == 0 ? -random.nextInt(4) - 1 : random.nextInt(3) + 1;
+            int current = expected.getOrDefault(key, 0);
+            int updated = current + delta;
+            if (updated <= 0) {
+                expected.remove(key);
+            } else if (current > 0 || delta > 0) {
+                expected.put(key, updated);
+            }
+            assertEquals((int) expected.getOrDefault(key, 0), table.add(key, delta));
+        }
+        assertEquals(expected.size(), table.size());
+        for (int key = 0; key < 2000; key++) {
+            assertEquals((int) expected.getOrDefault(key, 0), table.get(key));
+        }
+        int[] entries = table.entries();
+        assertEquals(expected.size() * 2, entries.length);
+        for (int index = 0; index < entries.length; index += 2) {
+            assertEquals((int) expected.get(entries[index]), entries[index + 1]);
+        }
+    }
+
+    @Test
+    void dictionaryReusesIdsOnceTokensAreReleased() {
+        TokenDictionary dictionary = new TokenDictionary();
+        int free = dictionary.acquire("free");
+        int nitro = dictionary.acquire("nitro");
+        assertEquals(free, dictionary.acquire("free"));
+
+        dictionary.release(free);
+        assertEquals(free, dictionary.idOf("free"));
+        dictionary.release(free);
+        assertEquals(-1, dictionary.idOf("free"));
+        assertNull(dictionary.token(free));
+
+        assertEquals(free, dictionary.acquire("robux"));
+        assertEquals("robux", dictionary.token(free));
+        assertEquals("nitro", dictionary.token(nitro));
+        assertEquals(2, dictionary.size());
+    }
+}
@@ -0,0 +1,157 @@
+package com.vrctool.bot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class LlmBatchClassifierTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    private final LlmCircuitBreaker breaker = new LlmCircuitBreaker(
+            3,
+            Duration.ofSeconds(10),
+            Duration.ofSeconds(5),
+            Duration.ofMillis(250),
+            Duration.ofSeconds(5)
+    );
+    private HttpServer server;
+
+    @AfterEach
+    void stopServer() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void postsOneArrayAndDemultiplexesInOrder() {
+        LlmBatchClassifier classifier = classifier(startServer(200), 4, Duration.ofSeconds(5));
+        List<CompletableFuture<LlmClient.LlmClassification>> results = new ArrayList<>();
+        for (String message : List.of("hello", "free nitro scam", "gg", "another scam")) {
+            results.add(classifier.classify(message));
+        }
+
+        assertEquals(LlmClient.RiskLevel.LOW, results.get(0).join().riskLevel());
+        assertEquals("hello", results.get(0).join().rationale());
+        assertEquals(LlmClient.RiskLevel.HIGH, results.get(1).join().riskLevel());
+        assertEquals("free nitro scam", results.get(1).join().rationale());
+        assertEquals("gg", results.get(2).join().rationale());
+        assertEquals("another scam", results.get(3).join().rationale());
+        assertEquals(List.of(4), batchSizes);
+    }
+
+    @Test
+    void flushesPartialBatchAfterDelay() {
+        LlmBatchClassifier classifier = classifier(startServer(200), 16, Duration.ofMillis(20));
+        CompletableFuture<LlmClient.LlmClassification> first = classifier.classify("one");
+        CompletableFuture<LlmClient.LlmClassification> second = classifier.classify("two");
+
+        assertEquals("one", first.join().rationale());
+        assertEquals("two", second.join().rationale());
+        assertEquals(List.of(2), batchSizes);
+    }
+
+    @Test
+    void shutdownFlushesPendingAndSendsLaterRequestsImmediately() {
+        LlmBatchClassifier classifier = classifier(startServer(200), 16, Duration.ofSeconds(30));
+        CompletableFuture<LlmClient.LlmClassification> pending = classifier.classify("pending");
+
+        classifier.shutdown();
+        CompletableFuture<LlmClient.LlmClassification> late = classifier.classify("late");
+
+        assertEquals("pending", pending.join().rationale());
+        assertEquals("late", late.join().rationale());
+        assertEquals(List.of(1, 1), batchSizes);
+    }
+
+    @Test
+    void failsOnlyMalformedOrMissingEntries() {
+        LlmBatchClassifier classifier = classifier(startServer(200), 3, Duration.ofSeconds(5));
+        CompletableFuture<LlmClient.LlmClassification> good = classifier.classify("fine");
+        CompletableFuture<LlmClient.LlmClassification> malformed = classifier.classify("malformed");
+        CompletableFuture<LlmClient.LlmClassification> missing = classifier.classify("truncate");
+
+        assertEquals("fine", good.join().rationale());
+        assertThrows(CompletionException.class, malformed::join);
+        assertThrows(CompletionException.class, missing::join);
+    }
+
+    @Test
+    void failsWholeBatchOnServerErrorAsOneBreakerFailure() {
+        LlmBatchClassifier classifier = classifier(startServer(503), 4, Duration.ofSeconds(5));
+        List<CompletableFuture<LlmClient.LlmClassification>> results = new ArrayList<>();
+        for (String message : List.of("a", "b", "c", "d")) {
+            results.add(classifier.classify(message));
+        }
+
+        for (CompletableFuture<LlmClient.LlmClassification> result : results) {
+            assertThrows(CompletionException.class, result::join);
+        }
+        // Four messages, one POST: a single failure, below the threshold of three.
+        assertEquals(1, breaker.stats().consecutiveFailures());
+        assertEquals(LlmCircuitBreaker.State.CLOSED, breaker.stats().state());
+    }
+
+    private LlmBatchClassifier classifier(URI endpoint, int maxBatchSize, Duration maxDelay) {
+        return new LlmBatchClassifier(
+                HttpClient.newHttpClient(),
+                objectMapper,
+                endpoint,
+                breaker,
+                maxBatchSize,
+                maxDelay
+        );
+    }
+
+    private URI startServer(int status) {
+        try {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        } catch (IOException error) {
+            throw new IllegalStateException(error);
+        }
+        server.createContext("/classify", exchange -> {
+            JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+            batchSizes.add(request.size());
+            ArrayNode response = objectMapper.createArrayNode();
+            for (JsonNode item : request) {
+                String message = item.path("message").asText();
+                if (message.equals("truncate")) {
+                    break;
+                }
+                ObjectNode entry = response.addObject();
+                if (message.equals("malformed")) {
+                    entry.put("error", "model failed");
+                    continue;
+                }
+                entry.put("riskLevel", message.contains("scam") ? "HIGH" : "LOW");
+                entry.put("rationale", message);
+            }
+            byte[] body = objectMapper.writeValueAsString(response).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        });
+        server.start();
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/classify");
+    }
+}
@@ -0,0 +1,115 @@
+package com.vrctool.bot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class LlmCircuitBreakerTest {
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void opensAfterConsecutiveFailuresAndProbesWhenHalfOpen() {
+        LlmCircuitBreaker breaker = breaker();
+        for (int attempt = 0; attempt < 3; attempt++) {
+            breaker.recordFailure(breaker.tryAcquire());
+        }
+        assertEquals(LlmCircuitBreaker.State.OPEN, breaker.stats().state());
+        assertNull(breaker.tryAcquire());
+
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        LlmCircuitBreaker.Permit probe = breaker.tryAcquire();
+        assertNotNull(probe);
+        assertNull(breaker.tryAcquire());
+        breaker.recordFailure(probe);
+        assertEquals(LlmCircuitBreaker.State.OPEN, breaker.stats().state());
+
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        breaker.recordSuccess(breaker.tryAcquire(), Duration.ofMillis(50).toNanos());
+
+        LlmCircuitBreaker.BreakerStats stats = breaker.stats();
+        assertEquals(LlmCircuitBreaker.State.CLOSED, stats.state());
+        assertEquals(2, stats.opened());
+        assertEquals(2, stats.halfOpened());
+        assertEquals(1, stats.closed());
+        assertEquals(2, stats.rejected());
+    }
+
+    @Test
+    void ignoresLateRepliesToRequestsAdmittedBeforeATransition() {
+        LlmCircuitBreaker breaker = breaker();
+        LlmCircuitBreaker.Permit slowRequest = breaker.tryAcquire();
+        for (int attempt = 0; attempt < 3; attempt++) {
+            breaker.recordFailure(breaker.tryAcquire());
+        }
+        // Admitted while closed; its success must not close the open breaker.
+        breaker.recordSuccess(slowRequest, Duration.ofMillis(50).toNanos());
+        assertEquals(LlmCircuitBreaker.State.OPEN, breaker.stats().state());
+
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        LlmCircuitBreaker.Permit probe = breaker.tryAcquire();
+        breaker.recordFailure(slowRequest);
+        // The stale failure neither reopens the breaker nor frees a second probe.
+        assertEquals(LlmCircuitBreaker.State.HALF_OPEN, breaker.stats().state());
+        assertNull(breaker.tryAcquire());
+
+        breaker.recordSuccess(probe, Duration.ofMillis(50).toNanos());
+        assertEquals(LlmCircuitBreaker.State.CLOSED, breaker.stats().state());
+    }
+
+    @Test
+    void slowResponsesCountAsFailures() {
+        LlmCircuitBreaker breaker = breaker();
+        breaker.recordFailure(breaker.tryAcquire());
+        breaker.recordSuccess(breaker.tryAcquire(), Duration.ofMillis(10).toNanos());
+        assertEquals(0, breaker.stats().consecutiveFailures());
+
+        for (int attempt = 0; attempt < 3; attempt++) {
+            breaker.recordSuccess(breaker.tryAcquire(), Duration.ofSeconds(2).toNanos());
+        }
+        assertEquals(LlmCircuitBreaker.State.OPEN, breaker.stats().state());
+    }
+
+    @Test
+    void timeoutFollowsLatencyPercentileWithinBounds() {
+        LlmCircuitBreaker breaker = breaker();
+        assertEquals(Duration.ofSeconds(5), breaker.currentTimeout());
+
+        for (int sample = 0; sample < 32; sample++) {
+            breaker.recordSuccess(breaker.tryAcquire(), Duration.ofMillis(300).toNanos());
+        }
+        assertEquals(Duration.ofMillis(600), breaker.currentTimeout());
+
+        for (int sample = 0; sample < 128; sample++) {
+            breaker.recordSuccess(breaker.tryAcquire(), Duration.ofMillis(10).toNanos());
+        }
+        assertEquals(Duration.ofMillis(250), breaker.currentTimeout());
+    }
+
+    @Test
+    void timedOutCallsCountTowardTheLatencyPercentile() {
+        LlmCircuitBreaker breaker = breaker();
+        for (int sample = 0; sample < 30; sample++) {
+            breaker.recordSuccess(breaker.tryAcquire(), Duration.ofMillis(100).toNanos());
+        }
+        // Two timeouts at 600ms; without them the p99 of the successes alone would give 200ms.
+        breaker.recordTimeout(breaker.tryAcquire(), Duration.ofMillis(600));
+        breaker.recordTimeout(breaker.tryAcquire(), Duration.ofMillis(600));
+        assertEquals(Duration.ofMillis(1200), breaker.currentTimeout());
+        assertEquals(2, breaker.stats().consecutiveFailures());
+    }
+
+    private LlmCircuitBreaker breaker() {
+        return new LlmCircuitBreaker(
+                3,
+                Duration.ofSeconds(10),
+                Duration.ofSeconds(1),
+                Duration.ofMillis(250),
+                Duration.ofSeconds(5),
+                now::get
+        );
+    }
+}
@@ -0,0 +1,84 @@
+package com.vrctool.bot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class LlmClassificationCacheTest {
+    private static final LlmClient.LlmRuleContext NO_RULES = new LlmClient.LlmRuleContext(null, null);
+    private static final LlmClient.LlmClassification HIGH =
+            new LlmClient.LlmClassification(LlmClient.RiskLevel.HIGH, "spam");
+
+    @Test
+    void coalescesConcurrentIdenticalRequests() {
+        LlmClassificationCache cache = new LlmClassificationCache(10, Duration.ofMinutes(1));
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<LlmClient.LlmClassification> pending = new CompletableFuture<>();
+
+        CompletableFuture<LlmClient.LlmClassification> first = cache.get("FREE  nitro", NO_RULES, () -> {
+            calls.incrementAndGet();
+            return pending;
+        });
+        CompletableFuture<LlmClient.LlmClassification> second = cache.get(" free nitro ", NO_RULES, () -> {
+            calls.incrementAndGet();
+            return pending;
+        });
+        pending.complete(HIGH);
+
+        assertEquals(1, calls.get());
+        assertSame(HIGH, first.join());
+        assertSame(HIGH, second.join());
+        assertEquals(new LlmClassificationCache.CacheStats(1, 1, 0, 1), cache.stats());
+    }
+
+    @Test
+    void separatesRuleContextsAndDropsFailures() {
+        LlmClassificationCache cache = new LlmClassificationCache(10, Duration.ofMinutes(1));
+        AtomicInteger calls = new AtomicInteger();
+
+        cache.get("hello", NO_RULES, () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.failedFuture(new IllegalStateException("down"));
+        });
+        cache.get("hello", NO_RULES, () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture(HIGH);
+        });
+        cache.get("hello", new LlmClient.LlmRuleContext("scam", null), () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture(HIGH);
+        });
+
+        assertEquals(3, calls.get());
+        assertEquals(2, cache.stats().size());
+    }
+
+    @Test
+    void expiresEntriesAndEvictsLeastRecentlyUsed() {
+        AtomicLong now = new AtomicLong();
+        LlmClassificationCache cache = new LlmClassificationCache(2, Duration.ofSeconds(30), now::get);
+        AtomicInteger calls = new AtomicInteger();
+        for (String content : new String[] {"a", "b", "a", "c", "a", "b"}) {
+            cache.get(content, NO_RULES, () -> {
+                calls.incrementAndGet();
+                return CompletableFuture.completedFuture(HIGH);
+            });
+        }
+        assertEquals(4, calls.get());
+
+        now.addAndGet(Duration.ofSeconds(31).toNanos());
+        cache.get("a", NO_RULES, () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture(HIGH);
+        });
+        assertEquals(5, calls.get());
+        LlmClassificationCache.CacheStats stats = cache.stats();
+        assertEquals(2, stats.hits());
+        assertEquals(3, stats.evictions());
+    }
+}
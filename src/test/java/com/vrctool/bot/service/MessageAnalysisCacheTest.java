@@ -0,0 +1,55 @@
+package com.vrctool.bot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.vrctool.bot.util.TextNormalizer;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class MessageAnalysisCacheTest {
+    private static final TextNormalizer NORMALIZER = new TextNormalizer(Map.of(), TextNormalizer.MorphologyMode.NONE);
+
+    @Test
+    void scannerReusesTheAnalysisTheLivePipelineComputed() {
+        MessageAnalysisCache cache = new MessageAnalysisCache(NORMALIZER, 10);
+        MessageAnalysis live = cache.analyze("1001", "FREE NITRO at https://example.com/claim NOW!!");
+        MessageAnalysis scanned = cache.analyze("1001", "FREE NITRO at https://example.com/claim NOW!!");
+
+        assertSame(live, scanned);
+        assertEquals("free nitro at https example com claim now", scanned.text().normalized().toString());
+        assertEquals(1, scanned.linkCount());
+        assertEquals(12.0 / 34, scanned.uppercaseRatio(), 0.001);
+        assertEquals(new MessageAnalysisCache.CacheStats(1, 1, 0, 1), cache.stats());
+    }
+
+    @Test
+    void editedContentIsReanalyzedAndOldestEntriesAreEvicted() {
+        MessageAnalysisCache cache = new MessageAnalysisCache(NORMALIZER, 2);
+        MessageAnalysis original = cache.analyze("1", "hello");
+        MessageAnalysis edited = cache.analyze("1", "hello again");
+        assertNotSame(original, edited);
+        assertEquals("hello again", edited.text().normalized().toString());
+
+        cache.analyze("2", "second");
+        cache.analyze("1", "hello again");
+        cache.analyze("3", "third");
+        assertEquals(new MessageAnalysisCache.CacheStats(1, 4, 1, 2), cache.stats());
+        // "2" was least recently used, so it was the one evicted.
+        cache.analyze("1", "hello again");
+        assertEquals(2, cache.stats().hits());
+    }
+
+    @Test
+    void allowedGifLinksOnlyChangeTheSanitizedView() {
+        MessageAnalysisCache cache = new MessageAnalysisCache(NORMALIZER, 0);
+        MessageAnalysis plain = cache.analyze("1", "nothing to strip");
+        assertSame(plain.text(), plain.sanitizedText());
+
+        MessageAnalysis gif = cache.analyze("2", "lol https://tenor.com/view/cat-gif-123");
+        assertEquals("lol", gif.sanitizedText().normalized().toString());
+        assertEquals(0, gif.linkCount());
+        assertEquals(new MessageAnalysisCache.CacheStats(0, 2, 0, 0), cache.stats());
+    }
+}
@@ -0,0 +1,201 @@
+package com.vrctool.bot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.vrctool.bot.config.BotConfig;
+import com.vrctool.bot.util.TextNormalizer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ModerationDecisionEngineTest {
+    private static final TextNormalizer NORMALIZER = new TextNormalizer(Map.of(), TextNormalizer.MorphologyMode.NONE);
+    private static final String GUILD = "guild";
+    private static final String CHANNEL = "channel";
+    private static final String USER = "user";
+    private static final Map<String, String> LLM_ENABLED = Map.of(
+            "LLM_CLASSIFICATION_ENABLED", "true",
+            "MOD_BLOCKED_PATTERNS", "discord\\.gg"
+    );
+
+    @TempDir
+    Path directory;
+
+    private WordMemoryStore store;
+
+    @AfterEach
+    void closeStore() {
+        if (store != null) {
+            store.close(Duration.ofSeconds(5));
+        }
+    }
+
+    @Test
+    void historyScoreAddsBurstAndFloodTermsAtTheirThresholds() {
+        RuleSet rules = RuleSet.compile(1, ModerationRulesTest.definition(List.of("scam"), List.of()));
+
+        assertEquals(0, ModerationDecisionEngine.scoreHistory(rules, 0, 0, 0, 0));
+        // Two lifetime matches, both inside the burst window: 2 * 5, no burst bonus yet.
+        assertEquals(10, ModerationDecisionEngine.scoreHistory(rules, 100, 2, 2, 100));
+        assertEquals(15 + 10, ModerationDecisionEngine.scoreHistory(rules, 100, 3, 3, 100));
+        assertEquals(8, ModerationDecisionEngine.scoreHistory(rules, 400, 0, 0, 400));
+        assertEquals(6 + 8, ModerationDecisionEngine.scoreHistory(rules, 800, 0, 0, 400));
+        assertEquals(12 + 25 + 10 + 8, ModerationDecisionEngine.scoreHistory(rules, 2000, 9, 5, 1000));
+    }
+
+    @Test
+    void historyScoreReadsThresholdsFromTheRuleSet() {
+        RuleSet strict = RuleSet.compile(1, new RuleSet.Definition(
+                List.of("scam"),
+                List.of(),
+                35,
+                60,
+                80,
+                Map.of(),
+                1,
+                Duration.ofMinutes(5),
+                50,
+                Duration.ofMinutes(15)
+        ));
+
+        assertEquals(5 + 10, ModerationDecisionEngine.scoreHistory(strict, 0, 1, 1, 0));
+        assertEquals(8, ModerationDecisionEngine.scoreHistory(strict, 50, 0, 0, 50));
+        assertEquals(0, ModerationDecisionEngine.scoreHistory(strict, 49, 0, 0, 49));
+    }
+
+    @Test
+    void burstAndFloodTermsAreOffUnlessConfigured() {
+        store = new WordMemoryStore(directory.resolve("word_memory.jsonl"));
+        Instant now = Instant.now();
+        for (int index = 0; index < 3; index++) {
+            store.recordMessage(GUILD, CHANNEL, USER, "scam", now.minusSeconds(60));
+        }
+        // 300 words are 300 unigrams plus 299 bigrams: an ordinary busy hour, not a flood.
+        store.recordMessage(GUILD, CHANNEL, USER, "chatting ".repeat(300), now.minusSeconds(30));
+
+        ModerationDecisionEngine.RuleAssessment defaults =
+                engine(Map.of()).assess(GUILD, CHANNEL, USER, analysis("scam again"));
+        assertEquals(0, defaults.burstKeywordMatches());
+        assertEquals(0, defaults.floodWindowTokens());
+        // Lifetime keyword matches only: 3 * 5.
+        assertEquals(15, defaults.historyRiskScore());
+
+        ModerationDecisionEngine.RuleAssessment enabled = engine(Map.of(
+                "MOD_KEYWORD_BURST_THRESHOLD", "3",
+                "MOD_TOKEN_FLOOD_THRESHOLD", "400"
+        )).assess(GUILD, CHANNEL, USER, analysis("scam again"));
+        assertEquals(3, enabled.burstKeywordMatches());
+        assertEquals(3 + 300 + 299, enabled.floodWindowTokens());
+        assertEquals(15 + 10 + 8, enabled.historyRiskScore());
+    }
+
+    @Test
+    void skipsTheLlmForShortCleanMessages() {
+        AtomicInteger llmCalls = new AtomicInteger();
+        ModerationDecisionEngine engine = engine(LLM_ENABLED, countingLlm(llmCalls, LlmClient.RiskLevel.HIGH));
+
+        ModerationDecisionEngine.Decision decision = engine.evaluateAsync(GUILD, CHANNEL, USER, analysis("hi all"))
+                .join();
+
+        assertEquals(ModerationDecisionEngine.Action.ALLOW, decision.action());
+        assertEquals(0, llmCalls.get());
+        assertEquals(new ModerationDecisionEngine.LlmUsageStats(0, 1), engine.llmUsage());
+    }
+
+    @Test
+    void skipsTheLlmWhenNoRiskLevelChangesTheAction() {
+        AtomicInteger llmCalls = new AtomicInteger();
+        ModerationDecisionEngine engine = engine(LLM_ENABLED, countingLlm(llmCalls, LlmClient.RiskLevel.LOW));
+
+        // Blocked pattern plus keyword scores 100, past the escalate threshold whatever the LLM says.
+        ModerationDecisionEngine.Decision decision = engine.evaluateAsync(
+                GUILD,
+                CHANNEL,
+                USER,
+                analysis("this is a scam, join discord.gg/abcdef for the prize")
+        ).join();
+
+        assertEquals(ModerationDecisionEngine.Action.ESCALATE_TO_MODS, decision.action());
+        assertEquals(0, llmCalls.get());
+        assertEquals(new ModerationDecisionEngine.LlmUsageStats(0, 1), engine.llmUsage());
+    }
+
+    @Test
+    void consultsTheLlmWhenItsRiskLevelDecidesTheAction() {
+        AtomicInteger llmCalls = new AtomicInteger();
+        ModerationDecisionEngine engine = engine(LLM_ENABLED, countingLlm(llmCalls, LlmClient.RiskLevel.MEDIUM));
+
+        // A keyword alone stays under the warn threshold. A MEDIUM verdict lifts it to the delete floor,
+        // which the quick review softens to WARN for a first-time, low-signal message.
+        ModerationDecisionEngine.Decision decision = engine.evaluateAsync(
+                GUILD,
+                CHANNEL,
+                USER,
+                analysis("is this giveaway a scam or not")
+        ).join();
+
+        assertEquals(ModerationDecisionEngine.Action.WARN, decision.action());
+        assertEquals(LlmClient.RiskLevel.MEDIUM, decision.context().llmRiskLevel());
+        assertEquals(1, llmCalls.get());
+        assertEquals(new ModerationDecisionEngine.LlmUsageStats(1, 0), engine.llmUsage());
+    }
+
+    @Test
+    void escalatesMessagesWhoseBlockedPatternRanOutOfBudget() {
+        ModerationDecisionEngine engine = engine(Map.of("MOD_BLOCKED_PATTERNS", "(\\w+\\s?)+\\1?!"));
+
+        ModerationDecisionEngine.Decision decision = engine.evaluateAsync(
+                GUILD,
+                CHANNEL,
+                USER,
+                analysis("a".repeat(40) + "?")
+        ).join();
+
+        assertEquals(ModerationDecisionEngine.Action.ESCALATE_TO_MODS, decision.action());
+        assertEquals("(\\w+\\s?)+\\1?!", decision.context().overBudgetPattern());
+        assertTrue(decision.context().selfReviewNote().contains("match budget"));
+    }
+
+    private static LlmClient countingLlm(AtomicInteger calls, LlmClient.RiskLevel riskLevel) {
+        return (content, ruleContext) -> {
+            calls.incrementAndGet();
+            return new LlmClient.LlmClassification(riskLevel, "stub");
+        };
+    }
+
+    private ModerationDecisionEngine engine(Map<String, String> settings) {
+        return engine(settings, (content, ruleContext) -> LlmClient.classifyByRules(ruleContext));
+    }
+
+    private ModerationDecisionEngine engine(Map<String, String> settings, LlmClient llmClient) {
+        Map<String, String> env = new HashMap<>(Map.of(
+                "DISCORD_TOKEN", "test-token",
+                "MOD_SCAN_KEYWORDS", "scam",
+                "MOD_PARALLEL_MATCH_LENGTH", "0"
+        ));
+        env.putAll(settings);
+        BotConfig config = BotConfig.fromEnvironment(env::get);
+        if (store == null) {
+            store = new WordMemoryStore(directory.resolve("word_memory.jsonl"));
+        }
+        return new ModerationDecisionEngine(
+                config,
+                store,
+                new ModerationRules(RuleSet.compile(1, RuleSet.Definition.fromConfig(config))),
+                new MessageAnalysisCache(NORMALIZER, 0),
+                llmClient
+        );
+    }
+
+    private static MessageAnalysis analysis(String content) {
+        return MessageAnalysis.of(content, NORMALIZER);
+    }
+}
@@ -0,0 +1,118 @@
+package com.vrctool.bot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.vrctool.bot.config.BotConfig;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+
+class ModerationPipelineTest {
+    private static final ModerationDecisionEngine.Decision ALLOW =
+            new ModerationDecisionEngine.Decision(ModerationDecisionEngine.Action.ALLOW, null);
+
+    private final List<String> dispatched = new CopyOnWriteArrayList<>();
+
+    @Test
+    void dispatchesInSubmissionOrderPerChannelWithoutBlockingOtherChannels() throws Exception {
+        ModerationPipeline pipeline = pipeline(Map.of());
+        CompletableFuture<ModerationDecisionEngine.Decision> slowLlm = new CompletableFuture<>();
+        CountDownLatch otherChannelDone = new CountDownLatch(1);
+
+        assertTrue(pipeline.submit("a", () -> slowLlm, record("a1")));
+        assertTrue(pipeline.submit("a", decided(), record("a2")));
+        assertTrue(pipeline.submit("b", decided(), record("b1").andThen(decision -> otherChannelDone.countDown())));
+
+        // a2 is decided but must wait for a1; channel b does not.
+        assertTrue(otherChannelDone.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(List.of("b1"), dispatched);
+
+        slowLlm.complete(ALLOW);
+        awaitIdle(pipeline);
+        assertEquals(List.of("b1", "a1", "a2"), dispatched);
+        assertEquals(new ModerationPipeline.PipelineStats(3, 0, 3, 0, 0, 500), pipeline.stats());
+    }
+
+    @Test
+    void dropWhenFullRejectsImmediately() {
+        ModerationPipeline pipeline = pipeline(Map.of(
+                "MOD_PIPELINE_QUEUE_CAPACITY", "1",
+                "MOD_PIPELINE_DROP_WHEN_FULL", "true",
+                "MOD_PIPELINE_ADMIT_TIMEOUT_MS", "60000"
+        ));
+        CompletableFuture<ModerationDecisionEngine.Decision> stuck = new CompletableFuture<>();
+        assertTrue(pipeline.submit("a", () -> stuck, record("a1")));
+
+        long started = System.nanoTime();
+        assertFalse(pipeline.submit("b", decided(), record("b1")));
+        assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(1, pipeline.stats().dropped());
+        stuck.complete(ALLOW);
+    }
+
+    @Test
+    void blockingAdmissionGivesUpAfterItsTimeout() {
+        ModerationPipeline pipeline = pipeline(Map.of(
+                "MOD_PIPELINE_QUEUE_CAPACITY", "1",
+                "MOD_PIPELINE_ADMIT_TIMEOUT_MS", "200"
+        ));
+        CompletableFuture<ModerationDecisionEngine.Decision> stuck = new CompletableFuture<>();
+        assertTrue(pipeline.submit("a", () -> stuck, record("a1")));
+
+        long started = System.nanoTime();
+        assertFalse(pipeline.submit("b", decided(), record("b1")));
+        long waited = System.nanoTime() - started;
+        assertTrue(waited >= TimeUnit.MILLISECONDS.toNanos(200));
+        assertTrue(waited < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(1, pipeline.stats().dropped());
+        stuck.complete(ALLOW);
+    }
+
+    @Test
+    void blockingAdmissionTakesASlotFreedWhileWaiting() throws Exception {
+        ModerationPipeline pipeline = pipeline(Map.of(
+                "MOD_PIPELINE_QUEUE_CAPACITY", "1",
+                "MOD_PIPELINE_ADMIT_TIMEOUT_MS", "60000"
+        ));
+        CompletableFuture<ModerationDecisionEngine.Decision> held = new CompletableFuture<>();
+        assertTrue(pipeline.submit("a", () -> held, record("a1")));
+        CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS).execute(() -> held.complete(ALLOW));
+
+        assertTrue(pipeline.submit("b", decided(), record("b1")));
+        awaitIdle(pipeline);
+        assertEquals(List.of("a1", "b1"), dispatched);
+        assertEquals(0, pipeline.stats().dropped());
+    }
+
+    private ModerationPipeline pipeline(Map<String, String> settings) {
+        Map<String, String> env = new HashMap<>(Map.of("DISCORD_TOKEN", "test-token", "MOD_PIPELINE_WORKERS", "2"));
+        env.putAll(settings);
+        // The id-based submit never touches the engine, word memory or JDA dispatcher.
+        return new ModerationPipeline(BotConfig.fromEnvironment(env::get), null, null, null);
+    }
+
+    private static Supplier<CompletableFuture<ModerationDecisionEngine.Decision>> decided() {
+        return () -> CompletableFuture.completedFuture(ALLOW);
+    }
+
+    private Consumer<ModerationDecisionEngine.Decision> record(String name) {
+        return decision -> dispatched.add(name);
+    }
+
+    private static void awaitIdle(ModerationPipeline pipeline) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pipeline.stats().inFlight() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
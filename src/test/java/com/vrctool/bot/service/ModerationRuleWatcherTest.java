@@ -0,0 +1,77 @@
+package com.vrctool.bot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ModerationRuleWatcherTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void reloadSwapsValidFilesAndKeepsTheWorkingSetOnBadOnes() throws Exception {
+        RuleSet.Definition baseline = ModerationRulesTest.definition(List.of("scam"), List.of());
+        ModerationRules rules = new ModerationRules(RuleSet.compile(1, baseline));
+        Path file = tempDir.resolve("moderation-rules.properties");
+        ModerationRuleWatcher watcher = new ModerationRuleWatcher(file, rules, baseline);
+
+        Files.writeString(file, """
+                # Keys left out keep their startup values.
+                MOD_SCAN_KEYWORDS=phishing, free nitro
+                MOD_BLOCKED_PATTERNS=discord\\\\.gg
+                MOD_WARN_THRESHOLD=20
+                MOD_CHANNEL_RISK_SCORES=123:10
+                MOD_KEYWORD_BURST_THRESHOLD=2
+                MOD_TOKEN_FLOOD_MINUTES=30
+                """);
+        assertTrue(watcher.reload());
+        RuleSet reloaded = rules.current();
+        assertEquals(2, reloaded.version());
+        assertEquals("free nitro", reloaded.keywords().firstMatch("get free nitro here"));
+        assertEquals("discord\\.gg", reloaded.blockedPatterns().firstMatch("join discord.gg/abc").pattern());
+        assertEquals(20, reloaded.warnThreshold());
+        assertEquals(60, reloaded.deleteThreshold());
+        assertEquals(10, reloaded.channelRiskScore("123"));
+        assertEquals(0, reloaded.channelRiskScore("risky"));
+        assertEquals(2, reloaded.keywordBurstThreshold());
+        assertEquals(Duration.ofMinutes(10), reloaded.keywordBurstWindow());
+        assertEquals(Duration.ofMinutes(30), reloaded.tokenFloodWindow());
+        // Unchanged content is not recompiled.
+        assertFalse(watcher.reload());
+
+        Files.writeString(file, "MOD_BLOCKED_PATTERNS=discord(\\\\.gg\n");
+        assertFalse(watcher.reload());
+        Files.writeString(file, "MOD_WARN_THRESHOLD=90\n");
+        assertFalse(watcher.reload());
+        Files.writeString(file, "MOD_CHANNEL_RISK_SCORES=123:high\n");
+        assertFalse(watcher.reload());
+        Files.writeString(file, "MOD_TOKEN_FLOOD_THRESHOLD=-1\n");
+        assertFalse(watcher.reload());
+        assertSame(reloaded, rules.current());
+    }
+
+    @Test
+    void watcherAppliesChangesWrittenAfterStart() throws Exception {
+        RuleSet.Definition baseline = ModerationRulesTest.definition(List.of("scam"), List.of());
+        ModerationRules rules = new ModerationRules(RuleSet.compile(1, baseline));
+        Path file = tempDir.resolve("moderation-rules.properties");
+        try (ModerationRuleWatcher watcher = new ModerationRuleWatcher(file, rules, baseline)) {
+            watcher.start();
+            Files.writeString(file, "MOD_SCAN_KEYWORDS=phishing\n");
+            long deadline = System.currentTimeMillis() + 15_000;
+            while (rules.current().version() == 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+        }
+        assertEquals(2, rules.current().version());
+        assertEquals("phishing", rules.current().keywords().firstMatch("a phishing link"));
+    }
+}
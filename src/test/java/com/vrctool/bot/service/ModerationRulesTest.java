@@ -0,0 +1,95 @@
+package com.vrctool.bot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.vrctool.bot.util.ModerationPatterns;
+import com.vrctool.bot.util.TextNormalizer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+class ModerationRulesTest {
+
+    @Test
+    void replacingPublishesANewVersionWithoutTouchingTheOldOne() {
+        ModerationRules rules = new ModerationRules(RuleSet.compile(1, definition(
+                List.of("scam"),
+                List.of(ModerationPatterns.compileBlockedPattern("discord.gg"))
+        )));
+        RuleSet original = rules.current();
+        assertSame(original, rules.current());
+
+        RuleSet next = rules.replace(definition(List.of("phishing"), List.of()));
+
+        assertEquals(2, next.version());
+        assertSame(next, rules.current());
+        // A message already holding the old set keeps evaluating against it.
+        assertEquals("scam", original.keywords().firstMatch("total scam"));
+        assertEquals(1, original.blockedPatterns().patterns().size());
+        assertNull(next.keywords().firstMatch("total scam"));
+        assertEquals("phishing", next.keywords().firstMatch("a phishing link"));
+    }
+
+    @Test
+    void contextualPatternsMatchAcrossEveryCandidate() {
+        RuleSet rules = RuleSet.compile(1, definition(List.of(), List.of()));
+
+        assertTrue(rules.isAgeGapConcern("she is 15", "he is an adult", "they are dating"));
+        assertFalse(rules.isAgeGapConcern("she is 15", "they are dating"));
+        assertTrue(rules.isReportContext(null, "", "here are the screenshots"));
+        assertTrue(rules.isAccusationContext("you're a creep"));
+        assertTrue(rules.isPlayfulContext("lol jk"));
+    }
+
+    @Test
+    void parallelMatchAgreesWithSequentialMatch() {
+        RuleSet rules = RuleSet.compile(1, definition(
+                List.of("scam", "free nitro", "creep"),
+                List.of(ModerationPatterns.compileBlockedPattern("discord.gg"), Pattern.compile("(.)\\1{6,}"))
+        ));
+        TextNormalizer normalizer = new TextNormalizer(Map.of(), TextNormalizer.MorphologyMode.NONE);
+        String[] fragments = {
+                "the worlds are fun tonight ", "she is 15 ", "he is an adult ", "they are dating ", "screenshots ",
+                "lol ", "you're a ", "creep ", "free nitro ", "discord.gg/abc ", "aaaaaaaa ", "scam ", "hello there "
+        };
+        Random random = new Random(3);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int iteration = 0; iteration < 300; iteration++) {
+                StringBuilder text = new StringBuilder();
+                while (text.length() < 1500 + random.nextInt(2500)) {
+                    // Mostly filler, so matches land at varying depths or not at all.
+                    text.append(random.nextInt(40) == 0 ? fragments[random.nextInt(fragments.length)] : fragments[0]);
+                }
+                MessageAnalysis analysis = MessageAnalysis.of(text.toString(), normalizer);
+                String history = fragments[random.nextInt(fragments.length)];
+                assertEquals(rules.match(analysis, history), rules.match(analysis, history, pool), text.toString());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    static RuleSet.Definition definition(List<String> keywords, List<Pattern> blockedPatterns) {
+        return new RuleSet.Definition(
+                keywords,
+                blockedPatterns,
+                35,
+                60,
+                80,
+                Map.of("risky", 15),
+                3,
+                Duration.ofMinutes(10),
+                400,
+                Duration.ofHours(1)
+        );
+    }
+}
@@ -0,0 +1,136 @@
+package com.vrctool.bot.service;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Throughput and heap measurements for the word memory store. These take too long for every build and
+ * are excluded from {@code test}; run them with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+class WordMemoryStoreBenchmarkTest {
+    private static final int PER_THREAD = 20_000;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    // A synthetic month: each user posts in one home channel, so there is one key per user.
+    private static final int MONTH_MESSAGES = 600_000;
+    private static final int MONTH_USERS = 2000;
+    private static final int MONTH_CHANNELS = 20;
+    private static final int VOCABULARY = 5000;
+
+    @TempDir
+    Path directory;
+
+    private int runs;
+
+    @Test
+    void throughputScalesWithCores() throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int threads = 1; threads < cores; threads *= 2) {
+            threadCounts.add(threads);
+        }
+        threadCounts.add(cores);
+
+        // Let the JIT settle on the store's hot paths before timing anything.
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            for (int threads : threadCounts) {
+                run(threads);
+            }
+        }
+
+        System.out.printf("[WORD_MEMORY] Throughput, %d cores, median of %d rounds:%n", cores, MEASURED_ROUNDS);
+        double singleThreaded = 0;
+        double best = 0;
+        for (int threads : threadCounts) {
+            long[] nanos = new long[MEASURED_ROUNDS];
+            for (int round = 0; round < MEASURED_ROUNDS; round++) {
+                nanos[round] = run(threads);
+            }
+            Arrays.sort(nanos);
+            // Each iteration is two writes and two reads.
+            double opsPerSecond = 4.0 * threads * PER_THREAD / (nanos[MEASURED_ROUNDS / 2] / 1e9);
+            if (threads == 1) {
+                singleThreaded = opsPerSecond;
+            }
+            best = Math.max(best, opsPerSecond);
+            System.out.printf("  %3d threads  %,12.0f ops/s  %5.2fx%n", threads, opsPerSecond,
+                    opsPerSecond / singleThreaded);
+        }
+        if (cores >= 4) {
+            assertTrue(best > singleThreaded * 1.5, "expected concurrent throughput to scale past one thread");
+        }
+    }
+
+    @Test
+    void recentMessageRingBoundsRetainedHeap() throws Exception {
+        // A ring that never fills keeps every message, like the unbounded deque it replaced.
+        int keepEverything = MONTH_MESSAGES / MONTH_USERS * 2;
+        long unbounded = retainedHeap(new WordMemoryStore.MessageHistory(keepEverything, false));
+        long capped = retainedHeap(new WordMemoryStore.MessageHistory(20, false));
+        long cappedCompressed = retainedHeap(new WordMemoryStore.MessageHistory(20, true));
+        long widerCompressed = retainedHeap(new WordMemoryStore.MessageHistory(50, true));
+
+        System.out.printf("[WORD_MEMORY] Retained heap for a synthetic month (%,d messages, %,d users):%n",
+                MONTH_MESSAGES, MONTH_USERS);
+        System.out.printf("  every message kept            %,6d MB%n", unbounded >> 20);
+        System.out.printf("  cap 20                        %,6d MB%n", capped >> 20);
+        System.out.printf("  cap 20, compression on        %,6d MB%n", cappedCompressed >> 20);
+        System.out.printf("  cap 50, compression on        %,6d MB%n", widerCompressed >> 20);
+        assertTrue(capped < unbounded, "expected the capped ring to retain less than keeping every message");
+    }
+
+    private long retainedHeap(WordMemoryStore.MessageHistory history) throws Exception {
+        long before = usedHeap();
+        // Synchronous writes, so no queued events are counted as retained heap.
+        WordMemoryStore store = new WordMemoryStore(
+                directory.resolve("month-" + runs++ + ".jsonl"),
+                Duration.ofDays(30),
+                Duration.ofHours(1),
+                null,
+                history
+        );
+        Random random = new Random(42);
+        // Stay a minute inside retention so nothing expires while the month is loaded.
+        Instant start = Instant.now().minus(Duration.ofDays(30)).plus(Duration.ofMinutes(1));
+        long stepMillis = Duration.ofDays(30).minus(Duration.ofMinutes(2)).toMillis() / MONTH_MESSAGES;
+        StringBuilder content = new StringBuilder();
+        for (int index = 0; index < MONTH_MESSAGES; index++) {
+            int user = random.nextInt(MONTH_USERS);
+            content.setLength(0);
+            int words = 4 + random.nextInt(12);
+            for (int word = 0; word < words; word++) {
+                content.append(word == 0 ? "" : " ").append("word").append(random.nextInt(VOCABULARY));
+            }
+            store.recordMessage("guild", "channel-" + user % MONTH_CHANNELS, "user-" + user, content.toString(),
+                    start.plusMillis(index * stepMillis));
+        }
+        long retained = usedHeap() - before;
+        assertTrue(store.close(Duration.ofSeconds(60)));
+        return retained;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int pass = 0; pass < 3; pass++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private long run(int threads) throws Exception {
+        return WordMemoryStoreTest.stress(directory.resolve("run-" + runs++ + ".jsonl"), threads, PER_THREAD);
+    }
+}
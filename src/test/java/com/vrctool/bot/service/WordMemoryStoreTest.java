@@ -0,0 +1,344 @@
+package com.vrctool.bot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.vrctool.bot.util.TextNormalizer;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class WordMemoryStoreTest {
+    private static final String GUILD = "1350853421497974835";
+    private static final String CHANNEL = "1350853422064336969";
+    private static final String USER = "1419009851261980843";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reloadsEventsFromBinarySegments() {
+        Path path = directory.resolve("word_memory.jsonl");
+        WordMemoryStore store = new WordMemoryStore(path);
+        Instant now = Instant.now();
+        store.recordMessage(GUILD, CHANNEL, USER, "free nitro here", now.minusSeconds(5));
+        store.recordMessage(GUILD, CHANNEL, USER, "free robux", now);
+        store.recordMessage(GUILD, CHANNEL, "staff", "hello there", now);
+
+        WordMemoryStore reloaded = new WordMemoryStore(path);
+        reloaded.load();
+
+        assertEquals(store.getTokenCounts(GUILD, CHANNEL, USER), reloaded.getTokenCounts(GUILD, CHANNEL, USER));
+        assertEquals(2, reloaded.getTokenCount(GUILD, CHANNEL, USER, "free"));
+        assertEquals(List.of("free robux", "free nitro here"), reloaded.getRecentMessages(GUILD, CHANNEL, USER, 6));
+        assertEquals(List.of("hello there"), reloaded.getRecentMessages(GUILD, CHANNEL, "staff", 6));
+        assertFalse(Files.exists(path));
+    }
+
+    @Test
+    void dropsTruncatedTailAndKeepsEarlierRecords() throws IOException {
+        Path path = directory.resolve("word_memory.jsonl");
+        WordMemoryStore store = new WordMemoryStore(path);
+        store.recordMessage(GUILD, CHANNEL, USER, "first message", Instant.now());
+        store.recordMessage(GUILD, CHANNEL, USER, "second message", Instant.now());
+        Path segment = segmentFiles().get(0);
+        byte[] bytes = Files.readAllBytes(segment);
+        Files.write(segment, Arrays.copyOf(bytes, bytes.length - 3));
+
+        WordMemoryStore reloaded = new WordMemoryStore(path);
+        reloaded.load();
+        assertEquals(List.of("first message"), reloaded.getRecentMessages(GUILD, CHANNEL, USER, 6));
+
+        reloaded.recordMessage(GUILD, CHANNEL, USER, "third message", Instant.now());
+        WordMemoryStore again = new WordMemoryStore(path);
+        again.load();
+        assertEquals(List.of("third message", "first message"), again.getRecentMessages(GUILD, CHANNEL, USER, 6));
+        assertEquals(2, segmentFiles().size());
+    }
+
+    @Test
+    void expiryDeletesWholeSegments() throws IOException {
+        Path path = directory.resolve("word_memory.jsonl");
+        WordMemoryStore store = new WordMemoryStore(path, Duration.ofHours(2), Duration.ofHours(1));
+        Instant now = Instant.now();
+        store.recordMessage(GUILD, CHANNEL, USER, "old news", now.minus(Duration.ofHours(4)));
+        List<Path> expiredSegments = segmentFiles();
+        assertEquals(1, expiredSegments.size());
+
+        store.recordMessage(GUILD, CHANNEL, USER, "recent", now.minus(Duration.ofMinutes(30)));
+        store.recordMessage(GUILD, CHANNEL, USER, "latest", now);
+        assertEquals(1, store.getTokenCount(GUILD, CHANNEL, USER, "old"));
+        store.prune(Instant.now());
+        assertEquals(0, store.getTokenCount(GUILD, CHANNEL, USER, "old"));
+        assertFalse(Files.exists(expiredSegments.get(0)));
+
+        WordMemoryStore reloaded = new WordMemoryStore(path, Duration.ofHours(2), Duration.ofHours(1));
+        reloaded.load();
+        assertEquals(List.of("latest", "recent"), reloaded.getRecentMessages(GUILD, CHANNEL, USER, 6));
+    }
+
+    @Test
+    void lifetimeCountsOutliveRetentionByAtMostOneBucket() {
+        WordMemoryStore store = new WordMemoryStore(directory.resolve("word_memory.jsonl"));
+        Instant now = Instant.now();
+        Duration retention = Duration.ofDays(30);
+        store.recordMessage(GUILD, CHANNEL, USER, "stale", now.minus(retention).minus(Duration.ofMinutes(61)));
+        store.recordMessage(GUILD, CHANNEL, USER, "edge", now.minus(retention).plus(Duration.ofMinutes(1)));
+        store.recordMessage(GUILD, CHANNEL, USER, "latest", now);
+
+        // Buckets are an hour wide at the default retention, so anything over an hour past it is gone.
+        store.prune(now);
+        assertEquals(0, store.getTokenCount(GUILD, CHANNEL, USER, "stale"));
+        assertEquals(1, store.getTokenCount(GUILD, CHANNEL, USER, "edge"));
+
+        store.prune(now.plus(Duration.ofMinutes(62)));
+        assertEquals(0, store.getTokenCount(GUILD, CHANNEL, USER, "edge"));
+        assertEquals(1, store.getTokenCount(GUILD, CHANNEL, USER, "latest"));
+        store.close(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void writeBehindGroupCommitsAndDrainsOnClose() throws IOException {
+        Path path = directory.resolve("word_memory.jsonl");
+        WordMemorySegmentLog segmentLog = new WordMemorySegmentLog(directory.resolve("word_memory"), Duration.ofHours(1));
+        WordMemoryWriter writer = new WordMemoryWriter(segmentLog, 1000, 64, Duration.ofMillis(200), true);
+        long now = Instant.now().toEpochMilli();
+        for (int index = 0; index < 100; index++) {
+            writer.enqueue(new WordMemoryEvent(now, GUILD, CHANNEL, USER, "message " + index, Map.of("message", 1), index + 1));
+        }
+        assertTrue(writer.close(Duration.ofSeconds(5)));
+        WordMemoryWriter.WriterStats stats = writer.stats();
+        assertEquals(100, stats.written());
+        assertTrue(stats.flushes() < 10, "expected grouped flushes but saw " + stats.flushes());
+
+        WordMemoryStore store = new WordMemoryStore(
+                path,
+                new WordMemoryStore.WriteBehind(16, 8, Duration.ofSeconds(10), false)
+        );
+        store.load();
+        assertEquals(100, store.getTokenCount(GUILD, CHANNEL, USER, "message"));
+        store.recordMessage(GUILD, CHANNEL, "staff", "queued until close", Instant.now());
+        assertTrue(store.close(Duration.ofSeconds(5)));
+
+        WordMemoryStore reloaded = new WordMemoryStore(path);
+        reloaded.load();
+        assertEquals(List.of("queued until close"), reloaded.getRecentMessages(GUILD, CHANNEL, "staff", 6));
+        assertEquals(100, reloaded.getTokenCount(GUILD, CHANNEL, USER, "message"));
+    }
+
+    @Test
+    void startupRestoresSnapshotAndReplaysOnlyTheTail() throws IOException {
+        Path path = directory.resolve("word_memory.jsonl");
+        WordMemoryStore store = new WordMemoryStore(path);
+        Instant now = Instant.now();
+        store.recordMessage(GUILD, CHANNEL, USER, "free nitro", now.minus(Duration.ofDays(2)));
+        store.recordMessage(GUILD, CHANNEL, USER, "free robux", now.minus(Duration.ofMinutes(5)));
+        store.snapshot();
+        List<Path> covered = segmentFiles();
+        store.recordMessage(GUILD, CHANNEL, USER, "free stuff", now);
+
+        // Covered segments are never read again, so damaging them must not matter.
+        for (Path segment : covered) {
+            Files.write(segment, new byte[] {1, 2, 3});
+        }
+        WordMemoryStore reloaded = new WordMemoryStore(path);
+        reloaded.load();
+        assertEquals(3, reloaded.getTokenCount(GUILD, CHANNEL, USER, "free"));
+        assertEquals(2, reloaded.getTokenCount(GUILD, CHANNEL, USER, "free", Duration.ofMinutes(10)));
+        assertEquals(9, reloaded.getTotalTokenCount(GUILD, CHANNEL, USER));
+        assertEquals(List.of("free stuff", "free robux", "free nitro"), reloaded.getRecentMessages(GUILD, CHANNEL, USER, 6));
+
+        Files.delete(directory.resolve("word_memory").resolve("snapshot.wmsnap"));
+        WordMemoryStore withoutSnapshot = new WordMemoryStore(path);
+        withoutSnapshot.load();
+        assertEquals(1, withoutSnapshot.getTokenCount(GUILD, CHANNEL, USER, "free"));
+    }
+
+    @Test
+    void snapshotDoesNotDoubleCountEventsStillQueuedForWriting() throws IOException {
+        Path path = directory.resolve("queued.jsonl");
+        WordMemoryStore store = new WordMemoryStore(
+                path,
+                new WordMemoryStore.WriteBehind(1000, 16, Duration.ofSeconds(2), false)
+        );
+        store.recordMessage(GUILD, CHANNEL, USER, "free nitro", Instant.now());
+        store.recordMessage(GUILD, CHANNEL, USER, "free robux", Instant.now());
+        // Both events reach disk after the snapshot rolled the segments.
+        store.snapshot();
+        assertTrue(store.close(Duration.ofSeconds(5)));
+
+        WordMemoryStore reloaded = new WordMemoryStore(path);
+        reloaded.load();
+        assertEquals(2, reloaded.getTokenCount(GUILD, CHANNEL, USER, "free"));
+        reloaded.recordMessage(GUILD, CHANNEL, USER, "free stuff", Instant.now());
+        assertEquals(3, reloaded.getTokenCount(GUILD, CHANNEL, USER, "free"));
+    }
+
+    @Test
+    void windowedCountsSeeBurstsThatLifetimeTotalsHide() {
+        WordMemoryStore store = new WordMemoryStore(directory.resolve("word_memory.jsonl"));
+        Instant now = Instant.now();
+        store.recordMessage(GUILD, CHANNEL, USER, "free nitro", now.minus(Duration.ofHours(3)));
+        store.recordMessage(GUILD, CHANNEL, USER, "free nitro", now.minus(Duration.ofMinutes(40)));
+        store.recordMessage(GUILD, CHANNEL, USER, "free robux", now.minus(Duration.ofMinutes(3)));
+        store.recordMessage(GUILD, CHANNEL, USER, "free stuff", now);
+
+        assertEquals(4, store.getTokenCount(GUILD, CHANNEL, USER, "free"));
+        assertEquals(2, store.getTokenCount(GUILD, CHANNEL, USER, "free", Duration.ofMinutes(10)));
+        assertEquals(3, store.getTokenCount(GUILD, CHANNEL, USER, "FREE", Duration.ofHours(1)));
+        assertEquals(4, store.getTokenCount(GUILD, CHANNEL, USER, "free", Duration.ofHours(6)));
+        assertEquals(1, store.getTokenCount(GUILD, CHANNEL, USER, "nitro", Duration.ofHours(1)));
+
+        // Each two-word message stores two words and one bigram.
+        assertEquals(12, store.getTotalTokenCount(GUILD, CHANNEL, USER));
+        assertEquals(6, store.getTotalTokenCount(GUILD, CHANNEL, USER, Duration.ofMinutes(10)));
+        assertEquals(0, store.getTotalTokenCount(GUILD, CHANNEL, "staff", Duration.ofMinutes(10)));
+    }
+
+    @Test
+    void concurrentWritersAndReadersKeepExactCounts() throws Exception {
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        int perThread = 5000;
+        stress(directory.resolve("stress-1.jsonl"), 1, perThread);
+        stress(directory.resolve("stress-" + threads + ".jsonl"), threads, perThread);
+    }
+
+    /** Runs the mixed read/write workload and returns the nanoseconds it took, excluding close. */
+    static long stress(Path path, int threads, int perThread) throws Exception {
+        WordMemoryStore store = new WordMemoryStore(
+                path,
+                new WordMemoryStore.WriteBehind(100_000, 1024, Duration.ofMillis(20), false)
+        );
+        Instant now = Instant.now();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            String user = "user-" + thread;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int index = 0; index < perThread; index++) {
+                    store.recordMessage(GUILD, CHANNEL, user, "spam link " + (index % 50), now);
+                    store.recordMessage(GUILD, CHANNEL, "shared", "raid", now);
+                    store.getTokenCount(GUILD, CHANNEL, "shared", "raid");
+                    store.getRecentMessages(GUILD, CHANNEL, user, 6);
+                }
+                return null;
+            }));
+        }
+        long started = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        long elapsed = System.nanoTime() - started;
+        executor.shutdown();
+
+        assertEquals(threads * perThread, store.getTokenCount(GUILD, CHANNEL, "shared", "raid"));
+        for (int thread = 0; thread < threads; thread++) {
+            assertEquals(perThread, store.getTokenCount(GUILD, CHANNEL, "user-" + thread, "spam"));
+        }
+        assertTrue(store.close(Duration.ofSeconds(30)));
+        return elapsed;
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory.resolve("word_memory"))) {
+            return files.filter(file -> file.toString().endsWith(".wms")).sorted().toList();
+        }
+    }
+
+    @Test
+    void recentMessagesAreCappedPerKeyAndSurviveCompressionAndSnapshots() throws IOException {
+        Path path = directory.resolve("word_memory.jsonl");
+        WordMemoryStore.MessageHistory history = new WordMemoryStore.MessageHistory(12, true);
+        WordMemoryStore store = new WordMemoryStore(path, Duration.ofDays(30), Duration.ofHours(1), null, history);
+        Instant now = Instant.now();
+        for (int index = 0; index < 40; index++) {
+            store.recordMessage(GUILD, CHANNEL, USER, "message number " + index + " " + "spam ".repeat(index),
+                    now.minusSeconds(40 - index));
+        }
+
+        List<String> latest = store.getRecentMessages(GUILD, CHANNEL, USER, 6);
+        assertEquals(6, latest.size());
+        assertEquals("message number 39 " + "spam ".repeat(39), latest.get(0));
+        List<String> all = store.getRecentMessages(GUILD, CHANNEL, USER, 100);
+        assertEquals(12, all.size());
+        assertEquals("message number 28 " + "spam ".repeat(28), all.get(11));
+        // Token counts still cover every message, not just the retained ones.
+        assertEquals(40, store.getTokenCount(GUILD, CHANNEL, USER, "message"));
+
+        store.snapshot();
+        WordMemoryStore reloaded = new WordMemoryStore(path, Duration.ofDays(30), Duration.ofHours(1), null, history);
+        reloaded.load();
+        assertEquals(all, reloaded.getRecentMessages(GUILD, CHANNEL, USER, 100));
+    }
+
+    @Test
+    void recordingNormalizedTokensMatchesRecordingTheNormalizedString() {
+        TextNormalizer normalizer = new TextNormalizer(Map.of(), TextNormalizer.MorphologyMode.STEM);
+        String content = "Free Robux!! free robux, click here";
+        WordMemoryStore fromString = new WordMemoryStore(directory.resolve("string.jsonl"));
+        WordMemoryStore fromTokens = new WordMemoryStore(directory.resolve("tokens.jsonl"));
+        Instant now = Instant.now();
+
+        fromString.recordMessage(GUILD, CHANNEL, USER, normalizer.normalize(content), now);
+        fromTokens.recordMessage(GUILD, CHANNEL, USER, normalizer.analyze(content).normalized(), now);
+
+        assertEquals(
+                fromString.getTokenCounts(GUILD, CHANNEL, USER),
+                fromTokens.getTokenCounts(GUILD, CHANNEL, USER)
+        );
+        assertEquals(2, fromTokens.getTokenCount(GUILD, CHANNEL, USER, "free robux"));
+        assertEquals(
+                fromString.getRecentMessages(GUILD, CHANNEL, USER, 6),
+                fromTokens.getRecentMessages(GUILD, CHANNEL, USER, 6)
+        );
+    }
+
+    @Test
+    void migratesLegacyJsonlAndExportsItBack() throws IOException {
+        Path path = directory.resolve("word_memory.jsonl");
+        long now = Instant.now().toEpochMilli();
+        Files.writeString(path, String.join("\n",
+                "{\"timestampMillis\":" + now + ",\"guildId\":\"" + GUILD + "\",\"channelId\":\"" + CHANNEL
+                        + "\",\"userId\":\"" + USER + "\",\"tokenCounts\":{\"blood\":1,\"clot\":1}}",
+                "not json",
+                "{\"timestampMillis\":1,\"guildId\":\"g\",\"channelId\":\"c\",\"userId\":\"u\","
+                        + "\"tokenCounts\":{\"expired\":1}}",
+                ""
+        ));
+
+        WordMemoryStore store = new WordMemoryStore(path);
+        store.load();
+        assertEquals(Map.of("blood", 1, "clot", 1), store.getTokenCounts(GUILD, CHANNEL, USER));
+        assertTrue(Files.exists(directory.resolve("word_memory.jsonl.migrated")));
+
+        Path exported = directory.resolve("export.jsonl");
+        store.exportJsonl(exported);
+        List<String> lines = Files.readAllLines(exported);
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).contains("\"blood\":1"));
+
+        Files.writeString(exported, System.lineSeparator(), StandardOpenOption.APPEND);
+        WordMemoryStore imported = new WordMemoryStore(directory.resolve("copy.jsonl"));
+        assertEquals(1, imported.importJsonl(exported));
+        assertEquals(Map.of("blood", 1, "clot", 1), imported.getTokenCounts(GUILD, CHANNEL, USER));
+    }
+}
@@ -0,0 +1,115 @@
+package com.vrctool.bot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+class BlockedPatternAutomatonTest {
+    private static final List<Pattern> PATTERNS = List.of(
+            Pattern.compile("h\\s*t\\s*t\\s*p", Pattern.CASE_INSENSITIVE),
+            Pattern.compile("discord(\\.|\\s)*(gg|com)(/|\\s)*(invite)?", Pattern.CASE_INSENSITIVE),
+            Pattern.compile("d\\s*i\\s*s\\s*c\\s*o\\s*r\\s*d", Pattern.CASE_INSENSITIVE),
+            Pattern.compile("free\\s*nitro", Pattern.CASE_INSENSITIVE),
+            Pattern.compile("exe\\b", Pattern.CASE_INSENSITIVE),
+            Pattern.compile("\\b\\d{1,3}(\\.\\d{1,3}){3}\\b"),
+            Pattern.compile("\\b[0-9a-f:]{2,}\\b", Pattern.CASE_INSENSITIVE),
+            Pattern.compile("\\b\\d{3}-\\d{2}-\\d{4}\\b"),
+            Pattern.compile("(.)\\1{6,}"),
+            Pattern.compile("[a-zA-Z0-9]{30,}"),
+            Pattern.compile("(?<=@)everyone"),
+            Pattern.compile("^dm\\s*me", Pattern.CASE_INSENSITIVE),
+            Pattern.compile("[^\\p{Alnum}\\s]{4}\\B")
+    );
+
+    @Test
+    void reportsFirstConfiguredPatternThatMatches() {
+        BlockedPatternAutomaton automaton = BlockedPatternAutomaton.compile(PATTERNS);
+        assertEquals(PATTERNS.get(1), automaton.firstMatch("join discord . gg / invite"));
+        assertEquals(PATTERNS.get(3), automaton.firstMatch("FREE   Nitro"));
+        assertEquals(PATTERNS.get(8), automaton.firstMatch("zzzzzzzzz"));
+        assertEquals(PATTERNS.get(10), automaton.firstMatch("ping @everyone"));
+        assertNull(automaton.firstMatch("hello there", "", null));
+    }
+
+    @Test
+    void fallsBackToRegexForBackreferencesAndLookaround() {
+        BlockedPatternAutomaton automaton = BlockedPatternAutomaton.compile(PATTERNS);
+        assertEquals(List.of(PATTERNS.get(8), PATTERNS.get(10)), automaton.fallbackPatterns());
+    }
+
+    @Test
+    void loopsCompiledAcrossABuilderResizeKeepTheirBackEdge() {
+        // 62 atoms leave the star's loop state in the last slot, so its body forces the arrays to grow.
+        Pattern pattern = Pattern.compile("(xy)*" + "a".repeat(62));
+        BlockedPatternAutomaton automaton = BlockedPatternAutomaton.compile(List.of(pattern));
+        assertEquals(pattern, automaton.firstMatch("xyxy" + "a".repeat(62)));
+        assertNull(automaton.firstMatch("xyxy" + "a".repeat(61)));
+    }
+
+    @Test
+    void abandonsFallbackMatchesThatExceedTheirBudget() {
+        // The backreference keeps this on the regex fallback and turns off the JDK's loop memoization,
+        // so a long near miss backtracks exponentially.
+        Pattern catastrophic = Pattern.compile("(\\w+\\s?)+\\1?!");
+        Pattern scam = Pattern.compile("scam");
+        BlockedPatternAutomaton automaton = BlockedPatternAutomaton.compile(List.of(catastrophic, scam));
+
+        BlockedPatternAutomaton.Result result = automaton.match("a".repeat(40) + "? total scam");
+        assertEquals(scam, result.pattern());
+        assertEquals(catastrophic, result.overBudget());
+        assertNull(automaton.match("a".repeat(40) + "?").pattern());
+        assertEquals(new BlockedPatternAutomaton.Result(catastrophic, null), automaton.match("go now!"));
+    }
+
+    @Test
+    void fallbackMatchesOnLongMessagesStayWithinTheReadBudget() {
+        // The default repeated-character pattern always runs on the fallback; its outcome must not hinge on timing.
+        Pattern repeated = Pattern.compile("(.)\\1{6,}");
+        BlockedPatternAutomaton automaton = BlockedPatternAutomaton.compile(List.of(repeated));
+        String filler = "the worlds are fun tonight ".repeat(150);
+
+        assertEquals(new BlockedPatternAutomaton.Result(repeated, null), automaton.match(filler + "zzzzzzzz"));
+        assertEquals(new BlockedPatternAutomaton.Result(null, null), automaton.match(filler));
+    }
+
+    @Test
+    void reportsOnlyUnboundedQuantifiersNestedInsideOthers() {
+        assertEquals("(\\w+\\s?)+", ModerationPatterns.nestedQuantifier(Pattern.compile("(\\w+\\s?)+\\1?!")));
+        assertEquals("(a+)+", ModerationPatterns.nestedQuantifier(Pattern.compile("x(a+)+b")));
+        assertEquals("((x{2,})y)*", ModerationPatterns.nestedQuantifier(Pattern.compile("((x{2,})y)*")));
+        assertNull(ModerationPatterns.nestedQuantifier(Pattern.compile("(?:ab|cd)+e*")));
+        assertNull(ModerationPatterns.nestedQuantifier(Pattern.compile("(a{1,5})+")));
+        assertNull(ModerationPatterns.nestedQuantifier(Pattern.compile("(a*+)*")));
+        assertNull(ModerationPatterns.nestedQuantifier(Pattern.compile("(?>a+)+")));
+        assertNull(ModerationPatterns.nestedQuantifier(Pattern.compile("[(a+)]+")));
+        assertNull(ModerationPatterns.nestedQuantifier(Pattern.compile("\\(a+\\)+")));
+        assertNull(ModerationPatterns.nestedQuantifier(ModerationPatterns.compileBlockedPattern("free nitro")));
+    }
+
+    @Test
+    void agreesWithJavaRegex() {
+        BlockedPatternAutomaton automaton = BlockedPatternAutomaton.compile(PATTERNS);
+        String alphabet = "httpdiscordgDGfreNITxeab01234.:-/_ @!é́中";
+        Random random = new Random(7);
+        for (int iteration = 0; iteration < 20_000; iteration++) {
+            StringBuilder text = new StringBuilder();
+            int length = 1 + random.nextInt(40);
+            for (int index = 0; index < length; index++) {
+                text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String candidate = text.toString();
+            Pattern expected = null;
+            for (Pattern pattern : PATTERNS) {
+                if (!candidate.isBlank() && pattern.matcher(candidate).find()) {
+                    expected = pattern;
+                    break;
+                }
+            }
+            assertEquals(expected, automaton.firstMatch(candidate), candidate);
+        }
+    }
+}
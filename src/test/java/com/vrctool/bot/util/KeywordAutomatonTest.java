@@ -0,0 +1,57 @@
+package com.vrctool.bot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+class KeywordAutomatonTest {
+    private static final List<String> KEYWORDS = List.of(
+            "harass", "kill", "kill yourself", "kys", "phone #", "self-harm", "self harm",
+            "ip", "ip address", "free nitro", "dox", "doxx", "cp", "rat", "scam"
+    );
+
+    @Test
+    void matchesObfuscatedKeywordsWithGapsAndSuffixes() {
+        KeywordAutomaton automaton = KeywordAutomaton.compile(KEYWORDS);
+        assertEquals("harass", automaton.firstMatch("stop h@r.a$5ing me"));
+        assertEquals("kill", automaton.firstMatch("go K 1 L L yourself"));
+        assertEquals("free nitro", automaton.firstMatch("get FR33 n1tr0 now"));
+        assertEquals("phone #", automaton.firstMatch("what's your phone #?"));
+        assertNull(automaton.firstMatch("skill issue", "scrap", "", null));
+        assertEquals(List.of("kill", "kill yourself", "dox"), automaton.findAll("kill yourself", "dox him"));
+    }
+
+    @Test
+    void firstMatchFollowsKeywordOrderAcrossCandidates() {
+        KeywordAutomaton automaton = KeywordAutomaton.compile(KEYWORDS);
+        assertEquals("harass", automaton.firstMatch("scam alert", "they harass people"));
+    }
+
+    @Test
+    void agreesWithRegexKeywordPatterns() {
+        KeywordAutomaton automaton = KeywordAutomaton.compile(KEYWORDS);
+        List<Pattern> patterns = KEYWORDS.stream().map(ModerationPatterns::compileKeywordPattern).toList();
+        String alphabet = "haraskilyoucpdxmentr#-@$5!1307 .,AKSX";
+        Random random = new Random(42);
+        for (int iteration = 0; iteration < 20_000; iteration++) {
+            StringBuilder text = new StringBuilder();
+            int length = 1 + random.nextInt(24);
+            for (int index = 0; index < length; index++) {
+                text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String candidate = text.toString();
+            List<String> expected = new ArrayList<>();
+            for (int index = 0; index < KEYWORDS.size(); index++) {
+                if (!candidate.isBlank() && patterns.get(index).matcher(candidate).find()) {
+                    expected.add(KEYWORDS.get(index));
+                }
+            }
+            assertEquals(expected, automaton.findAll(candidate), candidate);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.vrctool.bot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+class PatternPrefilterTest {
+    private static final List<Pattern> PATTERNS = List.of(
+            Pattern.compile("\\b(adult|18\\+|18\\s*plus|over\\s*18|18\\s*\\+)\\b", Pattern.CASE_INSENSITIVE),
+            Pattern.compile("\\b(you('|\\s)?re|u\\s*r|him)\\b", Pattern.CASE_INSENSITIVE),
+            Pattern.compile("\\b(lol|j/k|just\\s+kidding|messing\\s+around)\\b", Pattern.CASE_INSENSITIVE),
+            Pattern.compile("free\\s*nitro|dis[ck]ord(\\.gg)?"),
+            Pattern.compile("ab+c{2,}d?e")
+    );
+
+    @Test
+    void extractsTheLiteralsEveryAlternativeRequires() {
+        assertEquals(
+                List.of(List.of("adult"), List.of("18+"), List.of("18", "plus"), List.of("over", "18"), List.of("18")),
+                ModerationPatterns.requiredLiterals(PATTERNS.get(0))
+        );
+        // "u\s*r" has no two-char literal, so the whole pattern has to run.
+        assertNull(ModerationPatterns.requiredLiterals(PATTERNS.get(1)));
+        assertEquals(
+                List.of(List.of("free", "nitro"), List.of("dis", "ord")),
+                ModerationPatterns.requiredLiterals(PATTERNS.get(3))
+        );
+        assertEquals(List.of(List.of("ab")), ModerationPatterns.requiredLiterals(PATTERNS.get(4)));
+        assertNull(ModerationPatterns.requiredLiterals(Pattern.compile("(.)\\1{6,}")));
+    }
+
+    @Test
+    void multiCharacterEscapesContributeNoLiterals() {
+        // Each regex with a text it matches; none of the escape's digits or names may become a required literal.
+        Map<String, String> escapes = Map.of(
+                "\\x41bc", "Abc",
+                "\\x{41}bc", "Abc",
+                "\\u0041bc", "Abc",
+                "\\0101bc", "Abc",
+                "\\cAbc", "\u0001bc",
+                "\\N{LATIN CAPITAL LETTER A}bc", "Abc",
+                "\\pLbc", "Abc",
+                "(?<word>ab)\\k<word>bc", "ababbc"
+        );
+        escapes.forEach((regex, text) -> {
+            Pattern pattern = Pattern.compile(regex);
+            assertEquals(List.of(List.of("bc")), ModerationPatterns.requiredLiterals(pattern), regex);
+            assertTrue(pattern.matcher(text).find(), regex);
+            PatternPrefilter prefilter = PatternPrefilter.compile(List.of(pattern));
+            assertTrue(prefilter.find(0, PatternPrefilter.signature(text), text), regex);
+        });
+    }
+
+    @Test
+    void rejectsOnlyTextsTheRegexCannotMatch() {
+        PatternPrefilter prefilter = PatternPrefilter.compile(PATTERNS);
+        String[] fragments = {
+                "ADULT", "18", "+", " plus", "over ", "you", "'re", "u r", "LoL", "j/k", "just ", "kidding",
+                "messing", "around", "free", "nitro", "discord", "diskord", ".gg", "a", "b", "c", "d", "e", " ", "x"
+        };
+        Random random = new Random(11);
+        for (int iteration = 0; iteration < 20_000; iteration++) {
+            StringBuilder text = new StringBuilder();
+            int parts = 1 + random.nextInt(8);
+            for (int part = 0; part < parts; part++) {
+                text.append(fragments[random.nextInt(fragments.length)]);
+            }
+            String candidate = text.toString();
+            long[] signature = PatternPrefilter.signature(candidate);
+            for (int index = 0; index < PATTERNS.size(); index++) {
+                assertEquals(
+                        PATTERNS.get(index).matcher(candidate).find(),
+                        prefilter.find(index, signature, candidate),
+                        PATTERNS.get(index) + " on " + candidate
+                );
+            }
+        }
+        PatternPrefilter.Stats stats = prefilter.stats();
+        assertTrue(stats.rejected() > 0);
+        assertTrue(stats.rejectRate() > 0 && stats.rejectRate() < 1);
+        assertFalse(prefilter.filters(1));
+    }
+}
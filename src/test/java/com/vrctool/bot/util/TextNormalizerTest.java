@@ -17,6 +17,52 @@ class TextNormalizerTest {
         assertEquals("hello world", normalized);
     }
 
+    @Test
+    void normalizeIntoExposesTokenOffsetsAndReusesTheBuffer() {
+        TextNormalizer normalizer = new TextNormalizer(
+                java.util.Map.of(),
+                TextNormalizer.MorphologyMode.LEMMA
+        );
+        NormalizedTokens tokens = new NormalizedTokens();
+        normalizer.normalizeInto("The CHILDREN were jumping -- over 3 boxes!", tokens);
+        assertEquals("the child were jump over 3 box", tokens.toString());
+        assertEquals(7, tokens.size());
+        assertEquals("child", tokens.token(1));
+        assertEquals(4, tokens.start(1));
+        assertEquals(9, tokens.end(1));
+        assertTrue(tokens.tokenEquals(3, "jump"));
+
+        normalizer.normalizeInto("  ?!  ", tokens);
+        assertEquals(0, tokens.size());
+        assertEquals("", tokens.toString());
+        normalizer.normalizeInto("mice 𝐀bc", tokens);
+        assertEquals("mouse 𝐀bc", tokens.toString());
+    }
+
+    @Test
+    void analyzeSharesOneTokenizationWithExpansionsAndSourceOffsets() {
+        TextNormalizer normalizer = new TextNormalizer(
+                java.util.Map.of("scam", java.util.List.of("fraud", "con")),
+                TextNormalizer.MorphologyMode.STEM
+        );
+        String input = "Total SCAM, scam again!";
+        TokenSequence text = normalizer.analyze(input);
+
+        assertEquals(input, text.source());
+        assertEquals("total scam scam again", text.normalized().toString());
+        assertEquals("total scam fraud con again", text.expanded().toString());
+        assertEquals("SCAM", input.substring(text.normalized().sourceStart(1), text.normalized().sourceEnd(1)));
+        // Expansions point back at the token they were expanded from.
+        assertEquals(6, text.expanded().sourceStart(2));
+        assertEquals(10, text.expanded().sourceEnd(3));
+        KeywordAutomaton keywords = KeywordAutomaton.compile(java.util.List.of("fraud", "scam"));
+        assertEquals("fraud", keywords.firstMatch(text.normalized(), text.expanded()));
+        assertEquals(
+                new TextNormalizer.NormalizedResult("total scam scam again", "total scam fraud con again"),
+                normalizer.normalizeAndExpand(input)
+        );
+    }
+
     @Test
     void expandsSynonymsAfterStemming() {
         TextNormalizer normalizer = TextNormalizer.fromResource(
@@ -28,4 +74,25 @@ class TextNormalizerTest {
         assertTrue(result.expanded().contains("harass"));
         assertTrue(result.expanded().contains("intimidate"));
     }
+
+    @Test
+    void expandsMultiWordPhrasesInOnePass() {
+        TextNormalizer normalizer = new TextNormalizer(
+                java.util.Map.of(
+                        "phone number", java.util.List.of("contact info"),
+                        "number", java.util.List.of("digits")
+                ),
+                TextNormalizer.MorphologyMode.STEM
+        );
+        String input = "send your Phone Numbers, now";
+        TokenSequence text = normalizer.analyze(input);
+
+        assertEquals("send your phone number now", text.normalized().toString());
+        assertEquals("send your phone number contact info digits now", text.expanded().toString());
+        // A phrase expansion spans every token of the phrase it was matched from.
+        assertEquals("Phone Numbers", input.substring(text.expanded().sourceStart(4), text.expanded().sourceEnd(4)));
+        assertEquals("Numbers", input.substring(text.expanded().sourceStart(5), text.expanded().sourceEnd(5)));
+        assertEquals("phone contact", normalizer.expandWithSynonyms("phone contact"));
+        assertEquals("my contact info phone number", normalizer.expandWithSynonyms("my contact info"));
+    }
 }